@@ -0,0 +1,202 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the block container written by BinaryBlockWriter. Each block is
+ * read into a direct ByteBuffer with one channel read where possible and
+ * its checksum is verified before any of its records is returned, so a
+ * damaged file is reported instead of being misread.
+ */
+public class BinaryBlockReader implements Closeable {
+
+	private final ReadableByteChannel channel;
+	private final NameDictionary dictionary = new NameDictionary();
+	private final CRC32C checksum = new CRC32C();
+	private final ByteBuffer header = ByteBuffer.allocateDirect(BinaryBlockWriter.BLOCK_HEADER);
+	private final ByteBuffer trailer = ByteBuffer.allocateDirect(BinaryBlockWriter.BLOCK_TRAILER);
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+	private int recordsLeft;
+	private long blockOffset;         // file offset of the current block
+	private long nextBlockOffset = 5; // file offset of the block after it
+
+	/**
+	 * Creates a reader and checks the file header
+	 * @param channel Source of the file, closed by close()
+	 * @param magic Four bytes the file must start with
+	 * @throws IOException If reading fails or the file is not of the expected kind
+	 */
+	public BinaryBlockReader(ReadableByteChannel channel, int magic) throws IOException {
+		this.channel = channel;
+		buffer.limit(0); // no block read yet
+		ByteBuffer fileHeader = ByteBuffer.allocate(5);
+		if (!readFully(fileHeader))
+			throw new StreamCorruptedException("Missing file header");
+		fileHeader.flip();
+		int found = fileHeader.getInt();
+		if (found != magic)
+			throw new StreamCorruptedException(String.format("Expected magic number %08x but found %08x", magic, found));
+		int version = fileHeader.get();
+		if (version != BinaryBlockWriter.VERSION)
+			throw new StreamCorruptedException("Unsupported version " + version);
+	}
+
+	/**
+	 * Moves to the next record, reading and verifying the next block if the
+	 * current one is used up
+	 * @return True if there is a record to read, false at the end of the file
+	 * @throws IOException If reading fails or a block is damaged
+	 */
+	public boolean nextRecord() throws IOException {
+		while (recordsLeft == 0) {
+			if (buffer.hasRemaining())
+				throw corrupt("Trailing bytes after the last record of block");
+			if (!readBlock())
+				return false;
+		}
+		recordsLeft--;
+		return true;
+	}
+
+	/**
+	 * Reads the next block into the buffer
+	 * @return False if the file ends cleanly before it
+	 */
+	private boolean readBlock() throws IOException {
+		blockOffset = nextBlockOffset;
+		header.clear();
+		if (!readFully(header))
+			return false;
+		header.flip();
+		int length = header.getInt();
+		int count = header.getInt();
+		if (length < 0 || count < 0 || length > BinaryBlockWriter.MAX_BLOCK_LENGTH)
+			throw corrupt("Bad block header");
+		// The header is not covered by the checksum, so check the length against the file before allocating
+		if (channel instanceof SeekableByteChannel) {
+			SeekableByteChannel file = (SeekableByteChannel) channel;
+			if (length + BinaryBlockWriter.BLOCK_TRAILER > file.size() - file.position())
+				throw new EOFException("File ends inside the block at offset " + blockOffset);
+		}
+		if (buffer.capacity() < length)
+			buffer = ByteBuffer.allocateDirect(length);
+		buffer.clear().limit(length);
+		trailer.clear();
+		if (!readFully(buffer) || !readFully(trailer))
+			throw new EOFException("File ends inside the block at offset " + blockOffset);
+		buffer.flip();
+		trailer.flip();
+		checksum.reset();
+		checksum.update(buffer.duplicate());
+		if ((int) checksum.getValue() != trailer.getInt())
+			throw corrupt("Checksum mismatch in block");
+		nextBlockOffset += BinaryBlockWriter.BLOCK_HEADER + length + BinaryBlockWriter.BLOCK_TRAILER;
+		recordsLeft = count;
+		return true;
+	}
+
+	/**
+	 * Fills a buffer from the channel
+	 * @return False if the channel was already at its end, true if the buffer was filled
+	 * @throws EOFException If the channel ends after part of the buffer was filled
+	 */
+	private boolean readFully(ByteBuffer bytes) throws IOException {
+		int start = bytes.position();
+		while (bytes.hasRemaining()) {
+			if (channel.read(bytes) < 0) {
+				if (bytes.position() == start)
+					return false;
+				throw new EOFException("File ends inside the block at offset " + blockOffset);
+			}
+		}
+		return true;
+	}
+
+	private StreamCorruptedException corrupt(String message) {
+		return new StreamCorruptedException(message + " at offset " + blockOffset);
+	}
+
+	/**
+	 * Reads an unsigned varint from the current record
+	 * @return The value
+	 * @throws StreamCorruptedException If the record ends inside the varint
+	 */
+	public long getVarint() throws StreamCorruptedException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!buffer.hasRemaining())
+				throw corrupt("Record ends inside a number in block");
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw corrupt("Number too long in block");
+	}
+
+	/**
+	 * Reads an unsigned varint that must fit in an int
+	 * @return The value
+	 * @throws StreamCorruptedException If it does not fit or the record ends inside it
+	 */
+	public int getInt() throws StreamCorruptedException {
+		long value = getVarint();
+		if (value < 0 || value > Integer.MAX_VALUE)
+			throw corrupt("Number out of range in block");
+		return (int) value;
+	}
+
+	/**
+	 * Reads a zigzag varint from the current record
+	 * @return The signed value
+	 * @throws StreamCorruptedException If the record ends inside the varint
+	 */
+	public long getZigzag() throws StreamCorruptedException {
+		long value = getVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a name reference, adding the name to the dictionary if the
+	 * reference defines it
+	 * @return ID of the name in dictionary()
+	 * @throws StreamCorruptedException If the reference is not valid
+	 */
+	public int getName() throws StreamCorruptedException {
+		int id = getInt();
+		int known = dictionary.size();
+		if (id < known)
+			return id;
+		if (id > known)
+			throw corrupt("Reference to undefined name " + id + " in block");
+		int length = getInt();
+		if (length > buffer.remaining())
+			throw corrupt("Record ends inside a name in block");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		if (dictionary.intern(bytes, 0, length) != id)
+			throw corrupt("Name " + id + " defined twice in block");
+		return id;
+	}
+
+	/**
+	 * Returns the names defined so far
+	 * @return Dictionary of the names read, indexed by their IDs
+	 */
+	public NameDictionary dictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Closes the underlying channel
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,194 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes the container shared by the binary trace and history formats: a
+ * four-byte magic number and a version byte, then a sequence of blocks,
+ * each holding a number of records:
+ *
+ *   int payloadLength, int recordCount, payload, int CRC-32C of the payload
+ *
+ * Records are made of unsigned LEB128 varints (seven bits per byte, low
+ * bits first), zigzag varints for values that may be negative, and name
+ * references. Names are numbered in order of first use by a NameDictionary
+ * that spans the whole file: a reference is the varint ID, and an ID equal
+ * to the number of names defined so far introduces a new name, followed by
+ * its varint length and its bytes. So each distinct name is stored once.
+ *
+ * Records are collected in a direct ByteBuffer and each block is written
+ * to the channel in one call once the buffer is nearly full. A record that
+ * would not fit in an empty buffer makes the buffer grow, up to
+ * MAX_BLOCK_LENGTH, so a reader can refuse a damaged length before
+ * allocating for it.
+ */
+public class BinaryBlockWriter implements Closeable {
+
+	static final int VERSION = 1;
+	static final int BLOCK_HEADER = 8;
+	static final int BLOCK_TRAILER = 4;
+	static final int MAX_BLOCK_LENGTH = 1 << 26;
+	private static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+	private static final int MAX_VARINT = 10;
+
+	private final WritableByteChannel channel;
+	private final NameDictionary dictionary = new NameDictionary();
+	private final CRC32C checksum = new CRC32C();
+	private final ByteBuffer header = ByteBuffer.allocateDirect(BLOCK_HEADER);
+	private final ByteBuffer trailer = ByteBuffer.allocateDirect(BLOCK_TRAILER);
+	private ByteBuffer buffer;
+	private int recordCount;
+	private long bytesWritten;
+
+	/**
+	 * Creates a writer and writes the file header
+	 * @param channel Destination of the file, closed by close()
+	 * @param magic Four bytes identifying the kind of file
+	 * @throws IOException If writing to the channel fails
+	 */
+	public BinaryBlockWriter(WritableByteChannel channel, int magic) throws IOException {
+		this(channel, magic, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a writer and writes the file header
+	 * @param channel Destination of the file, closed by close()
+	 * @param magic Four bytes identifying the kind of file
+	 * @param blockSize Number of payload bytes collected before a block is written
+	 * @throws IOException If writing to the channel fails
+	 */
+	public BinaryBlockWriter(WritableByteChannel channel, int magic, int blockSize) throws IOException {
+		if (blockSize < 1 || blockSize > MAX_BLOCK_LENGTH)
+			throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_LENGTH + ": " + blockSize);
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(blockSize);
+		ByteBuffer fileHeader = ByteBuffer.allocate(5);
+		fileHeader.putInt(magic).put((byte) VERSION).flip();
+		write(fileHeader);
+	}
+
+	/**
+	 * Starts a record, ending the current block first if the record might
+	 * not fit in it
+	 * @param maxLength Upper bound on the number of bytes in the record
+	 * @throws IOException If writing to the channel fails
+	 * @throws IllegalArgumentException If the record could be longer than a block may be
+	 */
+	public void beginRecord(int maxLength) throws IOException {
+		if (maxLength < 0 || maxLength > MAX_BLOCK_LENGTH)
+			throw new IllegalArgumentException("Record too long for a block: " + maxLength);
+		if (buffer.remaining() < maxLength) {
+			if (buffer.position() > 0)
+				writeBlock();
+			if (buffer.capacity() < maxLength)
+				buffer = ByteBuffer.allocateDirect(maxLength);
+		}
+		recordCount++;
+	}
+
+	/**
+	 * Returns an upper bound on the length of a record
+	 * @param varints Number of varints and zigzag varints in the record
+	 * @param names Number of names referenced in the record
+	 * @param nameLengths Total length of the names referenced in the record
+	 * @return Number of bytes the record can take at most
+	 */
+	public static int maxRecordLength(int varints, int names, int nameLengths) {
+		return (varints + 2 * names) * MAX_VARINT + nameLengths;
+	}
+
+	/**
+	 * Appends an unsigned varint
+	 * @param value Value treated as unsigned
+	 */
+	public void putVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Appends a signed value as a zigzag varint, so small negative values stay short
+	 * @param value Value to append
+	 */
+	public void putZigzag(long value) {
+		putVarint((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Appends a reference to a name, defining the name if it is new
+	 * @param bytes Array holding the name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 */
+	public void putName(byte[] bytes, int off, int len) {
+		int known = dictionary.size();
+		int id = dictionary.intern(bytes, off, len);
+		putVarint(id);
+		if (id == known) {
+			putVarint(len);
+			buffer.put(bytes, off, len);
+		}
+	}
+
+	/**
+	 * Writes the buffered records as one block
+	 */
+	private void writeBlock() throws IOException {
+		buffer.flip();
+		checksum.reset();
+		checksum.update(buffer.duplicate());
+		header.clear();
+		header.putInt(buffer.remaining()).putInt(recordCount).flip();
+		trailer.clear();
+		trailer.putInt((int) checksum.getValue()).flip();
+		write(header);
+		write(buffer);
+		write(trailer);
+		buffer.clear();
+		recordCount = 0;
+	}
+
+	/**
+	 * Writes all of a buffer to the channel
+	 */
+	private void write(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining())
+			bytesWritten += channel.write(bytes);
+	}
+
+	/**
+	 * Returns the number of bytes written to the channel so far, not counting
+	 * records still in the buffer
+	 * @return Length of the file written so far
+	 */
+	public long bytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Writes any buffered records as a final block
+	 * @throws IOException If writing to the channel fails
+	 */
+	public void flush() throws IOException {
+		if (buffer.position() > 0)
+			writeBlock();
+	}
+
+	/**
+	 * Writes any buffered records and closes the channel
+	 * @throws IOException If writing to or closing the channel fails
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the Scheduler's history in the binary format. Each record starts
+ * with a varint tag saying which kind of line it stands for, followed by
+ * its fields; times are written as the change from the previous record's
+ * time, which is usually small, and names as dictionary references, so a
+ * run line takes about four bytes instead of forty. BinaryTrace.historyToText
+ * turns the file back into exactly the text the HistoryWriter would have
+ * written.
+ */
+public class BinaryHistoryWriter implements HistorySink {
+
+	static final int RUN = 0;
+	static final int RUN_REPEATED = 1;
+	static final int IDLE = 2;
+	static final int RUN_ON = 3;
+	static final int IDLE_ON = 4;
+	static final int UTILIZATION = 5;
+
+	private final BinaryBlockWriter out;
+	private int lastTime;
+
+	/**
+	 * Creates a writer and writes the file header
+	 * @param channel Destination of the history, closed by close()
+	 * @throws IOException If writing to the channel fails
+	 */
+	public BinaryHistoryWriter(WritableByteChannel channel) throws IOException {
+		out = new BinaryBlockWriter(channel, BinaryTrace.HISTORY_MAGIC);
+	}
+
+	/**
+	 * Writes a time as the change from the previous one
+	 */
+	private void putTime(int time) {
+		out.putZigzag((long) time - lastTime);
+		lastTime = time;
+	}
+
+	@Override
+	public void run(int time, byte[] name, int duration) throws IOException {
+		run(time, name, 0, name.length, duration);
+	}
+
+	@Override
+	public void run(int time, byte[] names, int off, int len, int duration) throws IOException {
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(3, 1, len));
+		out.putVarint(RUN);
+		putTime(time);
+		out.putName(names, off, len);
+		out.putZigzag(duration);
+	}
+
+	@Override
+	public void runRepeated(int time, byte[] name, int count, int quantum) throws IOException {
+		runRepeated(time, name, 0, name.length, count, quantum);
+	}
+
+	@Override
+	public void runRepeated(int time, byte[] names, int off, int len, int count, int quantum) throws IOException {
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(4, 1, len));
+		out.putVarint(RUN_REPEATED);
+		putTime(time);
+		out.putName(names, off, len);
+		out.putZigzag(count);
+		out.putZigzag(quantum);
+	}
+
+	@Override
+	public void idle(int from, int until) throws IOException {
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(3, 0, 0));
+		out.putVarint(IDLE);
+		putTime(from);
+		putTime(until);
+	}
+
+	@Override
+	public void runOn(int time, int cpu, byte[] name, int duration) throws IOException {
+		runOn(time, cpu, name, 0, name.length, duration);
+	}
+
+	@Override
+	public void runOn(int time, int cpu, byte[] names, int off, int len, int duration) throws IOException {
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(4, 1, len));
+		out.putVarint(RUN_ON);
+		putTime(time);
+		out.putZigzag(cpu);
+		out.putName(names, off, len);
+		out.putZigzag(duration);
+	}
+
+	@Override
+	public void idleOn(int cpu, int from, int until) throws IOException {
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(4, 0, 0));
+		out.putVarint(IDLE_ON);
+		out.putZigzag(cpu);
+		putTime(from);
+		putTime(until);
+	}
+
+	@Override
+	public void utilization(int cpu, long busy, long total) throws IOException {
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(4, 0, 0));
+		out.putVarint(UTILIZATION);
+		out.putZigzag(cpu);
+		out.putZigzag(busy);
+		out.putZigzag(total);
+	}
+
+	/**
+	 * Writes any buffered records and closes the channel
+	 * @throws IOException If writing to or closing the channel fails
+	 */
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
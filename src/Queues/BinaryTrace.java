@@ -0,0 +1,144 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StreamCorruptedException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Converts between the Scheduler's text files and their binary forms.
+ *
+ * A binary trace holds the same processes as a text input file (see
+ * BinaryTraceWriter) and a binary history the same lines as a text history
+ * (see BinaryHistoryWriter). Both use the block container of
+ * BinaryBlockWriter: varint fields, each distinct name stored once, and a
+ * CRC-32C per block. Converting a text trace to binary and back gives the
+ * processes with their names normalized to single spaces, exactly as the
+ * Scheduler reads them; converting a binary history to text gives the
+ * bytes the text simulation writes.
+ */
+public final class BinaryTrace {
+
+	static final int TRACE_MAGIC = 0x53434854;   // "SCHT"
+	static final int HISTORY_MAGIC = 0x53434848; // "SCHH"
+
+	private BinaryTrace() {
+	}
+
+	/**
+	 * Converts a text input file to a binary trace
+	 * @param textFile Name of file containing correctly formatted input data
+	 * @param binaryFile Name of the binary trace to create
+	 * @return Number of processes converted
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public static long textToBinary(String textFile, String binaryFile) throws IOException {
+		long count = 0;
+		try (TraceParser in = TraceParser.open(Paths.get(textFile));
+				BinaryTraceWriter out = new BinaryTraceWriter(create(binaryFile))) {
+			byte[] name = new byte[64];
+			while (in.next()) {
+				if (in.nameLength() > name.length)
+					name = Arrays.copyOf(name, Math.max(name.length * 2, in.nameLength()));
+				in.copyName(name, 0);
+				out.write(in.startTime(), in.duration(), name, 0, in.nameLength());
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Converts a binary trace to a text input file
+	 * @param binaryFile Name of the binary trace
+	 * @param textFile Name of the text file to create
+	 * @return Number of processes converted
+	 * @throws IOException If a file cannot be read or written, or the trace is damaged
+	 */
+	public static long binaryToText(String binaryFile, String textFile) throws IOException {
+		long count = 0;
+		try (BinaryTraceReader in = BinaryTraceReader.open(Paths.get(binaryFile));
+				PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(textFile)), 1 << 16))) {
+			while (in.next()) {
+				out.print(in.startTime());
+				out.print(' ');
+				out.print(in.duration());
+				out.print(' ');
+				out.println(in.name());
+				count++;
+			}
+			if (out.checkError())
+				throw new IOException("Writing " + textFile + " failed");
+		}
+		return count;
+	}
+
+	/**
+	 * Converts a binary history to the text the HistoryWriter writes
+	 * @param binaryFile Name of the binary history
+	 * @param textFile Name of the text file to create
+	 * @throws IOException If a file cannot be read or written, or the history is damaged
+	 */
+	public static void historyToText(String binaryFile, String textFile) throws IOException {
+		try (BinaryBlockReader in = new BinaryBlockReader(FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ), HISTORY_MAGIC);
+				HistoryWriter out = new HistoryWriter(create(textFile))) {
+			NameDictionary names = in.dictionary();
+			int time = 0;
+			while (in.nextRecord()) {
+				int tag = in.getInt();
+				switch (tag) {
+				case BinaryHistoryWriter.RUN: {
+					time += (int) in.getZigzag();
+					int name = in.getName();
+					out.run(time, names.names(), names.offset(name), names.length(name), (int) in.getZigzag());
+					break;
+				}
+				case BinaryHistoryWriter.RUN_REPEATED: {
+					time += (int) in.getZigzag();
+					int name = in.getName();
+					int count = (int) in.getZigzag();
+					out.runRepeated(time, names.names(), names.offset(name), names.length(name), count, (int) in.getZigzag());
+					break;
+				}
+				case BinaryHistoryWriter.IDLE: {
+					int from = time += (int) in.getZigzag();
+					out.idle(from, time += (int) in.getZigzag());
+					break;
+				}
+				case BinaryHistoryWriter.RUN_ON: {
+					time += (int) in.getZigzag();
+					int cpu = (int) in.getZigzag();
+					int name = in.getName();
+					out.runOn(time, cpu, names.names(), names.offset(name), names.length(name), (int) in.getZigzag());
+					break;
+				}
+				case BinaryHistoryWriter.IDLE_ON: {
+					int cpu = (int) in.getZigzag();
+					int from = time += (int) in.getZigzag();
+					out.idleOn(cpu, from, time += (int) in.getZigzag());
+					break;
+				}
+				case BinaryHistoryWriter.UTILIZATION: {
+					int cpu = (int) in.getZigzag();
+					long busy = in.getZigzag();
+					out.utilization(cpu, busy, in.getZigzag());
+					break;
+				}
+				default:
+					throw new StreamCorruptedException("Unknown history record " + tag);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a file for writing, replacing any existing contents
+	 */
+	static FileChannel create(String file) throws IOException {
+		return FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads processes in the binary trace format written by BinaryTraceWriter.
+ * Decoding a record is a few varint reads with no text parsing, and each
+ * distinct name is decoded into a String only once and shared by every
+ * process that has it.
+ */
+public class BinaryTraceReader implements TraceSource {
+
+	private final BinaryBlockReader in;
+	private String[] names = new String[64]; // decoded names by ID, filled in on first use
+	private int startTime;
+	private int duration;
+	private int nameId;
+
+	/**
+	 * Creates a reader and checks the file header
+	 * @param channel Source of the file, closed by close()
+	 * @throws IOException If reading fails or the file is not a binary trace
+	 */
+	public BinaryTraceReader(ReadableByteChannel channel) throws IOException {
+		in = new BinaryBlockReader(channel, BinaryTrace.TRACE_MAGIC);
+	}
+
+	/**
+	 * Opens a reader on a file
+	 * @param file File to read
+	 * @return Reader positioned at the first process
+	 * @throws IOException If the file cannot be opened or is not a binary trace
+	 */
+	public static BinaryTraceReader open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new BinaryTraceReader(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		if (!in.nextRecord())
+			return false;
+		long start = startTime + in.getZigzag();
+		if (start < Integer.MIN_VALUE || start > Integer.MAX_VALUE)
+			throw new StreamCorruptedException("Start time out of range: " + start);
+		startTime = (int) start;
+		duration = in.getInt();
+		nameId = in.getName();
+		return true;
+	}
+
+	@Override
+	public int startTime() {
+		return startTime;
+	}
+
+	@Override
+	public int duration() {
+		return duration;
+	}
+
+	@Override
+	public String name() {
+		if (nameId >= names.length)
+			names = Arrays.copyOf(names, Math.max(names.length * 2, nameId + 1));
+		String name = names[nameId];
+		if (name == null)
+			names[nameId] = name = in.dictionary().name(nameId);
+		return name;
+	}
+
+	@Override
+	public int nameLength() {
+		return in.dictionary().length(nameId);
+	}
+
+	@Override
+	public void copyName(byte[] dst, int off) {
+		NameDictionary dictionary = in.dictionary();
+		System.arraycopy(dictionary.names(), dictionary.offset(nameId), dst, off, dictionary.length(nameId));
+	}
+
+	/**
+	 * Returns the ID of the name of the process last read
+	 * @return Index of the name in dictionary()
+	 */
+	public int nameId() {
+		return nameId;
+	}
+
+	/**
+	 * Returns the names read so far
+	 * @return Dictionary of the names, indexed by their IDs
+	 */
+	public NameDictionary dictionary() {
+		return in.dictionary();
+	}
+
+	/**
+	 * Closes the underlying channel
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
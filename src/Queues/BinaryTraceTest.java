@@ -0,0 +1,172 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests converting traces and histories between the text and binary
+ * formats, simulating straight from binary files, and detecting damage.
+ */
+public class BinaryTraceTest {
+
+	public static final String INPUT_NAME = "InputBinary.txt";
+	public static final String BINARY_INPUT_NAME = "InputBinary.bin";
+	public static final String CONVERTED_NAME = "InputBinaryConverted.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputBinary.txt";
+	public static final String BINARY_OUTPUT_NAME = "OutputBinary.bin";
+	public static final String CONVERTED_OUTPUT_NAME = "OutputBinaryConverted.txt";
+	public static final int LINES = 20000;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Random random = new Random(18);
+		String[] names = {"Initialization", "Background  service", "Browser", "Virus scan", "Email"};
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		int start = 0;
+		for (int i = 0; i < LINES; i++) {
+			start += random.nextInt(3) == 0 ? random.nextInt(300) : 0;
+			String name = random.nextInt(10) == 0 ? "Job " + i : names[random.nextInt(names.length)];
+			ps.println(start + "   " + (1 + random.nextInt(400)) + "\t" + name);
+		}
+		ps.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		for (String file : new String[] {INPUT_NAME, BINARY_INPUT_NAME, CONVERTED_NAME, OUTPUT_NAME,
+				BINARY_OUTPUT_NAME, CONVERTED_OUTPUT_NAME})
+			new File(file).delete();
+	}
+
+	@Test
+	public void testTraceRoundTrip() throws IOException {
+		assertEquals(LINES, BinaryTrace.textToBinary(INPUT_NAME, BINARY_INPUT_NAME));
+		assertEquals(LINES, BinaryTrace.binaryToText(BINARY_INPUT_NAME, CONVERTED_NAME));
+		// Spans the many blocks of a large file and is much smaller than the text
+		assertTrue(new File(BINARY_INPUT_NAME).length() * 3 < new File(INPUT_NAME).length());
+
+		try (TraceParser expected = TraceParser.open(Paths.get(INPUT_NAME));
+				TraceParser converted = TraceParser.open(Paths.get(CONVERTED_NAME));
+				BinaryTraceReader binary = BinaryTraceReader.open(Paths.get(BINARY_INPUT_NAME))) {
+			while (expected.next()) {
+				assertTrue(converted.next());
+				assertTrue(binary.next());
+				assertEquals(expected.startTime(), binary.startTime());
+				assertEquals(expected.duration(), binary.duration());
+				assertEquals(expected.name(), binary.name());
+				assertEquals(expected.startTime(), converted.startTime());
+				assertEquals(expected.duration(), converted.duration());
+				assertEquals(expected.name(), converted.name());
+			}
+			assertFalse(converted.next());
+			assertFalse(binary.next());
+			assertTrue(binary.dictionary().size() < LINES / 5);
+		}
+	}
+
+	@Test
+	public void testSimulateBinary() throws IOException {
+		BinaryTrace.textToBinary(INPUT_NAME, BINARY_INPUT_NAME);
+		for (int timeout : new int[] {1, 100, 1000}) {
+			SimulationResult text = Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, timeout);
+			SimulationResult binary = Scheduler.simulateBinary(BINARY_INPUT_NAME, BINARY_OUTPUT_NAME, timeout);
+			assertEquals(text.toCsvRow(), binary.toCsvRow());
+			BinaryTrace.historyToText(BINARY_OUTPUT_NAME, CONVERTED_OUTPUT_NAME);
+			assertArrayEquals("timeout " + timeout, Files.readAllBytes(Paths.get(OUTPUT_NAME)),
+					Files.readAllBytes(Paths.get(CONVERTED_OUTPUT_NAME)));
+			assertTrue(new File(BINARY_OUTPUT_NAME).length() * 5 < new File(OUTPUT_NAME).length());
+		}
+	}
+
+	@Test
+	public void testEveryHistoryRecord() throws IOException {
+		byte[] name = HistoryWriter.bytes("Movie clip");
+		byte[] other = HistoryWriter.bytes("Email");
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		try (HistoryWriter expected = new HistoryWriter(Channels.newChannel(text));
+				BinaryHistoryWriter binary = new BinaryHistoryWriter(BinaryTrace.create(BINARY_OUTPUT_NAME))) {
+			for (HistorySink sink : new HistorySink[] {expected, binary}) {
+				sink.run(0, name, 100);
+				sink.runRepeated(100, name, 3, 100);
+				sink.idle(400, 600);
+				sink.runOn(600, 1, other, 50);
+				sink.idleOn(0, 400, 650);
+				sink.runOn(650, 0, name, 10);
+				sink.utilization(0, 10, 660);
+				sink.utilization(1, 50, 660);
+			}
+		}
+		BinaryTrace.historyToText(BINARY_OUTPUT_NAME, CONVERTED_OUTPUT_NAME);
+		assertArrayEquals(text.toByteArray(), Files.readAllBytes(Paths.get(CONVERTED_OUTPUT_NAME)));
+	}
+
+	@Test
+	public void testDamageIsDetected() throws IOException {
+		BinaryTrace.textToBinary(INPUT_NAME, BINARY_INPUT_NAME);
+		byte[] good = Files.readAllBytes(Paths.get(BINARY_INPUT_NAME));
+
+		byte[] flipped = good.clone();
+		flipped[good.length / 2] ^= 0x10;
+		assertReadFails(flipped, StreamCorruptedException.class);
+
+		assertReadFails(Arrays.copyOf(good, good.length - 1), EOFException.class);
+
+		byte[] wrongMagic = good.clone();
+		wrongMagic[3] = 'H';
+		assertReadFails(wrongMagic, StreamCorruptedException.class);
+
+		// The block length is not covered by the checksum and is checked before anything is allocated
+		byte[] hugeLength = good.clone();
+		ByteBuffer.wrap(hugeLength).putInt(5, Integer.MAX_VALUE - 8);
+		assertReadFails(hugeLength, StreamCorruptedException.class);
+		byte[] longLength = good.clone();
+		ByteBuffer.wrap(longLength).putInt(5, BinaryBlockWriter.MAX_BLOCK_LENGTH);
+		assertReadFails(longLength, EOFException.class);
+	}
+
+	@Test
+	public void testDurationOutOfRange() throws IOException {
+		try (BinaryBlockWriter out = new BinaryBlockWriter(BinaryTrace.create(BINARY_INPUT_NAME), BinaryTrace.TRACE_MAGIC)) {
+			out.beginRecord(BinaryBlockWriter.maxRecordLength(2, 1, 1));
+			out.putZigzag(0);
+			out.putVarint(1L << 32);
+			out.putName(new byte[] {'A'}, 0, 1);
+		}
+		assertReadFails(Files.readAllBytes(Paths.get(BINARY_INPUT_NAME)), StreamCorruptedException.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDuration() throws IOException {
+		try (BinaryTraceWriter out = new BinaryTraceWriter(BinaryTrace.create(BINARY_INPUT_NAME))) {
+			out.write(0, -1, "Job");
+		}
+	}
+
+	/**
+	 * Writes a file and checks that reading all of it fails with the given exception
+	 */
+	private static void assertReadFails(byte[] contents, Class<? extends IOException> expected) throws IOException {
+		Files.write(Paths.get(BINARY_INPUT_NAME), contents);
+		try (BinaryTraceReader reader = BinaryTraceReader.open(Paths.get(BINARY_INPUT_NAME))) {
+			while (reader.next())
+				reader.name();
+			fail("Damaged file was read");
+		} catch (IOException e) {
+			assertEquals(expected, e.getClass());
+		}
+	}
+}
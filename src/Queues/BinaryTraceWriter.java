@@ -0,0 +1,66 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes processes in the binary trace format. Each record is the change
+ * in start time from the previous process as a zigzag varint, the duration
+ * as a varint and a reference to the name (see BinaryBlockWriter), so a
+ * typical line of the text format shrinks to three or four bytes once its
+ * name has been seen.
+ */
+public class BinaryTraceWriter implements Closeable {
+
+	private final BinaryBlockWriter out;
+	private int lastStartTime;
+
+	/**
+	 * Creates a writer and writes the file header
+	 * @param channel Destination of the file, closed by close()
+	 * @throws IOException If writing to the channel fails
+	 */
+	public BinaryTraceWriter(WritableByteChannel channel) throws IOException {
+		out = new BinaryBlockWriter(channel, BinaryTrace.TRACE_MAGIC);
+	}
+
+	/**
+	 * Writes one process
+	 * @param startTime Time the process arrives
+	 * @param duration Number of time units it needs
+	 * @param name Array holding the name, encoded as by HistoryWriter.bytes
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @throws IOException If writing to the channel fails
+	 * @throws IllegalArgumentException If the duration is negative
+	 */
+	public void write(int startTime, int duration, byte[] name, int off, int len) throws IOException {
+		if (duration < 0)
+			throw new IllegalArgumentException("Duration cannot be negative: " + duration);
+		out.beginRecord(BinaryBlockWriter.maxRecordLength(2, 1, len));
+		out.putZigzag((long) startTime - lastStartTime);
+		out.putVarint(duration);
+		out.putName(name, off, len);
+		lastStartTime = startTime;
+	}
+
+	/**
+	 * Writes one process
+	 * @param startTime Time the process arrives
+	 * @param duration Number of time units it needs
+	 * @param name Name of the process
+	 * @throws IOException If writing to the channel fails
+	 */
+	public void write(int startTime, int duration, String name) throws IOException {
+		byte[] bytes = HistoryWriter.bytes(name);
+		write(startTime, duration, bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes any buffered records and closes the channel
+	 * @throws IOException If writing to or closing the channel fails
+	 */
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -1,9 +1,25 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * The circular array queue implementation is advantageous because
  * entries do not have to be moved after enqueueing or dequeueing.
  * Since removing leaves space at the beginning of the array, that
  * space can be used for future additions, making the array "circular".
+ *
+ * Iterators and spliterators read the array in place, front to back, and
+ * are fail-fast: they throw ConcurrentModificationException if the queue
+ * is changed other than through them while they are in use. The
+ * spliterator splits a range of the queue in half even when it wraps past
+ * the end of the array, so stream().parallel() can divide a large queue
+ * among threads without copying it.
  */
 public class CircularArrayQueue<T> 
 				implements QueueInterface<T> {
@@ -12,6 +28,8 @@ public class CircularArrayQueue<T>
 	private int frontIndex;
 	private int backIndex;
 	private boolean initialized = false;
+	private int modCount; // changes whenever entries are added or removed
+	private ResizeListener resizeListener;
 	private static final int DEFAULT_CAPACITY = 50;
 	private static final int MAXIMUM_CAPACITY = 10000;
 	
@@ -46,34 +64,96 @@ public class CircularArrayQueue<T>
 	@Override
 	public void enqueue(T newEntry) {
 		checkInitialization();
-		ensureCapacity(); 
+		ensureCapacity(1); 
 		backIndex = (backIndex + 1) % queue.length; 
 		queue[backIndex] = newEntry;
+		modCount++;
 	}
 
 	/**
-	 * Doubles the size of the array queue if it is full.
-     * Precondition: checkInitialization has been called
+	 * Adds a run of entries to back of this queue, in array order, using
+	 * at most two block copies (before and after the end of the array)
+	 * @param src Array holding the new entries
+	 * @param off Index in src of the first entry to add
+	 * @param len Number of entries to add
+	 * @throws IndexOutOfBoundsException if the run does not fit in src
 	 */
-	private void ensureCapacity() {
-		if(frontIndex == (backIndex + 2) % queue.length) { 
+	@Override
+	public void enqueueAll(T[] src, int off, int len) {
+		checkInitialization();
+		Objects.checkFromIndexSize(off, len, src.length);
+		ensureCapacity(len);
+		int start = (backIndex + 1) % queue.length;
+		int firstRun = Math.min(len, queue.length - start);
+		System.arraycopy(src, off, queue, start, firstRun);
+		System.arraycopy(src, off + firstRun, queue, 0, len - firstRun);
+		backIndex = (backIndex + len) % queue.length;
+		modCount++;
+	}
+
+	/**
+	 * Doubles the size of the array queue until the given number of
+	 * additional entries fits. Precondition: checkInitialization has been called
+	 * @param additional Number of entries about to be added
+	 */
+	private void ensureCapacity(int additional) {
+		int oldSize = size();
+		int needed = oldSize + additional;
+		if(needed > queue.length - 1) { 
 			T[] oldQueue = queue;
 			int newSize = 2 * oldQueue.length; 
+			while(newSize - 1 < needed && newSize <= MAXIMUM_CAPACITY)
+				newSize *= 2;
 			checkCapacity(newSize - 1);
-			// Double capacity
 			@SuppressWarnings("unchecked")
 			T[] tempQueue = (T[]) new Object[newSize];
 			queue = tempQueue;
-			// Copy contents
-			for(int i = 0; i < oldQueue.length - 1; i++) {
-				queue[i] = oldQueue[frontIndex];
-				frontIndex = (frontIndex + 1) % oldQueue.length; 
-			}
+			// Copy contents in at most two runs: front to end of array, then start of array
+			copyOut(oldQueue, frontIndex, oldSize, queue, 0);
 			frontIndex = 0;
-			backIndex = oldQueue.length - 2; // accounts for empty space
+			backIndex = (oldSize - 1 + newSize) % newSize; // accounts for empty space
+			if (resizeListener != null)
+				resizeListener.resized(oldQueue.length - 1, newSize - 1, oldSize);
 		}
 	}
 
+	/**
+	 * Registers a callback to run every time the queue grows its array,
+	 * replacing any callback registered before
+	 * @param listener Callback to run, or null to remove the current one
+	 */
+	public void setResizeListener(ResizeListener listener) {
+		resizeListener = listener;
+	}
+
+	/**
+	 * Copies count entries of a circular array, starting at a given index
+	 * and wrapping past its end, into consecutive slots of dst
+	 * @param ring Circular array to copy from
+	 * @param from Index in ring of the first entry
+	 * @param count Number of entries to copy
+	 * @param dst Array to copy into
+	 * @param at Index in dst of the first copied entry
+	 */
+	private static void copyOut(Object[] ring, int from, int count, Object[] dst, int at) {
+		int firstRun = Math.min(count, ring.length - from);
+		System.arraycopy(ring, from, dst, at, firstRun);
+		System.arraycopy(ring, 0, dst, at + firstRun, count - firstRun);
+	}
+
+	/**
+	 * Null-fills count slots of the circular array starting at frontIndex
+	 * and advances frontIndex past them
+	 * @param count Number of entries to discard
+	 */
+	private void discardFront(int count) {
+		int firstRun = Math.min(count, queue.length - frontIndex);
+		Arrays.fill(queue, frontIndex, frontIndex + firstRun, null);
+		Arrays.fill(queue, 0, count - firstRun, null);
+		frontIndex = (frontIndex + count) % queue.length;
+		modCount++;
+	}
+
 	/**
 	 * Throws an exception if this object is not initialized.
 	 */
@@ -92,6 +172,7 @@ public class CircularArrayQueue<T>
 		T temp = getFront();
 		queue[frontIndex] = null; // new empty space
 		frontIndex = (frontIndex + 1) % queue.length; 
+		modCount++;
 		return temp;
 	}
 
@@ -118,12 +199,176 @@ public class CircularArrayQueue<T>
 		return frontIndex == (backIndex + 1) % queue.length; 
 	}
 
+	/**
+	 * Returns the number of entries in this queue
+	 * @return Number of entries
+	 */
+	@Override
+	public int size() {
+		return (backIndex + 1 - frontIndex + queue.length) % queue.length;
+	}
+
+	/**
+	 * Removes up to max entries from the front of this queue and stores
+	 * them, in queue order, at the start of dst
+	 * @param dst Array receiving the entries
+	 * @param max Maximum number of entries to remove
+	 * @return Number of entries removed
+	 * @throws IndexOutOfBoundsException if max is negative or exceeds dst.length
+	 */
+	@Override
+	public int drainTo(T[] dst, int max) {
+		checkInitialization();
+		Objects.checkFromIndexSize(0, max, dst.length);
+		int count = Math.min(max, size());
+		copyOut(queue, frontIndex, count, dst, 0);
+		discardFront(count);
+		return count;
+	}
+
+	/**
+	 * Removes all entries from this queue and adds them, in queue
+	 * order, to the given collection
+	 * @param dst Collection receiving the entries
+	 * @return Number of entries removed
+	 */
+	@Override
+	public int drainTo(Collection<? super T> dst) {
+		checkInitialization();
+		int count = size();
+		int firstRun = Math.min(count, queue.length - frontIndex);
+		List<T> slots = Arrays.asList(queue);
+		dst.addAll(slots.subList(frontIndex, frontIndex + firstRun));
+		dst.addAll(slots.subList(0, count - firstRun));
+		discardFront(count);
+		return count;
+	}
+
 	/**
 	 * Removes all entries from this queue
 	 */
 	@Override
 	public void clear() {
-		while (!isEmpty())
-			dequeue();
+		checkInitialization();
+		discardFront(size());
+	}
+
+	/**
+	 * Returns an iterator over the entries from front to back, without
+	 * removing them
+	 * @return Fail-fast iterator over this queue
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		checkInitialization();
+		return new QueueIterator();
+	}
+
+	/**
+	 * Returns a spliterator over the entries from front to back. It reports
+	 * ORDERED, SIZED and SUBSIZED, and splits in half at any position, even
+	 * across the end of the array.
+	 * @return Fail-fast spliterator over this queue
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		checkInitialization();
+		return new QueueSpliterator(0, size(), modCount);
+	}
+
+	/**
+	 * Throws an exception if the queue changed since an iterator or
+	 * spliterator was created
+	 * @param expectedModCount modCount when the traversal started
+	 */
+	private void checkForComodification(int expectedModCount) {
+		if (modCount != expectedModCount)
+			throw new ConcurrentModificationException();
+	}
+
+	/**
+	 * Iterates front to back by counting entries rather than comparing
+	 * indices, so a full array is handled the same way as a partial one
+	 */
+	private class QueueIterator implements Iterator<T> {
+		private final int expectedModCount = modCount;
+		private final int count = size();
+		private int visited;
+
+		@Override
+		public boolean hasNext() {
+			return visited < count;
+		}
+
+		@Override
+		public T next() {
+			checkForComodification(expectedModCount);
+			if (visited >= count)
+				throw new NoSuchElementException();
+			return queue[(frontIndex + visited++) % queue.length];
+		}
+	}
+
+	/**
+	 * Covers entries origin (inclusive) to fence (exclusive), counted from
+	 * the front of the queue. Positions are mapped onto the array only when
+	 * an entry is read, which is what lets a range that wraps be split
+	 * anywhere.
+	 */
+	private class QueueSpliterator implements Spliterator<T> {
+		private int origin;
+		private final int fence;
+		private final int expectedModCount;
+
+		QueueSpliterator(int origin, int fence, int expectedModCount) {
+			this.origin = origin;
+			this.fence = fence;
+			this.expectedModCount = expectedModCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			Objects.requireNonNull(action);
+			if (origin >= fence)
+				return false;
+			checkForComodification(expectedModCount);
+			action.accept(queue[(frontIndex + origin++) % queue.length]);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			Objects.requireNonNull(action);
+			T[] slots = queue;
+			int start = (frontIndex + origin) % slots.length;
+			int end = start + fence - origin; // may run past the end of the array
+			// At most two contiguous runs: up to the end of the array, then from its start
+			for (int i = start; i < Math.min(end, slots.length); i++)
+				action.accept(slots[i]);
+			for (int i = 0; i < end - slots.length; i++)
+				action.accept(slots[i]);
+			origin = fence;
+			checkForComodification(expectedModCount);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int middle = (origin + fence) >>> 1;
+			if (middle <= origin)
+				return null;
+			Spliterator<T> prefix = new QueueSpliterator(origin, middle, expectedModCount);
+			origin = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - origin;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
 	}
 }
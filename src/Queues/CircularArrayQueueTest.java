@@ -1,5 +1,13 @@
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -238,4 +246,132 @@ public class CircularArrayQueueTest {
 		assertTrue(caq4.isEmpty());
 	}
 
+	@Test
+	public void testSize() {
+		assertEquals(3, caq1.size());
+		assertEquals(0, caq2.size());
+		assertEquals(4, caq3.size());
+		caq3.dequeue();
+		caq3.enqueue(7);
+		caq3.enqueue(8);
+		assertEquals(5, caq3.size());
+		caq3.clear();
+		assertEquals(0, caq3.size());
+	}
+
+	@Test
+	public void testEnqueueAll() {
+		// Move the front away from index 0 so the run wraps past the end of the array
+		caq1.dequeue();
+		caq1.dequeue();
+		String[] batch = {"ignored", "Fourth", "Fifth", "Sixth", "ignored"};
+		caq1.enqueueAll(batch, 1, 3);
+		assertEquals(4, caq1.size());
+		assertEquals("Third", caq1.dequeue());
+		assertEquals("Fourth", caq1.dequeue());
+		assertEquals("Fifth", caq1.dequeue());
+		assertEquals("Sixth", caq1.dequeue());
+		assertTrue(caq1.isEmpty());
+
+		// A run larger than the current capacity grows the array
+		String[] big = new String[500];
+		for (int i = 0; i < big.length; i++)
+			big[i] = "Entry " + i;
+		caq2.enqueue("Before");
+		caq2.enqueueAll(big, 0, big.length);
+		assertEquals(501, caq2.size());
+		assertEquals("Before", caq2.dequeue());
+		for (int i = 0; i < big.length; i++)
+			assertEquals(big[i], caq2.dequeue());
+
+		boolean exception = false;
+		try {
+			caq2.enqueueAll(batch, 3, 5);
+		} catch(IndexOutOfBoundsException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	@Test
+	public void testDrainTo() {
+		// Drain part of a queue whose contents wrap around the end of the array
+		caq4.dequeue();
+		caq4.enqueue(1.5);
+		Double[] out = new Double[10];
+		assertEquals(2, caq4.drainTo(out, 2));
+		assertEquals(Double.valueOf(-13.0), out[0]);
+		assertEquals(Double.valueOf(4.1), out[1]);
+		assertEquals(2, caq4.size());
+		assertEquals(2, caq4.drainTo(out, 10));
+		assertEquals(Double.valueOf(0.0), out[0]);
+		assertEquals(Double.valueOf(1.5), out[1]);
+		assertTrue(caq4.isEmpty());
+		assertEquals(0, caq4.drainTo(out, 10));
+
+		List<Integer> list = new ArrayList<>();
+		list.add(42);
+		assertEquals(4, caq3.drainTo(list));
+		assertEquals(Arrays.asList(42, 999, -14, 3, 0), list);
+		assertTrue(caq3.isEmpty());
+		// Queue is still usable after draining
+		caq3.enqueue(5);
+		assertEquals(Integer.valueOf(5), caq3.dequeue());
+	}
+
+	@Test
+	public void testIterator() {
+		// Contents wrap around the end of the array
+		caq4.dequeue();
+		caq4.enqueue(1.5);
+		List<Double> seen = new ArrayList<>();
+		for (Double d : caq4)
+			seen.add(d);
+		assertEquals(Arrays.asList(-13.0, 4.1, 0.0, 1.5), seen);
+		// Iterating does not remove anything
+		assertEquals(4, caq4.size());
+		assertEquals(Double.valueOf(-13.0), caq4.getFront());
+		assertFalse(caq2.iterator().hasNext());
+
+		boolean exception = false;
+		Iterator<String> it = caq1.iterator();
+		it.next();
+		caq1.enqueue("Fourth");
+		try {
+			it.next();
+		} catch(ConcurrentModificationException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	@Test
+	public void testSpliterator() {
+		// Build a large queue whose contents wrap around the end of the array
+		CircularArrayQueue<Integer> q = new CircularArrayQueue<>(1000);
+		for (int i = 0; i < 600; i++)
+			q.enqueue(-1);
+		for (int i = 0; i < 1000; i++) {
+			if (i < 600)
+				q.dequeue();
+			q.enqueue(i);
+		}
+		assertEquals(1000, q.size());
+
+		Spliterator<Integer> right = q.spliterator();
+		assertTrue(right.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+		Spliterator<Integer> left = right.trySplit();
+		assertEquals(500, left.estimateSize());
+		assertEquals(500, right.estimateSize());
+		List<Integer> seen = new ArrayList<>();
+		left.tryAdvance(seen::add);
+		left.forEachRemaining(seen::add);
+		right.forEachRemaining(seen::add);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Integer.valueOf(i), seen.get(i));
+
+		assertEquals(999 * 1000 / 2, q.stream().parallel().mapToInt(Integer::intValue).sum());
+		assertEquals(seen, q.stream().parallel().collect(Collectors.toList()));
+		assertEquals(1000, q.size());
+	}
 }
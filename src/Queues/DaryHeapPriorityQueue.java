@@ -0,0 +1,406 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * A priority queue stored as a 4-ary heap in parallel arrays. dequeue and
+ * getFront return the smallest entry rather than the oldest one; entries
+ * that compare equal come out in the order they were added, so a heap of
+ * processes ordered by length still runs ties first come, first served.
+ *
+ * Entries are ordered either by a Comparator or by a primitive long key.
+ * In key mode the keys sit in their own long[] next to the entries, so
+ * sifting compares array elements without touching the entry objects at
+ * all. Each node has four children instead of two, which halves the depth
+ * of the tree and keeps a node's children in adjacent slots.
+ *
+ * insert returns an int handle that stays valid until the entry leaves the
+ * queue; decreaseKey uses it to move an entry forward in O(log n) without
+ * searching for it. Handles of removed entries are reused.
+ *
+ * Iterators visit the entries in heap order, which is not priority order,
+ * and are fail-fast.
+ */
+public class DaryHeapPriorityQueue<T> implements QueueInterface<T> {
+
+	private static final int ARITY = 4;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final Comparator<? super T> comparator;  // null in key mode
+	private final ToLongFunction<? super T> keyFunction; // null in comparator mode
+	private Object[] entries;   // entries[i] is the entry at heap position i
+	private long[] keys;        // keys[i] is its key (key mode only)
+	private long[] order;       // order[i] is its insertion number, for ties
+	private int[] handles;      // handles[i] is its handle
+	private int[] positions;    // positions[h] is the heap position of handle h, or -1
+	private int[] freeHandles;  // stack of handles available for reuse
+	private int freeCount;
+	private int nextHandle;
+	private int size;
+	private long insertions;
+	private int modCount; // changes whenever entries are added, removed or reordered
+
+	/**
+	 * Creates an empty queue ordered by a comparator
+	 * @param comparator Decides which of two entries comes out first
+	 */
+	public DaryHeapPriorityQueue(Comparator<? super T> comparator) {
+		this(Objects.requireNonNull(comparator), null, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty queue ordered by a primitive key, smallest first
+	 * @param keyFunction Computes the key of an entry added through enqueue or insert(T)
+	 */
+	public DaryHeapPriorityQueue(ToLongFunction<? super T> keyFunction) {
+		this(null, Objects.requireNonNull(keyFunction), DEFAULT_CAPACITY);
+	}
+
+	private DaryHeapPriorityQueue(Comparator<? super T> comparator, ToLongFunction<? super T> keyFunction, int capacity) {
+		this.comparator = comparator;
+		this.keyFunction = keyFunction;
+		entries = new Object[capacity];
+		keys = new long[keyFunction == null ? 0 : capacity];
+		order = new long[capacity];
+		handles = new int[capacity];
+		positions = new int[capacity];
+		freeHandles = new int[capacity];
+	}
+
+	/**
+	 * Adds new entry in priority order
+	 * @param newEntry An object to be added
+	 */
+	@Override
+	public void enqueue(T newEntry) {
+		insert(newEntry);
+	}
+
+	/**
+	 * Adds new entry in priority order. In key mode the key
+	 * is computed with the queue's key function.
+	 * @param newEntry An object to be added
+	 * @return Handle for the entry, valid until it is removed
+	 */
+	public int insert(T newEntry) {
+		int handle = append(newEntry, keyFunction == null ? 0L : keyFunction.applyAsLong(newEntry));
+		siftUp(size - 1);
+		return handle;
+	}
+
+	/**
+	 * Adds new entry with an explicit key. Key mode only.
+	 * @param newEntry An object to be added
+	 * @param key Priority of the entry, smaller comes out first
+	 * @return Handle for the entry, valid until it is removed
+	 */
+	public int insert(T newEntry, long key) {
+		if (keyFunction == null)
+			throw new IllegalStateException("Queue is ordered by a comparator, not by keys");
+		int handle = append(newEntry, key);
+		siftUp(size - 1);
+		return handle;
+	}
+
+	/**
+	 * Stores an entry in the first free heap position without restoring heap order
+	 * @return Handle assigned to the entry
+	 */
+	private int append(T newEntry, long key) {
+		ensureCapacity(size + 1);
+		int handle = freeCount > 0 ? freeHandles[--freeCount] : nextHandle++;
+		int position = size++;
+		entries[position] = newEntry;
+		if (keyFunction != null)
+			keys[position] = key;
+		order[position] = insertions++;
+		handles[position] = handle;
+		positions[handle] = position;
+		modCount++;
+		return handle;
+	}
+
+	/**
+	 * Grows all arrays so at least the given number of entries fits
+	 * @param needed Number of entries the arrays must hold
+	 */
+	private void ensureCapacity(int needed) {
+		if (needed > entries.length) {
+			int capacity = Math.max(needed, entries.length * 2);
+			entries = Arrays.copyOf(entries, capacity);
+			if (keyFunction != null)
+				keys = Arrays.copyOf(keys, capacity);
+			order = Arrays.copyOf(order, capacity);
+			handles = Arrays.copyOf(handles, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+			freeHandles = Arrays.copyOf(freeHandles, capacity);
+		}
+	}
+
+	/**
+	 * Adds a run of entries. A run at least as large as the queue is
+	 * merged by rebuilding the heap bottom-up in O(n) rather than
+	 * sifting each entry in O(log n).
+	 * @param src Array holding the new entries
+	 * @param off Index in src of the first entry to add
+	 * @param len Number of entries to add
+	 * @throws IndexOutOfBoundsException if the run does not fit in src
+	 */
+	@Override
+	public void enqueueAll(T[] src, int off, int len) {
+		Objects.checkFromIndexSize(off, len, src.length);
+		if (len < size) {
+			for (int i = off; i < off + len; i++)
+				insert(src[i]);
+			return;
+		}
+		ensureCapacity(size + len);
+		for (int i = off; i < off + len; i++)
+			append(src[i], keyFunction == null ? 0L : keyFunction.applyAsLong(src[i]));
+		for (int position = (size - 2) / ARITY; position >= 0; position--)
+			siftDown(position);
+	}
+
+	/**
+	 * Lowers the key of an entry that is still in the queue. Key mode only.
+	 * @param handle Handle returned when the entry was inserted
+	 * @param newKey New key, no larger than the current one
+	 */
+	public void decreaseKey(int handle, long newKey) {
+		if (keyFunction == null)
+			throw new IllegalStateException("Queue is ordered by a comparator, not by keys");
+		int position = positionOf(handle);
+		if (newKey > keys[position])
+			throw new IllegalArgumentException("New key " + newKey + " is larger than current key " + keys[position]);
+		keys[position] = newKey;
+		modCount++;
+		siftUp(position);
+	}
+
+	/**
+	 * Restores heap order after the caller changed an entry so that it
+	 * now comes out earlier. In key mode the key is recomputed.
+	 * @param handle Handle returned when the entry was inserted
+	 */
+	@SuppressWarnings("unchecked")
+	public void decreaseKey(int handle) {
+		int position = positionOf(handle);
+		if (keyFunction != null)
+			decreaseKey(handle, keyFunction.applyAsLong((T) entries[position]));
+		else {
+			modCount++;
+			siftUp(position);
+		}
+	}
+
+	/**
+	 * Returns the key of an entry that is still in the queue. Key mode only.
+	 * @param handle Handle returned when the entry was inserted
+	 * @return Current key of the entry
+	 */
+	public long keyOf(int handle) {
+		if (keyFunction == null)
+			throw new IllegalStateException("Queue is ordered by a comparator, not by keys");
+		return keys[positionOf(handle)];
+	}
+
+	/**
+	 * Returns the handle of the entry at the front of this queue
+	 * @return Handle of the entry dequeue would return
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	public int frontHandle() {
+		if (isEmpty())
+			throw new EmptyQueueException();
+		return handles[0];
+	}
+
+	/**
+	 * Looks up the heap position of a live handle
+	 */
+	private int positionOf(int handle) {
+		if (handle < 0 || handle >= nextHandle || positions[handle] < 0)
+			throw new IllegalArgumentException("Handle is not in the queue: " + handle);
+		return positions[handle];
+	}
+
+	/**
+	 * Removes and returns the smallest entry in this queue
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T dequeue() {
+		T front = getFront();
+		freeHandles[freeCount++] = handles[0];
+		positions[handles[0]] = -1;
+		size--;
+		modCount++;
+		if (size > 0) {
+			move(size, 0);
+			siftDown(0);
+		}
+		entries[size] = null; // let the entry be collected
+		return front;
+	}
+
+	/**
+	 * Returns the smallest entry in this queue without removing it
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T getFront() {
+		if (isEmpty())
+			throw new EmptyQueueException();
+		return (T) entries[0];
+	}
+
+	/**
+	 * Detects whether the queue is empty
+	 * @return True if the queue is empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of entries in this queue
+	 * @return Number of entries
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all entries from this queue and invalidates all handles
+	 */
+	@Override
+	public void clear() {
+		Arrays.fill(entries, 0, size, null);
+		Arrays.fill(positions, 0, nextHandle, -1);
+		size = 0;
+		freeCount = 0;
+		nextHandle = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns an iterator over the entries in heap order, without removing
+	 * them. Only the first entry is guaranteed to be the smallest.
+	 * @return Fail-fast iterator over this queue
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private final int expectedModCount = modCount;
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				return position < size;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (position >= size)
+					throw new NoSuchElementException();
+				return (T) entries[position++];
+			}
+		};
+	}
+
+	/**
+	 * Decides whether the entry at heap position a comes out before the one at b
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean before(int a, int b) {
+		if (keyFunction != null) {
+			if (keys[a] != keys[b])
+				return keys[a] < keys[b];
+		} else {
+			int c = comparator.compare((T) entries[a], (T) entries[b]);
+			if (c != 0)
+				return c < 0;
+		}
+		return order[a] < order[b];
+	}
+
+	/**
+	 * Moves the entry at a heap position up until its parent comes out before it
+	 */
+	private void siftUp(int position) {
+		while (position > 0) {
+			int parent = (position - 1) / ARITY;
+			if (!before(position, parent))
+				break;
+			swap(position, parent);
+			position = parent;
+		}
+	}
+
+	/**
+	 * Moves the entry at a heap position down until it comes out before all its children
+	 */
+	private void siftDown(int position) {
+		for (;;) {
+			int first = ARITY * position + 1;
+			if (first >= size)
+				break;
+			int smallest = first;
+			int last = Math.min(first + ARITY, size);
+			for (int child = first + 1; child < last; child++) {
+				if (before(child, smallest))
+					smallest = child;
+			}
+			if (!before(smallest, position))
+				break;
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+	/**
+	 * Exchanges the entries at two heap positions, keeping handles in step
+	 */
+	private void swap(int a, int b) {
+		Object entry = entries[a];
+		entries[a] = entries[b];
+		entries[b] = entry;
+		if (keyFunction != null) {
+			long key = keys[a];
+			keys[a] = keys[b];
+			keys[b] = key;
+		}
+		long insertion = order[a];
+		order[a] = order[b];
+		order[b] = insertion;
+		int handle = handles[a];
+		handles[a] = handles[b];
+		handles[b] = handle;
+		positions[handles[a]] = a;
+		positions[handles[b]] = b;
+	}
+
+	/**
+	 * Copies the entry at one heap position over another, keeping handles in step
+	 */
+	private void move(int from, int to) {
+		entries[to] = entries[from];
+		if (keyFunction != null)
+			keys[to] = keys[from];
+		order[to] = order[from];
+		handles[to] = handles[from];
+		positions[handles[to]] = to;
+	}
+}
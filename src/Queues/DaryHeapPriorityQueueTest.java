@@ -0,0 +1,127 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the 4-ary heap priority queue in both comparator and
+ * primitive key mode, including handles and bulk heapify.
+ */
+public class DaryHeapPriorityQueueTest {
+
+	private DaryHeapPriorityQueue<String> byLength;
+	private DaryHeapPriorityQueue<Integer> byKey;
+
+	@Before
+	public void setUp() throws Exception {
+		byLength = new DaryHeapPriorityQueue<>(Comparator.comparingInt(String::length));
+		byLength.enqueue("Compiler");
+		byLength.enqueue("Email");
+		byLength.enqueue("Browser");
+		byLength.enqueue("Chrome");
+		byKey = new DaryHeapPriorityQueue<>(Integer::longValue);
+	}
+
+	@Test
+	public void testComparatorOrder() {
+		assertEquals(4, byLength.size());
+		assertEquals("Email", byLength.getFront());
+		assertEquals("Email", byLength.dequeue());
+		assertEquals("Chrome", byLength.dequeue());
+		assertEquals("Browser", byLength.dequeue());
+		assertEquals("Compiler", byLength.dequeue());
+		assertTrue(byLength.isEmpty());
+
+		boolean exception = false;
+		try {
+			byLength.dequeue();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	@Test
+	public void testTiesComeOutInInsertionOrder() {
+		byLength.clear();
+		byLength.enqueue("bbb");
+		byLength.enqueue("aaa");
+		byLength.enqueue("z");
+		byLength.enqueue("ccc");
+		byLength.enqueue("ddd");
+		assertEquals("z", byLength.dequeue());
+		assertEquals("bbb", byLength.dequeue());
+		assertEquals("aaa", byLength.dequeue());
+		assertEquals("ccc", byLength.dequeue());
+		assertEquals("ddd", byLength.dequeue());
+	}
+
+	@Test
+	public void testMatchesSortOnRandomInput() {
+		Random random = new Random(17);
+		int[] values = new int[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(1000);
+			byKey.enqueue(values[i]);
+		}
+		Arrays.sort(values);
+		for (int value : values)
+			assertEquals(value, byKey.dequeue().intValue());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		int a = byKey.insert(1, 50L);
+		int b = byKey.insert(2, 40L);
+		int c = byKey.insert(3, 30L);
+		assertEquals(Integer.valueOf(3), byKey.getFront());
+		byKey.decreaseKey(a, 10L);
+		assertEquals(10L, byKey.keyOf(a));
+		assertEquals(a, byKey.frontHandle());
+		assertEquals(Integer.valueOf(1), byKey.dequeue());
+		assertEquals(Integer.valueOf(3), byKey.dequeue());
+
+		boolean exception = false;
+		try {
+			byKey.decreaseKey(b, 45L); // larger than the current key
+		} catch(IllegalArgumentException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		exception = false;
+		try {
+			byKey.decreaseKey(c, 0L); // c has already left the queue
+		} catch(IllegalArgumentException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		assertEquals(Integer.valueOf(2), byKey.dequeue());
+	}
+
+	@Test
+	public void testEnqueueAllHeapifies() {
+		Integer[] batch = new Integer[1000];
+		for (int i = 0; i < batch.length; i++)
+			batch[i] = (i * 7919) % 1000; // every value 0-999 once, scrambled
+		byKey.enqueue(-1);
+		byKey.enqueueAll(batch, 0, batch.length);
+		assertEquals(1001, byKey.size());
+		assertEquals(Integer.valueOf(-1), byKey.dequeue());
+		for (int i = 0; i < batch.length; i++)
+			assertEquals(i, byKey.dequeue().intValue());
+
+		// A small batch into a larger queue goes through ordinary inserts
+		byLength.enqueueAll(new String[] {"Go", "Browser"}, 0, 2);
+		assertEquals("Go", byLength.dequeue());
+		assertEquals("Email", byLength.dequeue());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testKeysRejectedInComparatorMode() {
+		byLength.insert("Email", 3L);
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * First come, first served: each process runs to completion, in arrival
+ * order. Ties in arrival time go in input file order.
+ */
+public class FirstComeFirstServedPolicy implements SchedulingPolicy {
+
+	private final SegmentedQueue<Scheduler.Process> readyQueue = new SegmentedQueue<>();
+
+	@Override
+	public void arrive(Scheduler.Process process, int time) {
+		readyQueue.enqueue(process);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return readyQueue.isEmpty();
+	}
+
+	@Override
+	public Scheduler.Process next(int time) {
+		return readyQueue.dequeue();
+	}
+
+	@Override
+	public int timeSlice(Scheduler.Process process) {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public void preempted(Scheduler.Process process, int time, int ran) {
+		throw new IllegalStateException("First come, first served never preempts");
+	}
+}
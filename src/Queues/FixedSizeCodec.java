@@ -0,0 +1,29 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Converts entries to and from records that all occupy the same
+ * number of bytes, so a record's position in a file can be computed
+ * from its sequence number alone.
+ * @param <T> type of entry encoded
+ */
+public interface FixedSizeCodec<T> {
+	/**
+	 * Returns the number of bytes every record occupies
+	 * @return Record size in bytes, positive
+	 */
+	public int recordSize();
+	/**
+	 * Writes one entry as exactly recordSize() bytes starting at the
+	 * buffer's current position, advancing the position
+	 * @param entry The entry to encode
+	 * @param target Buffer with at least recordSize() bytes remaining
+	 */
+	public void encode(T entry, ByteBuffer target);
+	/**
+	 * Reads one entry from exactly recordSize() bytes starting at the
+	 * buffer's current position, advancing the position
+	 * @param source Buffer with at least recordSize() bytes remaining
+	 * @return The decoded entry
+	 */
+	public T decode(ByteBuffer source);
+}
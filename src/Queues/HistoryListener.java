@@ -0,0 +1,59 @@
+import java.io.IOException;
+
+/**
+ * SchedulerListener that writes the history of a simulation to a
+ * HistorySink, one call per line of the text history, taking each name
+ * straight from the ProcessTable's name array. Arrivals and completions
+ * are not part of the history and are ignored. The sink is not closed.
+ */
+public final class HistoryListener implements SchedulerListener {
+
+	private final HistorySink processHistory;
+	private final boolean compact;
+	private ProcessTable processes;
+
+	/**
+	 * Creates a listener writing to a sink
+	 * @param processHistory Destination of the history
+	 * @param compact True to write consecutive timeout periods of one process as one line
+	 */
+	public HistoryListener(HistorySink processHistory, boolean compact) {
+		this.processHistory = processHistory;
+		this.compact = compact;
+	}
+
+	@Override
+	public void onStart(ProcessTable processes) {
+		this.processes = processes;
+	}
+
+	@Override
+	public void onArrival(int pid, int time) {
+	}
+
+	@Override
+	public void onRun(int pid, int start, int duration) throws IOException {
+		processHistory.run(start, processes.names(), processes.nameOffset(pid), processes.nameLength(pid), duration);
+	}
+
+	@Override
+	public void onRunRepeated(int pid, int start, int count, int quantum) throws IOException {
+		byte[] names = processes.names();
+		int nameOffset = processes.nameOffset(pid);
+		int nameLength = processes.nameLength(pid);
+		if (compact)
+			processHistory.runRepeated(start, names, nameOffset, nameLength, count, quantum);
+		else
+			for (int i = 0; i < count; i++)
+				processHistory.run(start + i * quantum, names, nameOffset, nameLength, quantum);
+	}
+
+	@Override
+	public void onIdle(int from, int to) throws IOException {
+		processHistory.idle(from, to);
+	}
+
+	@Override
+	public void onComplete(int pid, int time) {
+	}
+}
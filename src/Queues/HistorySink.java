@@ -0,0 +1,92 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the Scheduler's history: one call per line of the text
+ * history. Names are passed as bytes encoded by HistoryWriter.bytes.
+ */
+public interface HistorySink extends Closeable {
+	/**
+	 * Records a process running
+	 * @param time Time the process starts running
+	 * @param name Name of the process
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing fails
+	 */
+	public void run(int time, byte[] name, int duration) throws IOException;
+	/**
+	 * Records a process running, taking its name from part of a larger array
+	 * @param time Time the process starts running
+	 * @param names Array holding the name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing fails
+	 */
+	public void run(int time, byte[] names, int off, int len, int duration) throws IOException;
+	/**
+	 * Records a process running for several consecutive quanta
+	 * @param time Time the process starts running
+	 * @param name Name of the process
+	 * @param count Number of consecutive quanta it runs for
+	 * @param quantum Length of each quantum
+	 * @throws IOException If writing fails
+	 */
+	public void runRepeated(int time, byte[] name, int count, int quantum) throws IOException;
+	/**
+	 * Records a process running for several consecutive quanta, taking its
+	 * name from part of a larger array
+	 * @param time Time the process starts running
+	 * @param names Array holding the name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @param count Number of consecutive quanta it runs for
+	 * @param quantum Length of each quantum
+	 * @throws IOException If writing fails
+	 */
+	public void runRepeated(int time, byte[] names, int off, int len, int count, int quantum) throws IOException;
+	/**
+	 * Records the processor being idle
+	 * @param from Time the processor became idle
+	 * @param until Time the next process arrives
+	 * @throws IOException If writing fails
+	 */
+	public void idle(int from, int until) throws IOException;
+	/**
+	 * Records a process running on one of several processors
+	 * @param time Time the process starts running
+	 * @param cpu Index of the processor it runs on
+	 * @param name Name of the process
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing fails
+	 */
+	public void runOn(int time, int cpu, byte[] name, int duration) throws IOException;
+	/**
+	 * Records a process running on one of several processors, taking its
+	 * name from part of a larger array
+	 * @param time Time the process starts running
+	 * @param cpu Index of the processor it runs on
+	 * @param names Array holding the name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing fails
+	 */
+	public void runOn(int time, int cpu, byte[] names, int off, int len, int duration) throws IOException;
+	/**
+	 * Records one of several processors being idle
+	 * @param cpu Index of the idle processor
+	 * @param from Time the processor became idle
+	 * @param until Time it is given a process again
+	 * @throws IOException If writing fails
+	 */
+	public void idleOn(int cpu, int from, int until) throws IOException;
+	/**
+	 * Records how busy a processor was over the whole simulation
+	 * @param cpu Index of the processor
+	 * @param busy Time units it spent running processes
+	 * @param total Length of the whole simulation
+	 * @throws IOException If writing fails
+	 */
+	public void utilization(int cpu, long busy, long total) throws IOException;
+}
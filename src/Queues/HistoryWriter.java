@@ -0,0 +1,317 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the Scheduler's history lines to a channel. Each line is
+ * formatted straight into a large direct ByteBuffer: the fixed text is
+ * copied from pre-encoded byte arrays, numbers are converted to ASCII
+ * digits by hand and names are copied from bytes the caller encoded once.
+ * The buffer is only written to the channel when it fills up or on
+ * flush, so a long simulation makes a few large writes instead of one
+ * small write per line, and formatting a line allocates nothing.
+ *
+ * The bytes written are exactly what PrintStream.println would write for
+ * the same line in the default charset, using the system line separator.
+ */
+public class HistoryWriter implements HistorySink {
+
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+	private static final int MAX_DIGITS = 20; // "-9223372036854775808"
+	private static final Charset CHARSET = Charset.defaultCharset();
+	private static final byte[] RUN_AT = bytes("At time ");
+	private static final byte[] RUN_NAME = bytes(": run \"");
+	private static final byte[] RUN_FOR = bytes("\" for ");
+	private static final byte[] RUN_UNITS = bytes(" time units");
+	private static final byte[] RUN_TIMES = bytes(" x ");
+	private static final byte[] IDLE_FROM = bytes("CPU idle from time ");
+	private static final byte[] IDLE_UNTIL = bytes(" until time ");
+	private static final byte[] ON_CPU = bytes(" on CPU ");
+	private static final byte[] CPU = bytes("CPU ");
+	private static final byte[] CPU_IDLE_FROM = bytes(" idle from time ");
+	private static final byte[] BUSY_FOR = bytes(" busy for ");
+	private static final byte[] BUSY_OF = bytes(" of ");
+	private static final byte[] BUSY_UNITS = bytes(" time units (");
+	private static final byte[] BUSY_PERCENT = bytes("%)");
+	private static final byte[] LINE_SEPARATOR = bytes(System.lineSeparator());
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final byte[] digits = new byte[MAX_DIGITS];
+
+	/**
+	 * Creates a writer with the default 1 MiB buffer
+	 * @param channel Destination of the history, closed by close()
+	 */
+	public HistoryWriter(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a writer
+	 * @param channel Destination of the history, closed by close()
+	 * @param bufferSize Number of bytes collected before each write
+	 */
+	public HistoryWriter(WritableByteChannel channel, int bufferSize) {
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Encodes text the way this writer expects names to be encoded
+	 * @param text Text to encode
+	 * @return Bytes of the text in the default charset
+	 */
+	public static byte[] bytes(String text) {
+		return text.getBytes(CHARSET);
+	}
+
+	/**
+	 * Writes the line At time TIME: run "NAME" for DURATION time units
+	 * @param time Time the process starts running
+	 * @param name Name of the process, as encoded by bytes(String)
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void run(int time, byte[] name, int duration) throws IOException {
+		run(time, name, 0, name.length, duration);
+	}
+
+	/**
+	 * Writes the line At time TIME: run "NAME" for DURATION time units,
+	 * taking the name from part of a larger array such as a name arena
+	 * @param time Time the process starts running
+	 * @param names Array holding the name, encoded as by bytes(String)
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void run(int time, byte[] names, int off, int len, int duration) throws IOException {
+		put(RUN_AT);
+		putLong(time);
+		put(RUN_NAME);
+		put(names, off, len);
+		put(RUN_FOR);
+		putLong(duration);
+		put(RUN_UNITS);
+		put(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Writes the line At time TIME: run "NAME" for COUNT x QUANTUM time units,
+	 * the compact form of COUNT consecutive run lines of QUANTUM time units each
+	 * @param time Time the process starts running
+	 * @param name Name of the process, as encoded by bytes(String)
+	 * @param count Number of consecutive quanta it runs for
+	 * @param quantum Length of each quantum
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void runRepeated(int time, byte[] name, int count, int quantum) throws IOException {
+		runRepeated(time, name, 0, name.length, count, quantum);
+	}
+
+	/**
+	 * Writes the compact line of runRepeated(int, byte[], int, int), taking
+	 * the name from part of a larger array such as a name arena
+	 * @param time Time the process starts running
+	 * @param names Array holding the name, encoded as by bytes(String)
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @param count Number of consecutive quanta it runs for
+	 * @param quantum Length of each quantum
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void runRepeated(int time, byte[] names, int off, int len, int count, int quantum) throws IOException {
+		put(RUN_AT);
+		putLong(time);
+		put(RUN_NAME);
+		put(names, off, len);
+		put(RUN_FOR);
+		putLong(count);
+		put(RUN_TIMES);
+		putLong(quantum);
+		put(RUN_UNITS);
+		put(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Writes the line CPU idle from time FROM until time UNTIL
+	 * @param from Time the processor became idle
+	 * @param until Time the next process arrives
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void idle(int from, int until) throws IOException {
+		put(IDLE_FROM);
+		putLong(from);
+		put(IDLE_UNTIL);
+		putLong(until);
+		put(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Writes the line At time TIME on CPU CPU: run "NAME" for DURATION time units
+	 * @param time Time the process starts running
+	 * @param cpu Index of the processor it runs on
+	 * @param name Name of the process, as encoded by bytes(String)
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void runOn(int time, int cpu, byte[] name, int duration) throws IOException {
+		runOn(time, cpu, name, 0, name.length, duration);
+	}
+
+	/**
+	 * Writes the line of runOn(int, int, byte[], int), taking the name from
+	 * part of a larger array such as a name arena
+	 * @param time Time the process starts running
+	 * @param cpu Index of the processor it runs on
+	 * @param names Array holding the name, encoded as by bytes(String)
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void runOn(int time, int cpu, byte[] names, int off, int len, int duration) throws IOException {
+		put(RUN_AT);
+		putLong(time);
+		put(ON_CPU);
+		putLong(cpu);
+		put(RUN_NAME);
+		put(names, off, len);
+		put(RUN_FOR);
+		putLong(duration);
+		put(RUN_UNITS);
+		put(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Writes the line CPU CPU idle from time FROM until time UNTIL
+	 * @param cpu Index of the idle processor
+	 * @param from Time the processor became idle
+	 * @param until Time it is given a process again
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void idleOn(int cpu, int from, int until) throws IOException {
+		put(CPU);
+		putLong(cpu);
+		put(CPU_IDLE_FROM);
+		putLong(from);
+		put(IDLE_UNTIL);
+		putLong(until);
+		put(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Writes the line CPU CPU busy for BUSY of TOTAL time units (PERCENT%),
+	 * with the percentage rounded to one decimal place
+	 * @param cpu Index of the processor
+	 * @param busy Time units it spent running processes
+	 * @param total Length of the whole simulation
+	 * @throws IOException If writing to the channel fails
+	 */
+	@Override
+	public void utilization(int cpu, long busy, long total) throws IOException {
+		long tenths = total == 0 ? 0 : (busy * 1000 + total / 2) / total;
+		put(CPU);
+		putLong(cpu);
+		put(BUSY_FOR);
+		putLong(busy);
+		put(BUSY_OF);
+		putLong(total);
+		put(BUSY_UNITS);
+		putLong(tenths / 10);
+		put((byte) '.');
+		put((byte) ('0' + tenths % 10));
+		put(BUSY_PERCENT);
+		put(LINE_SEPARATOR);
+	}
+
+	/**
+	 * Appends one byte, writing the buffer out first if it is full
+	 */
+	private void put(byte b) throws IOException {
+		if (!buffer.hasRemaining())
+			writeBuffer();
+		buffer.put(b);
+	}
+
+	/**
+	 * Appends bytes, writing the buffer out whenever it fills up
+	 */
+	private void put(byte[] bytes) throws IOException {
+		put(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Appends part of an array, writing the buffer out whenever it fills up
+	 */
+	private void put(byte[] bytes, int off, int len) throws IOException {
+		while (len > buffer.remaining()) {
+			int run = buffer.remaining();
+			buffer.put(bytes, off, run);
+			writeBuffer();
+			off += run;
+			len -= run;
+		}
+		buffer.put(bytes, off, len);
+	}
+
+	/**
+	 * Appends the decimal digits of a number
+	 */
+	private void putLong(long value) throws IOException {
+		int at = digits.length;
+		// Work with the negative value so Long.MIN_VALUE needs no special case
+		long remaining = value < 0 ? value : -value;
+		do {
+			digits[--at] = (byte) ('0' - remaining % 10);
+			remaining /= 10;
+		} while (remaining != 0);
+		if (value < 0)
+			digits[--at] = '-';
+		put(digits, at, digits.length - at);
+	}
+
+	/**
+	 * Writes everything in the buffer to the channel and empties it
+	 */
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Writes all buffered lines to the channel
+	 * @throws IOException If writing to the channel fails
+	 */
+	public void flush() throws IOException {
+		writeBuffer();
+	}
+
+	/**
+	 * Writes all buffered lines and closes the channel
+	 * @throws IOException If writing to or closing the channel fails
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
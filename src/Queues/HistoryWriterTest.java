@@ -0,0 +1,69 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+/**
+ * Tests that the history writer produces exactly the bytes the
+ * PrintStream-based output did, whatever the buffer size.
+ */
+public class HistoryWriterTest {
+
+	private static final int[] NUMBERS = {0, 7, 10, 1500, -1, -250, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+	@Test
+	public void testMatchesPrintStream() throws IOException {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintStream printer = new PrintStream(expected);
+		for (int n : NUMBERS) {
+			printer.println("At time " + n + ": run \"Background service\" for " + (n / 3) + " time units");
+			printer.println("CPU idle from time " + n + " until time " + (n ^ 5));
+		}
+		printer.close();
+
+		for (int bufferSize : new int[] {1, 5, 64, 1 << 16}) {
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			HistoryWriter writer = new HistoryWriter(Channels.newChannel(actual), bufferSize);
+			byte[] name = HistoryWriter.bytes("Background service");
+			for (int n : NUMBERS) {
+				writer.run(n, name, n / 3);
+				writer.idle(n, n ^ 5);
+			}
+			writer.close();
+			assertArrayEquals("buffer size " + bufferSize, expected.toByteArray(), actual.toByteArray());
+		}
+	}
+
+	@Test
+	public void testWritesOnlyWhenFullOrFlushed() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		HistoryWriter writer = new HistoryWriter(Channels.newChannel(out), 1024);
+		writer.idle(0, 10);
+		assertEquals(0, out.size());
+		writer.flush();
+		assertEquals(("CPU idle from time 0 until time 10" + System.lineSeparator()).length(), out.size());
+		writer.close();
+	}
+
+	@Test
+	public void testUtilization() throws IOException {
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		HistoryWriter writer = new HistoryWriter(Channels.newChannel(actual), 7);
+		writer.utilization(0, 321, 540);
+		writer.utilization(1, 50, 540);
+		writer.utilization(2, 540, 540);
+		writer.utilization(3, 0, 0);
+		writer.utilization(4, 1, 3000);
+		writer.close();
+		String n = System.lineSeparator();
+		assertEquals("CPU 0 busy for 321 of 540 time units (59.4%)" + n
+				+ "CPU 1 busy for 50 of 540 time units (9.3%)" + n
+				+ "CPU 2 busy for 540 of 540 time units (100.0%)" + n
+				+ "CPU 3 busy for 0 of 0 time units (0.0%)" + n
+				+ "CPU 4 busy for 1 of 3000 time units (0.0%)" + n, actual.toString());
+	}
+}
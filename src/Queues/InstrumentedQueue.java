@@ -0,0 +1,402 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A queue that passes every operation on to another queue and keeps
+ * statistics about it: current and highest depth, how many entries went
+ * in and out and how fast, how often the underlying array was resized and
+ * how much was copied doing so, and how long entries waited between
+ * enqueue and dequeue.
+ *
+ * Counting costs a few field updates per operation. Measuring how long
+ * entries wait needs a clock reading on both enqueue and dequeue, so it
+ * is only done while sampling is switched on; the enqueue times are kept
+ * in a LongCircularArrayQueue in step with the entries, and the waits are
+ * recorded in a LogLinearHistogram, so neither allocates per entry.
+ * Matching those times to dequeues in order is only right for a queue
+ * that hands entries back in the order they went in, so wait times can
+ * only be sampled for the first-in, first-out queues of this package and
+ * for an InstrumentedQueue wrapping one; a DaryHeapPriorityQueue, or a
+ * queue this class does not know, can still be counted but not sampled.
+ * Resizes are reported only for a CircularArrayQueue, which is the one
+ * queue that copies its contents when it grows.
+ *
+ * Like the queues it wraps, an InstrumentedQueue is not thread-safe;
+ * snapshot() must be called from the thread using the queue.
+ */
+public class InstrumentedQueue<T> implements QueueInterface<T> {
+
+	private static final int REFERENCE_BYTES = 4; // compressed references, the default below a 32 GB heap
+
+	private final QueueInterface<T> delegate;
+	private final LongCircularArrayQueue enqueueTimes = new LongCircularArrayQueue();
+	private final LogLinearHistogram residence = new LogLinearHistogram();
+	private boolean sampling;
+	private int unsampled;      // entries at the front that were added before sampling started
+	private long startTime;     // System.nanoTime when the statistics were last reset
+	private long enqueueCount;
+	private long dequeueCount;
+	private int maxDepth;
+	private long resizeCount;
+	private long bytesCopied;
+
+	/**
+	 * Wraps a queue with sampling of wait times switched off
+	 * @param delegate Queue that holds the entries
+	 */
+	public InstrumentedQueue(QueueInterface<T> delegate) {
+		this(delegate, false);
+	}
+
+	/**
+	 * Wraps a queue. A CircularArrayQueue has its resize listener replaced.
+	 * @param delegate Queue that holds the entries
+	 * @param sampling True to measure how long entries wait from the start
+	 * @throws IllegalStateException If sampling is asked for and the queue is not first-in, first-out
+	 */
+	public InstrumentedQueue(QueueInterface<T> delegate, boolean sampling) {
+		this.delegate = delegate;
+		if (delegate instanceof CircularArrayQueue)
+			((CircularArrayQueue<T>) delegate).setResizeListener(this::resized);
+		maxDepth = delegate.size();
+		startTime = System.nanoTime();
+		setSampling(sampling);
+	}
+
+	/**
+	 * Counts a resize of the wrapped queue's array
+	 */
+	private void resized(int oldCapacity, int newCapacity, int entriesCopied) {
+		resizeCount++;
+		bytesCopied += (long) entriesCopied * REFERENCE_BYTES;
+	}
+
+	/**
+	 * Switches measuring of wait times on or off. Entries already in the
+	 * queue when sampling starts are not measured.
+	 * @param sampling True to measure wait times of entries added from now on
+	 * @throws IllegalStateException If sampling is switched on and the queue is not first-in, first-out
+	 */
+	public void setSampling(boolean sampling) {
+		if (sampling && !isFifo(delegate))
+			throw new IllegalStateException("Wait times can only be sampled in first-in, first-out order, not for "
+					+ delegate.getClass().getSimpleName());
+		if (sampling && !this.sampling)
+			unsampled = delegate.size();
+		else if (!sampling)
+			enqueueTimes.clear();
+		this.sampling = sampling;
+	}
+
+	/**
+	 * Detects whether a queue returns its entries in the order they were added
+	 * @param queue Queue to check
+	 * @return True for the first-in, first-out queues of this package
+	 */
+	private static boolean isFifo(QueueInterface<?> queue) {
+		if (queue instanceof InstrumentedQueue)
+			return isFifo(((InstrumentedQueue<?>) queue).delegate);
+		return queue instanceof CircularArrayQueue || queue instanceof SegmentedQueue || queue instanceof MappedFileQueue
+				|| queue instanceof MpmcBlockingQueue || queue instanceof SpscRingBuffer;
+	}
+
+	/**
+	 * Detects whether wait times are being measured
+	 * @return True if sampling is on
+	 */
+	public boolean isSampling() {
+		return sampling;
+	}
+
+	/**
+	 * Adds new entry to back of this queue
+	 * @param newEntry An object to be added
+	 */
+	@Override
+	public void enqueue(T newEntry) {
+		delegate.enqueue(newEntry);
+		enqueueCount++;
+		if (sampling)
+			enqueueTimes.enqueueLong(System.nanoTime());
+		updateMaxDepth();
+	}
+
+	/**
+	 * Adds a run of entries to back of this queue, in array order
+	 * @param src Array holding the new entries
+	 * @param off Index in src of the first entry to add
+	 * @param len Number of entries to add
+	 * @throws IndexOutOfBoundsException if the run does not fit in src
+	 */
+	@Override
+	public void enqueueAll(T[] src, int off, int len) {
+		delegate.enqueueAll(src, off, len);
+		enqueueCount += len;
+		if (sampling) {
+			long now = System.nanoTime();
+			for (int i = 0; i < len; i++)
+				enqueueTimes.enqueueLong(now);
+		}
+		updateMaxDepth();
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T dequeue() {
+		T front = delegate.dequeue();
+		dequeueCount++;
+		if (sampling)
+			recordResidence(1, System.nanoTime());
+		return front;
+	}
+
+	/**
+	 * Removes up to max entries from the front of this queue and stores
+	 * them, in queue order, at the start of dst
+	 * @param dst Array receiving the entries
+	 * @param max Maximum number of entries to remove
+	 * @return Number of entries removed
+	 * @throws IndexOutOfBoundsException if max is negative or exceeds dst.length
+	 */
+	@Override
+	public int drainTo(T[] dst, int max) {
+		int count = delegate.drainTo(dst, max);
+		dequeueCount += count;
+		if (sampling)
+			recordResidence(count, System.nanoTime());
+		return count;
+	}
+
+	/**
+	 * Removes all entries from this queue and adds them, in queue
+	 * order, to the given collection
+	 * @param dst Collection receiving the entries
+	 * @return Number of entries removed
+	 */
+	@Override
+	public int drainTo(Collection<? super T> dst) {
+		int count = delegate.drainTo(dst);
+		dequeueCount += count;
+		if (sampling)
+			recordResidence(count, System.nanoTime());
+		return count;
+	}
+
+	/**
+	 * Records the wait of the given number of entries just removed from
+	 * the front, skipping those added before sampling started
+	 * @param count Number of entries removed
+	 * @param now Time of removal from System.nanoTime
+	 */
+	private void recordResidence(int count, long now) {
+		int skipped = Math.min(count, unsampled);
+		unsampled -= skipped;
+		for (int i = skipped; i < count; i++)
+			residence.record(Math.max(0, now - enqueueTimes.dequeueLong()));
+	}
+
+	/**
+	 * Notes the current depth if it is the highest seen
+	 */
+	private void updateMaxDepth() {
+		int depth = delegate.size();
+		if (depth > maxDepth)
+			maxDepth = depth;
+	}
+
+	/**
+	 * Returns entry at front of this queue without modifying it
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T getFront() {
+		return delegate.getFront();
+	}
+
+	/**
+	 * Detects whether the queue is empty
+	 * @return True if the queue is empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return delegate.isEmpty();
+	}
+
+	/**
+	 * Returns the number of entries in this queue
+	 * @return Number of entries
+	 */
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	/**
+	 * Removes all entries from this queue. Cleared entries are not
+	 * counted as dequeued and their wait times are not recorded.
+	 */
+	@Override
+	public void clear() {
+		delegate.clear();
+		enqueueTimes.clear();
+		unsampled = 0;
+	}
+
+	/**
+	 * Returns an iterator over the entries of the wrapped queue
+	 * @return Iterator of the wrapped queue
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return delegate.iterator();
+	}
+
+	/**
+	 * Restarts all statistics. The highest depth restarts at the current depth.
+	 */
+	public void resetStatistics() {
+		startTime = System.nanoTime();
+		enqueueCount = 0;
+		dequeueCount = 0;
+		maxDepth = delegate.size();
+		resizeCount = 0;
+		bytesCopied = 0;
+		residence.reset();
+	}
+
+	/**
+	 * Returns a copy of the current statistics that later operations do not change
+	 * @return Statistics since creation or the last resetStatistics
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this, System.nanoTime());
+	}
+
+	/**
+	 * Statistics of an InstrumentedQueue at one moment
+	 */
+	public static final class Snapshot {
+		private final int depth;
+		private final int maxDepth;
+		private final long enqueueCount;
+		private final long dequeueCount;
+		private final long elapsedNanos;
+		private final long resizeCount;
+		private final long bytesCopied;
+		private final LogLinearHistogram residence;
+
+		private Snapshot(InstrumentedQueue<?> queue, long now) {
+			depth = queue.size();
+			maxDepth = queue.maxDepth;
+			enqueueCount = queue.enqueueCount;
+			dequeueCount = queue.dequeueCount;
+			elapsedNanos = now - queue.startTime;
+			resizeCount = queue.resizeCount;
+			bytesCopied = queue.bytesCopied;
+			residence = new LogLinearHistogram(queue.residence);
+		}
+
+		/**
+		 * @return Number of entries in the queue
+		 */
+		public int depth() {
+			return depth;
+		}
+
+		/**
+		 * @return Highest number of entries the queue has held
+		 */
+		public int maxDepth() {
+			return maxDepth;
+		}
+
+		/**
+		 * @return Number of entries added
+		 */
+		public long enqueueCount() {
+			return enqueueCount;
+		}
+
+		/**
+		 * @return Number of entries removed, not counting clear
+		 */
+		public long dequeueCount() {
+			return dequeueCount;
+		}
+
+		/**
+		 * @return Nanoseconds covered by the statistics
+		 */
+		public long elapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return Entries added per second over the elapsed time
+		 */
+		public double enqueueRate() {
+			return perSecond(enqueueCount);
+		}
+
+		/**
+		 * @return Entries removed per second over the elapsed time
+		 */
+		public double dequeueRate() {
+			return perSecond(dequeueCount);
+		}
+
+		private double perSecond(long count) {
+			return elapsedNanos <= 0 ? 0.0 : count * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * @return Number of times the wrapped queue grew its array
+		 */
+		public long resizeCount() {
+			return resizeCount;
+		}
+
+		/**
+		 * @return Bytes of entry references copied by those resizes
+		 */
+		public long bytesCopied() {
+			return bytesCopied;
+		}
+
+		/**
+		 * @return Nanoseconds that sampled entries waited in the queue
+		 */
+		public LogLinearHistogram residenceNanos() {
+			return new LogLinearHistogram(residence);
+		}
+
+		/**
+		 * Formats the statistics as name=value pairs on one line
+		 * @return Text suitable for a log or a metrics scraper
+		 */
+		@Override
+		public String toString() {
+			List<String> fields = new ArrayList<>();
+			fields.add("depth=" + depth);
+			fields.add("maxDepth=" + maxDepth);
+			fields.add("enqueued=" + enqueueCount);
+			fields.add("dequeued=" + dequeueCount);
+			fields.add(String.format("enqueueRate=%.1f", enqueueRate()));
+			fields.add(String.format("dequeueRate=%.1f", dequeueRate()));
+			fields.add("resizes=" + resizeCount);
+			fields.add("bytesCopied=" + bytesCopied);
+			fields.add("waitSamples=" + residence.count());
+			fields.add("waitP50=" + residence.valueAtPercentile(50));
+			fields.add("waitP99=" + residence.valueAtPercentile(99));
+			fields.add("waitMax=" + residence.max());
+			return String.join(" ", fields);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the instrumented queue passes operations through
+ * unchanged and counts depth, throughput, resizes and wait times.
+ */
+public class InstrumentedQueueTest {
+
+	private InstrumentedQueue<String> queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new InstrumentedQueue<>(new CircularArrayQueue<>(2));
+	}
+
+	@Test
+	public void testCountsAndResizes() {
+		queue.enqueue("First");
+		queue.enqueue("Second");
+		queue.enqueue("Third"); // grows the array from 2 to 5 entries
+		queue.enqueueAll(new String[] {"Fourth", "Fifth", "Sixth"}, 0, 3); // grows from 5 to 11
+		assertEquals("First", queue.dequeue());
+		assertEquals("Second", queue.getFront());
+
+		InstrumentedQueue.Snapshot snapshot = queue.snapshot();
+		assertEquals(5, snapshot.depth());
+		assertEquals(6, snapshot.maxDepth());
+		assertEquals(6, snapshot.enqueueCount());
+		assertEquals(1, snapshot.dequeueCount());
+		assertEquals(2, snapshot.resizeCount());
+		assertEquals((2 + 3) * 4, snapshot.bytesCopied()); // two entries copied, then three
+		assertEquals(0, snapshot.residenceNanos().count()); // sampling is off
+		assertTrue(snapshot.enqueueRate() > 0);
+
+		List<String> rest = new ArrayList<>();
+		assertEquals(5, queue.drainTo(rest));
+		assertEquals("Sixth", rest.get(4));
+		// The snapshot taken earlier does not change
+		assertEquals(5, snapshot.depth());
+		assertEquals(6, queue.snapshot().dequeueCount());
+
+		queue.resetStatistics();
+		assertEquals(0, queue.snapshot().maxDepth());
+		assertEquals(0, queue.snapshot().enqueueCount());
+	}
+
+	@Test
+	public void testResidenceSampling() throws InterruptedException {
+		queue.enqueue("Unsampled");
+		queue.setSampling(true);
+		queue.enqueue("Sampled");
+		queue.enqueueAll(new String[] {"Batch 1", "Batch 2"}, 0, 2);
+		Thread.sleep(5);
+		assertEquals("Unsampled", queue.dequeue());
+		assertEquals(0, queue.snapshot().residenceNanos().count());
+		assertEquals("Sampled", queue.dequeue());
+		String[] out = new String[2];
+		assertEquals(2, queue.drainTo(out, 2));
+
+		LogLinearHistogram waits = queue.snapshot().residenceNanos();
+		assertEquals(3, waits.count());
+		assertTrue(waits.min() >= 5_000_000L);
+		assertTrue(queue.snapshot().toString().contains("waitSamples=3"));
+
+		// Switching sampling off drops the stored times and stops recording
+		queue.enqueue("Later");
+		queue.setSampling(false);
+		queue.dequeue();
+		assertEquals(3, queue.snapshot().residenceNanos().count());
+	}
+
+	@Test
+	public void testSamplingNeedsFifoOrder() {
+		// A heap hands entries back by priority, so enqueue times cannot be matched to dequeues in order
+		InstrumentedQueue<String> heap = new InstrumentedQueue<>(new DaryHeapPriorityQueue<String>(String::compareTo));
+		heap.enqueue("B");
+		heap.enqueue("A");
+		assertEquals("A", heap.dequeue());
+		assertEquals(2, heap.snapshot().enqueueCount());
+		try {
+			heap.setSampling(true);
+			fail("Sampling a priority queue");
+		} catch (IllegalStateException e) {
+			assertFalse(heap.isSampling());
+		}
+		try {
+			new InstrumentedQueue<>(new DaryHeapPriorityQueue<String>(String::compareTo), true);
+			fail("Sampling a priority queue");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// Wrapping a FIFO queue twice keeps it FIFO
+		InstrumentedQueue<String> outer = new InstrumentedQueue<>(queue, true);
+		assertTrue(outer.isSampling());
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * A circular array queue of primitive ints. It has the same wrap-around
+ * and doubling behavior as CircularArrayQueue, but entries are stored
+ * directly in an int[] so enqueueing and dequeueing never box a value
+ * or allocate once the array has grown to its working size.
+ */
+public class IntCircularArrayQueue {
+
+	private int[] queue;
+	private int frontIndex;
+	private int backIndex;
+	private static final int DEFAULT_CAPACITY = 50;
+	private static final int MAXIMUM_CAPACITY = Integer.MAX_VALUE - 9; // largest array the VM allows, less the spare slot
+
+	public IntCircularArrayQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public IntCircularArrayQueue(int initialCapacity) {
+		checkCapacity(initialCapacity);
+		queue = new int[initialCapacity + 1];
+		frontIndex = 0;
+		backIndex = initialCapacity;
+	}
+
+	/**
+	 * Throws an exception if the client requests a capacity that is too large
+	 * @param capacity Requested number of entries
+	 */
+	private void checkCapacity(int capacity) {
+		if (capacity < 0 || capacity > MAXIMUM_CAPACITY)
+			throw new IllegalStateException("Attempt to create a queue whose " +
+											"capacity exceeds allowed " +
+											"maximum of " + MAXIMUM_CAPACITY);
+	}
+
+	/**
+	 * Adds new entry to back of this queue
+	 * @param newEntry Value to be added
+	 */
+	public void enqueueInt(int newEntry) {
+		ensureCapacity();
+		backIndex = (backIndex + 1) % queue.length;
+		queue[backIndex] = newEntry;
+	}
+
+	/**
+	 * Doubles the size of the array queue if it is full, copying the
+	 * entries to the start of the new array in queue order.
+	 */
+	private void ensureCapacity() {
+		if(frontIndex == (backIndex + 2) % queue.length) {
+			int[] oldQueue = queue;
+			int oldSize = oldQueue.length - 1;
+			checkCapacity(oldSize + 1); // fails once the queue is already at the maximum
+			int newSize = (int) Math.min(2L * oldQueue.length, MAXIMUM_CAPACITY + 1L);
+			queue = new int[newSize];
+			// Copy contents in at most two runs: front to end of array, then start of array
+			int firstRun = Math.min(oldSize, oldQueue.length - frontIndex);
+			System.arraycopy(oldQueue, frontIndex, queue, 0, firstRun);
+			System.arraycopy(oldQueue, 0, queue, firstRun, oldSize - firstRun);
+			frontIndex = 0;
+			backIndex = oldSize - 1;
+		}
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue
+	 * @return The value at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	public int dequeueInt() {
+		int front = getFrontInt();
+		frontIndex = (frontIndex + 1) % queue.length;
+		return front;
+	}
+
+	/**
+	 * Returns entry at front of this queue without modifying it
+	 * @return The value at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	public int getFrontInt() {
+		if(isEmpty())
+			throw new EmptyQueueException();
+		else
+			return queue[frontIndex];
+	}
+
+	/**
+	 * Detects whether the queue is empty
+	 * @return True if the queue is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return frontIndex == (backIndex + 1) % queue.length;
+	}
+
+	/**
+	 * Copies the entries into a new array without removing them
+	 * @return The entries from front to back
+	 */
+	public int[] toArray() {
+		int size = (backIndex + 1 - frontIndex + queue.length) % queue.length;
+		int[] entries = new int[size];
+		for (int i = 0; i < size; i++)
+			entries[i] = queue[(frontIndex + i) % queue.length];
+		return entries;
+	}
+
+	/**
+	 * Removes all entries from this queue. Primitive slots hold no
+	 * references, so nothing needs to be overwritten.
+	 */
+	public void clear() {
+		frontIndex = (backIndex + 1) % queue.length;
+	}
+}
@@ -0,0 +1,133 @@
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the int-specialized circular array queue, including a check
+ * that steady-state enqueue/dequeue traffic allocates nothing.
+ */
+public class IntCircularArrayQueueTest {
+
+	private IntCircularArrayQueue iq1;
+	private IntCircularArrayQueue iq2;
+
+	@Before
+	public void setUp() throws Exception {
+		iq1 = new IntCircularArrayQueue(0); // must grow on first enqueue
+		iq1.enqueueInt(999);
+		iq1.enqueueInt(-14);
+		iq1.enqueueInt(3);
+		iq2 = new IntCircularArrayQueue();
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		iq1.enqueueInt(0);
+		iq1.enqueueInt(Integer.MAX_VALUE);
+		assertEquals(999, iq1.dequeueInt());
+		assertEquals(-14, iq1.dequeueInt());
+		assertEquals(3, iq1.dequeueInt());
+		assertEquals(0, iq1.dequeueInt());
+		assertEquals(Integer.MAX_VALUE, iq1.dequeueInt());
+		assertTrue(iq1.isEmpty());
+	}
+
+	@Test
+	public void testWrapAroundAndGrowth() {
+		// Move the front into the middle of the array, then force a resize
+		IntCircularArrayQueue queue = new IntCircularArrayQueue(4);
+		int next = 0;
+		int expected = 0;
+		for (int round = 0; round < 3; round++) {
+			queue.enqueueInt(next++);
+			queue.enqueueInt(next++);
+			queue.enqueueInt(next++);
+			assertEquals(expected++, queue.dequeueInt());
+			assertEquals(expected++, queue.dequeueInt());
+		}
+		for (int i = 0; i < 20; i++)
+			queue.enqueueInt(next++);
+		while (!queue.isEmpty())
+			assertEquals(expected++, queue.dequeueInt());
+		assertEquals(next, expected);
+	}
+
+	@Test
+	public void testGetFrontAndEmpty() {
+		assertEquals(999, iq1.getFrontInt());
+		iq1.dequeueInt();
+		assertEquals(-14, iq1.getFrontInt());
+		boolean exception = false;
+		try {
+			iq2.getFrontInt();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		exception = false;
+		try {
+			iq2.dequeueInt();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	@Test
+	public void testClear() {
+		assertFalse(iq1.isEmpty());
+		iq1.clear();
+		assertTrue(iq1.isEmpty());
+		iq1.enqueueInt(7);
+		assertEquals(7, iq1.getFrontInt());
+	}
+
+	@Test
+	public void testToArray() {
+		IntCircularArrayQueue queue = new IntCircularArrayQueue(4);
+		assertArrayEquals(new int[0], queue.toArray());
+		// Wrap around the end of the array, then grow
+		for (int i = 0; i < 3; i++)
+			queue.enqueueInt(i);
+		queue.dequeueInt();
+		queue.dequeueInt();
+		for (int i = 3; i < 10; i++)
+			queue.enqueueInt(i);
+		assertArrayEquals(new int[] {2, 3, 4, 5, 6, 7, 8, 9}, queue.toArray());
+		assertEquals(2, queue.dequeueInt());
+	}
+
+	@Test
+	public void testSteadyStateAllocatesNothing() {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		IntCircularArrayQueue queue = new IntCircularArrayQueue(64);
+		churn(queue, 200_000); // warm up and reach working capacity
+
+		long before = threads.getThreadAllocatedBytes(thread);
+		long checksum = churn(queue, 1_000_000);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		assertTrue(checksum != 0);
+		// Allow a little for the measurement itself; boxing would cost at least 16 MB here
+		assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+	}
+
+	/**
+	 * Keeps about 32 entries in the queue while pushing operations through it
+	 */
+	private static long churn(IntCircularArrayQueue queue, int operations) {
+		long checksum = 0;
+		for (int i = 0; i < operations; i++) {
+			queue.enqueueInt(i);
+			if (i >= 32)
+				checksum += queue.dequeueInt();
+		}
+		queue.clear();
+		return checksum;
+	}
+}
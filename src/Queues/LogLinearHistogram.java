@@ -0,0 +1,198 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative long values with a fixed memory footprint,
+ * in the style of HdrHistogram. Values below 32 get a bucket each; above
+ * that, every power-of-two range is split into 32 equal sub-buckets, so a
+ * recorded value is known to within about 3% of its size whatever its
+ * magnitude. All 1920 buckets are allocated up front and recording never
+ * allocates, which makes the histogram cheap enough to update on every
+ * dequeue. Not thread-safe.
+ */
+public class LogLinearHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final long[] counts;
+	private long totalCount;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	public LogLinearHistogram() {
+		counts = new long[BUCKETS];
+	}
+
+	/**
+	 * Creates a histogram holding the same counts as another one
+	 * @param other Histogram to copy
+	 */
+	public LogLinearHistogram(LogLinearHistogram other) {
+		counts = other.counts.clone();
+		totalCount = other.totalCount;
+		sum = other.sum;
+		min = other.min;
+		max = other.max;
+	}
+
+	/**
+	 * Adds one occurrence of a value
+	 * @param value Value to record, not negative
+	 */
+	public void record(long value) {
+		if (value < 0)
+			throw new IllegalArgumentException("Cannot record a negative value: " + value);
+		counts[bucketOf(value)]++;
+		totalCount++;
+		sum += value;
+		if (value < min)
+			min = value;
+		if (value > max)
+			max = value;
+	}
+
+	/**
+	 * Returns the bucket a value is counted in
+	 * @param value Non-negative value
+	 * @return Index into counts
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return ((highestBit - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+	}
+
+	/**
+	 * Returns the largest value counted in a bucket
+	 * @param bucket Index into counts
+	 * @return Upper bound of the bucket, inclusive
+	 */
+	private static long highestValueIn(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int highestBit = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket & (SUB_BUCKETS - 1);
+		long lowest = (1L << highestBit) | (subBucket << (highestBit - SUB_BUCKET_BITS));
+		return lowest + (1L << (highestBit - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * Returns the number of values recorded
+	 * @return Count of values
+	 */
+	public long count() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns the smallest value recorded
+	 * @return Exact minimum, or 0 if nothing has been recorded
+	 */
+	public long min() {
+		return totalCount == 0 ? 0 : min;
+	}
+
+	/**
+	 * Returns the largest value recorded
+	 * @return Exact maximum, or 0 if nothing has been recorded
+	 */
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Returns the average of the values recorded
+	 * @return Exact mean, or 0 if nothing has been recorded
+	 */
+	public double mean() {
+		return totalCount == 0 ? 0.0 : (double) sum / totalCount;
+	}
+
+	/**
+	 * Returns a value that the given percentage of recorded values are at
+	 * or below. The answer is the top of the bucket holding that value,
+	 * so it may be up to about 3% above the exact percentile, but never
+	 * above the maximum.
+	 * @param percentile Percentage between 0 and 100
+	 * @return Value at the percentile, or 0 if nothing has been recorded
+	 */
+	public long valueAtPercentile(double percentile) {
+		if (percentile < 0.0 || percentile > 100.0)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+		if (totalCount == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank)
+				return Math.max(min, Math.min(highestValueIn(bucket), max));
+		}
+		return max;
+	}
+
+	/**
+	 * Writes the counts in binary, listing only the buckets in use
+	 * @param out Destination
+	 * @throws IOException If writing fails
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		int used = 0;
+		for (long count : counts)
+			if (count != 0)
+				used++;
+		out.writeInt(used);
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			if (counts[bucket] != 0) {
+				out.writeShort(bucket);
+				out.writeLong(counts[bucket]);
+			}
+		}
+		out.writeLong(totalCount);
+		out.writeLong(sum);
+		out.writeLong(min);
+		out.writeLong(max);
+	}
+
+	/**
+	 * Replaces the counts with ones written by writeTo
+	 * @param in Source
+	 * @throws IOException If reading fails
+	 * @throws StreamCorruptedException If a bucket is out of range
+	 */
+	void readFrom(DataInput in) throws IOException {
+		reset();
+		int used = in.readInt();
+		if (used < 0 || used > BUCKETS)
+			throw new StreamCorruptedException("Bad number of histogram buckets: " + used);
+		for (int i = 0; i < used; i++) {
+			int bucket = in.readUnsignedShort();
+			if (bucket >= BUCKETS)
+				throw new StreamCorruptedException("Bad histogram bucket: " + bucket);
+			counts[bucket] = in.readLong();
+		}
+		totalCount = in.readLong();
+		sum = in.readLong();
+		min = in.readLong();
+		max = in.readLong();
+	}
+
+	/**
+	 * Removes all recorded values
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0L);
+		totalCount = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+}
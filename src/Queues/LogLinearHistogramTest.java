@@ -0,0 +1,60 @@
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the fixed-size log-linear histogram: exact small values,
+ * bounded relative error for large ones, and the summary statistics.
+ */
+public class LogLinearHistogramTest {
+
+	private LogLinearHistogram histogram;
+
+	@Before
+	public void setUp() throws Exception {
+		histogram = new LogLinearHistogram();
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		for (int i = 1; i <= 20; i++)
+			histogram.record(i);
+		assertEquals(20, histogram.count());
+		assertEquals(1, histogram.min());
+		assertEquals(20, histogram.max());
+		assertEquals(10.5, histogram.mean(), 1e-9);
+		assertEquals(10, histogram.valueAtPercentile(50));
+		assertEquals(19, histogram.valueAtPercentile(95));
+		assertEquals(20, histogram.valueAtPercentile(100));
+		assertEquals(1, histogram.valueAtPercentile(0));
+	}
+
+	@Test
+	public void testRelativeErrorIsBounded() {
+		for (long value = 1; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+			histogram.reset();
+			histogram.record(value);
+			histogram.record(value * 2); // keeps the maximum from hiding the bucket bound
+			long reported = histogram.valueAtPercentile(50);
+			assertTrue("value " + value, reported >= value);
+			assertTrue("value " + value, reported - value <= value / 32);
+		}
+	}
+
+	@Test
+	public void testCopyAndReset() {
+		histogram.record(1_000_000);
+		LogLinearHistogram copy = new LogLinearHistogram(histogram);
+		histogram.reset();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.valueAtPercentile(99));
+		assertEquals(1, copy.count());
+		assertEquals(1_000_000, copy.valueAtPercentile(99));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeValue() {
+		histogram.record(-1);
+	}
+}
@@ -0,0 +1,118 @@
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the long-specialized circular array queue, including a check
+ * that steady-state enqueue/dequeue traffic allocates nothing.
+ */
+public class LongCircularArrayQueueTest {
+
+	private LongCircularArrayQueue iq1;
+	private LongCircularArrayQueue iq2;
+
+	@Before
+	public void setUp() throws Exception {
+		iq1 = new LongCircularArrayQueue(0); // must grow on first enqueue
+		iq1.enqueueLong(999);
+		iq1.enqueueLong(-14);
+		iq1.enqueueLong(3);
+		iq2 = new LongCircularArrayQueue();
+	}
+
+	@Test
+	public void testEnqueueDequeue() {
+		iq1.enqueueLong(0);
+		iq1.enqueueLong(Long.MAX_VALUE);
+		assertEquals(999, iq1.dequeueLong());
+		assertEquals(-14, iq1.dequeueLong());
+		assertEquals(3, iq1.dequeueLong());
+		assertEquals(0, iq1.dequeueLong());
+		assertEquals(Long.MAX_VALUE, iq1.dequeueLong());
+		assertTrue(iq1.isEmpty());
+	}
+
+	@Test
+	public void testWrapAroundAndGrowth() {
+		// Move the front into the middle of the array, then force a resize
+		LongCircularArrayQueue queue = new LongCircularArrayQueue(4);
+		int next = 0;
+		int expected = 0;
+		for (int round = 0; round < 3; round++) {
+			queue.enqueueLong(next++);
+			queue.enqueueLong(next++);
+			queue.enqueueLong(next++);
+			assertEquals(expected++, queue.dequeueLong());
+			assertEquals(expected++, queue.dequeueLong());
+		}
+		for (int i = 0; i < 20; i++)
+			queue.enqueueLong(next++);
+		while (!queue.isEmpty())
+			assertEquals(expected++, queue.dequeueLong());
+		assertEquals(next, expected);
+	}
+
+	@Test
+	public void testGetFrontAndEmpty() {
+		assertEquals(999, iq1.getFrontLong());
+		iq1.dequeueLong();
+		assertEquals(-14, iq1.getFrontLong());
+		boolean exception = false;
+		try {
+			iq2.getFrontLong();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		exception = false;
+		try {
+			iq2.dequeueLong();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	@Test
+	public void testClear() {
+		assertFalse(iq1.isEmpty());
+		iq1.clear();
+		assertTrue(iq1.isEmpty());
+		iq1.enqueueLong(7);
+		assertEquals(7, iq1.getFrontLong());
+	}
+
+	@Test
+	public void testSteadyStateAllocatesNothing() {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		LongCircularArrayQueue queue = new LongCircularArrayQueue(64);
+		churn(queue, 200_000); // warm up and reach working capacity
+
+		long before = threads.getThreadAllocatedBytes(thread);
+		long checksum = churn(queue, 1_000_000);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		assertTrue(checksum != 0);
+		// Allow a little for the measurement itself; boxing would cost at least 16 MB here
+		assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+	}
+
+	/**
+	 * Keeps about 32 entries in the queue while pushing operations through it
+	 */
+	private static long churn(LongCircularArrayQueue queue, int operations) {
+		long checksum = 0;
+		for (int i = 0; i < operations; i++) {
+			queue.enqueueLong(i);
+			if (i >= 32)
+				checksum += queue.dequeueLong();
+		}
+		queue.clear();
+		return checksum;
+	}
+}
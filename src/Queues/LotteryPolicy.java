@@ -0,0 +1,140 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lottery scheduling: each ready process holds some number of tickets and
+ * the one to run for the next time slice is chosen by drawing a ticket at
+ * random, so over time each process gets a share of the processor in
+ * proportion to its tickets. The random generator is seeded, so a
+ * simulation can be repeated exactly.
+ *
+ * Ready processes sit in slots of an array with a Fenwick tree of their
+ * ticket counts on top. Drawing walks down the tree to the slot holding
+ * the winning ticket, and adding or removing a process updates the prefix
+ * sums above its slot, so each costs O(log n) however many tickets there
+ * are. Slots of removed processes are reused.
+ */
+public class LotteryPolicy implements SchedulingPolicy {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int quantum;
+	private final ToIntFunction<Scheduler.Process> ticketFunction;
+	private final SplittableRandom random;
+	private final IntCircularArrayQueue freeSlots = new IntCircularArrayQueue();
+	private Scheduler.Process[] slots = new Scheduler.Process[INITIAL_CAPACITY];
+	private int[] tickets = new int[INITIAL_CAPACITY];
+	private long[] tree = new long[INITIAL_CAPACITY + 1]; // 1-based Fenwick tree over tickets
+	private int used;      // slots below this index have been handed out at least once
+	private long totalTickets;
+	private int size;
+
+	/**
+	 * Creates a lottery policy that gives every process one ticket
+	 * @param quantum Length of each time slice
+	 * @param seed Seed of the random draws
+	 */
+	public LotteryPolicy(int quantum, long seed) {
+		this(quantum, seed, process -> 1);
+	}
+
+	/**
+	 * Creates a lottery policy
+	 * @param quantum Length of each time slice
+	 * @param seed Seed of the random draws
+	 * @param tickets Positive number of tickets of each process
+	 */
+	public LotteryPolicy(int quantum, long seed, ToIntFunction<Scheduler.Process> tickets) {
+		if (quantum < 1)
+			throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+		this.quantum = quantum;
+		this.ticketFunction = tickets;
+		random = new SplittableRandom(seed);
+	}
+
+	@Override
+	public void arrive(Scheduler.Process process, int time) {
+		int count = ticketFunction.applyAsInt(process);
+		if (count < 1)
+			throw new IllegalArgumentException("Number of tickets must be positive: " + count);
+		int slot;
+		if (!freeSlots.isEmpty()) {
+			slot = freeSlots.dequeueInt();
+		} else {
+			if (used == slots.length)
+				grow();
+			slot = used++;
+		}
+		slots[slot] = process;
+		tickets[slot] = count;
+		update(slot, count);
+		totalTickets += count;
+		size++;
+	}
+
+	/**
+	 * Doubles the number of slots and rebuilds the tree over them in O(n)
+	 */
+	private void grow() {
+		int capacity = slots.length * 2;
+		slots = Arrays.copyOf(slots, capacity);
+		tickets = Arrays.copyOf(tickets, capacity);
+		tree = new long[capacity + 1];
+		for (int i = 1; i <= capacity; i++) {
+			tree[i] += tickets[i - 1];
+			int parent = i + (i & -i);
+			if (parent <= capacity)
+				tree[parent] += tree[i];
+		}
+	}
+
+	/**
+	 * Adds delta to the ticket count of a slot in the tree
+	 */
+	private void update(int slot, long delta) {
+		for (int i = slot + 1; i < tree.length; i += i & -i)
+			tree[i] += delta;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Scheduler.Process next(int time) {
+		if (size == 0)
+			throw new EmptyQueueException();
+		// Find the slot whose tickets cover the drawn number: descend the tree,
+		// skipping each subtree whose whole sum lies below it
+		long draw = random.nextLong(totalTickets);
+		int position = 0;
+		for (int step = slots.length; step > 0; step >>= 1) {
+			int candidate = position + step;
+			if (candidate < tree.length && tree[candidate] <= draw) {
+				position = candidate;
+				draw -= tree[candidate];
+			}
+		}
+		int slot = position;
+		Scheduler.Process winner = slots[slot];
+		update(slot, -tickets[slot]);
+		totalTickets -= tickets[slot];
+		slots[slot] = null;
+		tickets[slot] = 0;
+		freeSlots.enqueueInt(slot);
+		size--;
+		return winner;
+	}
+
+	@Override
+	public int timeSlice(Scheduler.Process process) {
+		return quantum;
+	}
+
+	@Override
+	public void preempted(Scheduler.Process process, int time, int ran) {
+		arrive(process, time);
+	}
+}
@@ -0,0 +1,328 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A queue whose entries live in memory-mapped files, so they survive the
+ * process that wrote them. Entries are stored as fixed-size records (see
+ * FixedSizeCodec) in a directory of segment files, each holding the same
+ * number of records. The sequence numbers of the front and back of the
+ * queue are kept in a small mapped metadata file and updated after every
+ * operation; a record is always written before the back counter moves
+ * past it, so a crash can lose at most the record being written and never
+ * exposes a half-written one. Reopening the directory resumes with every
+ * entry that was enqueued and not yet dequeued.
+ *
+ * Reads decode straight out of the mapped segment, without copying the
+ * record into an intermediate buffer. Segments are created as the back of
+ * the queue reaches them and deleted once the front has moved past them.
+ * Writes reach the operating system's page cache immediately; call sync()
+ * to also force them to the storage device. A segment the producer has
+ * filled is forced as it moves on to the next one, so sync() only needs to
+ * force the segments in use before the metadata. Iterators decode each record
+ * as they reach it and are fail-fast. Not thread-safe.
+ */
+public class MappedFileQueue<T> implements QueueInterface<T>, Closeable {
+
+	private static final int MAGIC = 0x4D465131; // "MFQ1"
+	private static final int META_SIZE = 32;
+	private static final int RECORD_SIZE_OFFSET = 4;
+	private static final int SEGMENT_RECORDS_OFFSET = 8;
+	private static final int HEAD_OFFSET = 16;
+	private static final int TAIL_OFFSET = 24;
+	private static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 16;
+	private static final String META_FILE = "queue.meta";
+
+	private final Path directory;
+	private final FixedSizeCodec<T> codec;
+	private final int recordSize;
+	private final int recordsPerSegment;
+	private final MappedByteBuffer meta;
+	private long head; // sequence number of the front entry
+	private long tail; // sequence number the next entry will get
+	private long readSegment = -1;
+	private MappedByteBuffer readBuffer;
+	private long writeSegment = -1;
+	private MappedByteBuffer writeBuffer;
+	private boolean closed;
+
+	/**
+	 * Opens the queue stored in a directory, creating it if necessary
+	 * @param directory Directory holding the metadata and segment files
+	 * @param codec Converts entries to and from fixed-size records
+	 * @throws IOException If the directory cannot be created or read
+	 */
+	public MappedFileQueue(Path directory, FixedSizeCodec<T> codec) throws IOException {
+		this(directory, codec, DEFAULT_RECORDS_PER_SEGMENT);
+	}
+
+	/**
+	 * Opens the queue stored in a directory, creating it if necessary
+	 * @param directory Directory holding the metadata and segment files
+	 * @param codec Converts entries to and from fixed-size records
+	 * @param recordsPerSegment Number of records per segment file for a new queue
+	 * @throws IOException If the directory cannot be created or read
+	 * @throws IllegalStateException If an existing queue was written with a
+	 *                               different record size or segment size
+	 */
+	public MappedFileQueue(Path directory, FixedSizeCodec<T> codec, int recordsPerSegment) throws IOException {
+		if (codec.recordSize() <= 0)
+			throw new IllegalArgumentException("Record size must be positive: " + codec.recordSize());
+		if (recordsPerSegment <= 0 || (long) recordsPerSegment * codec.recordSize() > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid records per segment: " + recordsPerSegment);
+		this.directory = directory;
+		this.codec = codec;
+		this.recordSize = codec.recordSize();
+		this.recordsPerSegment = recordsPerSegment;
+
+		Files.createDirectories(directory);
+		Path metaPath = directory.resolve(META_FILE);
+		boolean existing = Files.exists(metaPath);
+		meta = map(metaPath, META_SIZE);
+		if (existing && meta.getInt(0) == MAGIC) {
+			if (meta.getInt(RECORD_SIZE_OFFSET) != recordSize || meta.getInt(SEGMENT_RECORDS_OFFSET) != recordsPerSegment)
+				throw new IllegalStateException("Queue in " + directory + " uses " + meta.getInt(RECORD_SIZE_OFFSET) +
+												"-byte records and " + meta.getInt(SEGMENT_RECORDS_OFFSET) +
+												" records per segment");
+			head = meta.getLong(HEAD_OFFSET);
+			tail = meta.getLong(TAIL_OFFSET);
+		} else {
+			meta.putInt(RECORD_SIZE_OFFSET, recordSize);
+			meta.putInt(SEGMENT_RECORDS_OFFSET, recordsPerSegment);
+			meta.putLong(HEAD_OFFSET, 0L);
+			meta.putLong(TAIL_OFFSET, 0L);
+			meta.putInt(0, MAGIC); // written last: a torn header is treated as a new queue
+		}
+	}
+
+	/**
+	 * Maps a whole file read-write, creating and sizing it if necessary
+	 * @param file File to map
+	 * @param size Number of bytes to map
+	 * @return The mapped buffer, which stays valid after the channel is closed
+	 * @throws IOException If the file cannot be opened or mapped
+	 */
+	private static MappedByteBuffer map(Path file, int size) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+							StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	/**
+	 * Returns the path of the segment file with the given number
+	 */
+	private Path segmentPath(long segment) {
+		return directory.resolve(String.format("segment-%019d.dat", segment));
+	}
+
+	/**
+	 * Returns the mapped segment holding the given sequence number,
+	 * positioned and limited to that record
+	 * @param sequence Sequence number of the record
+	 * @param forWrite True to use the producer's mapping, false for the consumer's
+	 * @return Buffer whose remaining bytes are exactly the record
+	 */
+	private MappedByteBuffer record(long sequence, boolean forWrite) {
+		long segment = sequence / recordsPerSegment;
+		MappedByteBuffer buffer;
+		try {
+			if (forWrite) {
+				if (segment != writeSegment) {
+					// Nothing will force the outgoing segment once its mapping is dropped,
+					// and sync() must not persist a back counter beyond unforced records
+					if (writeBuffer != null)
+						writeBuffer.force();
+					writeBuffer = segment == readSegment ? readBuffer : map(segmentPath(segment), recordsPerSegment * recordSize);
+					writeSegment = segment;
+				}
+				buffer = writeBuffer;
+			} else {
+				if (segment != readSegment) {
+					readBuffer = segment == writeSegment ? writeBuffer : map(segmentPath(segment), recordsPerSegment * recordSize);
+					readSegment = segment;
+				}
+				buffer = readBuffer;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot map segment " + segment + " in " + directory, e);
+		}
+		int offset = (int) (sequence % recordsPerSegment) * recordSize;
+		buffer.limit(offset + recordSize);
+		buffer.position(offset);
+		return buffer;
+	}
+
+	/**
+	 * Throws an exception if the queue has been closed.
+	 */
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("Queue has been closed");
+	}
+
+	/**
+	 * Writes new entry at back of this queue, then publishes it
+	 * by advancing the persisted back counter
+	 * @param newEntry An object to be added
+	 */
+	@Override
+	public void enqueue(T newEntry) {
+		checkOpen();
+		MappedByteBuffer target = record(tail, true);
+		codec.encode(newEntry, target);
+		if (target.hasRemaining())
+			throw new IllegalStateException("Codec wrote " + target.position() % recordSize +
+											" bytes instead of " + recordSize);
+		tail++;
+		meta.putLong(TAIL_OFFSET, tail);
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue. The
+	 * segment file is deleted once its last record has been removed.
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T dequeue() {
+		T front = getFront();
+		head++;
+		meta.putLong(HEAD_OFFSET, head);
+		if (head % recordsPerSegment == 0)
+			releaseSegment(head / recordsPerSegment - 1);
+		return front;
+	}
+
+	/**
+	 * Returns entry at front of this queue without modifying it
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T getFront() {
+		checkOpen();
+		if (isEmpty())
+			throw new EmptyQueueException();
+		return codec.decode(record(head, false));
+	}
+
+	/**
+	 * Drops the mappings of a fully consumed segment and deletes its file
+	 * @param segment Number of the segment the front has moved past
+	 */
+	private void releaseSegment(long segment) {
+		if (readSegment == segment) {
+			readSegment = -1;
+			readBuffer = null;
+		}
+		if (writeSegment == segment) {
+			writeSegment = -1;
+			writeBuffer = null;
+		}
+		try {
+			Files.deleteIfExists(segmentPath(segment));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot delete consumed segment " + segment + " in " + directory, e);
+		}
+	}
+
+	/**
+	 * Detects whether the queue is empty
+	 * @return True if the queue is empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return head == tail;
+	}
+
+	/**
+	 * Returns the number of entries in this queue
+	 * @return Number of entries, or Integer.MAX_VALUE if there are more
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(tail - head, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Removes all entries from this queue and deletes the segment
+	 * files that no longer hold any
+	 */
+	@Override
+	public void clear() {
+		checkOpen();
+		long firstSegment = head / recordsPerSegment;
+		head = tail;
+		meta.putLong(HEAD_OFFSET, head);
+		for (long segment = firstSegment; segment < head / recordsPerSegment; segment++)
+			releaseSegment(segment);
+	}
+
+	/**
+	 * Returns an iterator that decodes the entries from front to back,
+	 * without removing them
+	 * @return Fail-fast iterator over this queue
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		checkOpen();
+		return new Iterator<T>() {
+			private final long expectedHead = head;
+			private final long expectedTail = tail;
+			private long sequence = head;
+
+			@Override
+			public boolean hasNext() {
+				return sequence < expectedTail;
+			}
+
+			@Override
+			public T next() {
+				checkOpen();
+				// Consumed segments may already be deleted, so any change is fatal
+				if (head != expectedHead || tail != expectedTail)
+					throw new ConcurrentModificationException();
+				if (sequence >= expectedTail)
+					throw new NoSuchElementException();
+				return codec.decode(record(sequence++, false));
+			}
+		};
+	}
+
+	/**
+	 * Forces the segments currently being read and written to the storage
+	 * device, then the metadata. Earlier segments were forced when the
+	 * producer left them, so every record the metadata counts is on the
+	 * device once this returns.
+	 */
+	public void sync() {
+		checkOpen();
+		if (writeBuffer != null)
+			writeBuffer.force();
+		if (readBuffer != null && readBuffer != writeBuffer)
+			readBuffer.force();
+		meta.force();
+	}
+
+	/**
+	 * Syncs the queue and releases its mappings. The queue cannot be used
+	 * afterwards; open the directory again to continue where it left off.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			sync();
+			closed = true;
+			readBuffer = writeBuffer = null;
+		}
+	}
+}
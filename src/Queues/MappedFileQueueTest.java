@@ -0,0 +1,140 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the memory-mapped persistent queue, including reopening
+ * a directory after a clean close and after the writer simply
+ * stopped without closing.
+ */
+public class MappedFileQueueTest {
+
+	/**
+	 * Stores each Long as eight big-endian bytes
+	 */
+	private static final FixedSizeCodec<Long> LONG_CODEC = new FixedSizeCodec<Long>() {
+		@Override
+		public int recordSize() {
+			return Long.BYTES;
+		}
+		@Override
+		public void encode(Long entry, ByteBuffer target) {
+			target.putLong(entry);
+		}
+		@Override
+		public Long decode(ByteBuffer source) {
+			return source.getLong();
+		}
+	};
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("mapped-queue");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testFifoAcrossSegments() throws IOException {
+		try (MappedFileQueue<Long> queue = new MappedFileQueue<>(directory, LONG_CODEC, 4)) {
+			assertTrue(queue.isEmpty());
+			for (long i = 0; i < 10; i++)
+				queue.enqueue(i * 100);
+			assertEquals(10, queue.size());
+			assertEquals(3, segmentFiles()); // records 0-3, 4-7 and 8-9
+
+			assertEquals(Long.valueOf(0), queue.getFront());
+			for (long i = 0; i < 9; i++)
+				assertEquals(Long.valueOf(i * 100), queue.dequeue());
+			assertEquals(1, segmentFiles()); // consumed segments are deleted
+			assertEquals(Long.valueOf(900), queue.dequeue());
+			assertTrue(queue.isEmpty());
+
+			boolean exception = false;
+			try {
+				queue.dequeue();
+			} catch(EmptyQueueException e) {
+				exception = true;
+			}
+			assertTrue(exception);
+		}
+	}
+
+	@Test
+	public void testReopenAfterClose() throws IOException {
+		try (MappedFileQueue<Long> queue = new MappedFileQueue<>(directory, LONG_CODEC, 4)) {
+			for (long i = 0; i < 10; i++)
+				queue.enqueue(i);
+			queue.dequeue();
+			queue.dequeue();
+			queue.dequeue();
+		}
+		try (MappedFileQueue<Long> queue = new MappedFileQueue<>(directory, LONG_CODEC, 4)) {
+			assertEquals(7, queue.size());
+			queue.enqueue(10L);
+			for (long i = 3; i <= 10; i++)
+				assertEquals(Long.valueOf(i), queue.dequeue());
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	@Test
+	public void testRecoverWithoutClose() throws IOException {
+		// The writer goes away without close or sync, as in a process crash
+		MappedFileQueue<Long> writer = new MappedFileQueue<>(directory, LONG_CODEC, 4);
+		for (long i = 0; i < 6; i++)
+			writer.enqueue(i);
+		writer.dequeue();
+		writer = null;
+
+		try (MappedFileQueue<Long> queue = new MappedFileQueue<>(directory, LONG_CODEC, 4)) {
+			assertEquals(5, queue.size());
+			for (long i = 1; i < 6; i++)
+				assertEquals(Long.valueOf(i), queue.dequeue());
+		}
+	}
+
+	@Test
+	public void testClear() throws IOException {
+		try (MappedFileQueue<Long> queue = new MappedFileQueue<>(directory, LONG_CODEC, 4)) {
+			for (long i = 0; i < 9; i++)
+				queue.enqueue(i);
+			queue.clear();
+			assertTrue(queue.isEmpty());
+			assertEquals(1, segmentFiles()); // only the partly written segment remains
+			queue.enqueue(42L);
+			assertEquals(Long.valueOf(42), queue.dequeue());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMismatchedLayoutRejected() throws IOException {
+		new MappedFileQueue<>(directory, LONG_CODEC, 4).close();
+		new MappedFileQueue<>(directory, LONG_CODEC, 8);
+	}
+
+	/**
+	 * Counts the segment files currently in the queue directory
+	 */
+	private long segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(p -> p.getFileName().toString().startsWith("segment-")).count();
+		}
+	}
+}
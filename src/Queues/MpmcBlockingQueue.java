@@ -0,0 +1,422 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Padding that keeps the enqueue counter off the cache line of
+ * whatever object header or field precedes it.
+ */
+abstract class MpmcBlockingQueuePad0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * Counter claimed by producers with compare-and-set.
+ */
+abstract class MpmcBlockingQueueEnqueueField extends MpmcBlockingQueuePad0 {
+	long enqueuePosition;
+}
+
+/**
+ * Padding between the producer and consumer counters.
+ */
+abstract class MpmcBlockingQueuePad1 extends MpmcBlockingQueueEnqueueField {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * Counter claimed by consumers with compare-and-set.
+ */
+abstract class MpmcBlockingQueueDequeueField extends MpmcBlockingQueuePad1 {
+	long dequeuePosition;
+}
+
+/**
+ * Padding that keeps the consumer counter off the cache line of
+ * the array references that follow it.
+ */
+abstract class MpmcBlockingQueuePad2 extends MpmcBlockingQueueDequeueField {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * A bounded queue that any number of producer and consumer threads can
+ * use at the same time without locks (Dmitry Vyukov's bounded MPMC design).
+ * Every slot of the power-of-two array carries a sequence number that says
+ * whose turn it is: a producer may fill slot i when its sequence equals the
+ * position the producer claimed, and a consumer may empty it when the
+ * sequence equals that position plus one. Producers and consumers claim
+ * positions with a single compare-and-set on their own padded counter, so
+ * threads on one side never contend with threads on the other side except
+ * when the queue is completely full or completely empty.
+ *
+ * The QueueInterface methods never block: enqueue throws if the queue is
+ * full and dequeue throws if it is empty. The blocking variants (put, take
+ * and the timed offer and poll) back off by spinning briefly, then yielding,
+ * then parking for exponentially longer periods, so idle threads sleep
+ * instead of burning a core. Null entries are not permitted because poll
+ * uses null to report an empty queue.
+ *
+ * Iterators are weakly consistent: they never throw
+ * ConcurrentModificationException, visit entries in queue order, and skip
+ * entries that consumers remove or producers have not finished adding
+ * while they run.
+ */
+public class MpmcBlockingQueue<T> extends MpmcBlockingQueuePad2
+				implements QueueInterface<T> {
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final int SPIN_TRIES = 64;
+	private static final int YIELD_TRIES = 16;
+	private static final long MIN_PARK_NANOS = 1_000L;
+	private static final long MAX_PARK_NANOS = 1_000_000L;
+	private static final VarHandle ENQUEUE;
+	private static final VarHandle DEQUEUE;
+	private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			ENQUEUE = lookup.findVarHandle(MpmcBlockingQueueEnqueueField.class, "enqueuePosition", long.class);
+			DEQUEUE = lookup.findVarHandle(MpmcBlockingQueueDequeueField.class, "dequeuePosition", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final T[] buffer;
+	private final long[] sequences;
+	private final int mask;
+
+	/**
+	 * Creates a queue holding at least the requested number of entries.
+	 * The capacity is rounded up to the next power of two, minimum two.
+	 * @param requestedCapacity Minimum number of entries the queue can hold
+	 */
+	@SuppressWarnings("unchecked")
+	public MpmcBlockingQueue(int requestedCapacity) {
+		if (requestedCapacity < 1 || requestedCapacity > MAXIMUM_CAPACITY)
+			throw new IllegalArgumentException("Capacity must be between 1 and " +
+											MAXIMUM_CAPACITY + ": " + requestedCapacity);
+		// A single slot cannot tell "filled this lap" from "free next lap"
+		int capacity = Math.max(2, Integer.highestOneBit(requestedCapacity));
+		if (capacity < requestedCapacity)
+			capacity <<= 1;
+		buffer = (T[]) new Object[capacity];
+		sequences = new long[capacity];
+		for (int i = 0; i < capacity; i++)
+			sequences[i] = i;
+		mask = capacity - 1;
+		VarHandle.releaseFence(); // publish the initial sequences to all threads
+	}
+
+	/**
+	 * Returns the number of entries the queue can hold
+	 * @return Power-of-two capacity
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Adds new entry to back of this queue if there is room, without waiting
+	 * @param newEntry An object to be added, not null
+	 * @return True if the entry was added, false if the queue is full
+	 */
+	public boolean offer(T newEntry) {
+		if (newEntry == null)
+			throw new NullPointerException("Null entries are not permitted");
+		long position = (long) ENQUEUE.getOpaque(this);
+		int index;
+		for (;;) {
+			index = (int) position & mask;
+			long difference = (long) SEQUENCE.getAcquire(sequences, index) - position;
+			if (difference == 0) {
+				if (ENQUEUE.weakCompareAndSet(this, position, position + 1))
+					break;
+			} else if (difference < 0) {
+				return false; // slot still holds an entry from the previous lap
+			}
+			position = (long) ENQUEUE.getVolatile(this);
+		}
+		buffer[index] = newEntry;
+		SEQUENCE.setRelease(sequences, index, position + 1);
+		return true;
+	}
+
+	/**
+	 * Adds new entry to back of this queue, waiting up to the given time
+	 * for space to become available
+	 * @param newEntry An object to be added, not null
+	 * @param timeout How long to wait before giving up
+	 * @param unit Unit of the timeout argument
+	 * @return True if the entry was added, false if the timeout elapsed first
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean offer(T newEntry, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 4);
+		for (int attempt = 0; !offer(newEntry); attempt++) {
+			if (!backOff(attempt, true, deadline))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds new entry to back of this queue, waiting as long as necessary
+	 * for space to become available
+	 * @param newEntry An object to be added, not null
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void put(T newEntry) throws InterruptedException {
+		for (int attempt = 0; !offer(newEntry); attempt++)
+			backOff(attempt, false, 0L);
+	}
+
+	/**
+	 * Adds new entry to back of this queue without waiting
+	 * @param newEntry An object to be added, not null
+	 * @throws IllegalStateException if the queue is full
+	 */
+	@Override
+	public void enqueue(T newEntry) {
+		if (!offer(newEntry))
+			throw new IllegalStateException("Queue is full");
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue, without waiting
+	 * @return The object at the front of the queue, or null if it is empty
+	 */
+	public T poll() {
+		long position = (long) DEQUEUE.getOpaque(this);
+		int index;
+		for (;;) {
+			index = (int) position & mask;
+			long difference = (long) SEQUENCE.getAcquire(sequences, index) - (position + 1);
+			if (difference == 0) {
+				if (DEQUEUE.weakCompareAndSet(this, position, position + 1))
+					break;
+			} else if (difference < 0) {
+				return null; // slot not yet filled on this lap
+			}
+			position = (long) DEQUEUE.getVolatile(this);
+		}
+		T front = buffer[index];
+		buffer[index] = null; // let the entry be collected
+		SEQUENCE.setRelease(sequences, index, position + buffer.length);
+		return front;
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue, waiting up
+	 * to the given time for one to become available
+	 * @param timeout How long to wait before giving up
+	 * @param unit Unit of the timeout argument
+	 * @return The object at the front of the queue, or null if the timeout elapsed first
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 4);
+		T front;
+		for (int attempt = 0; (front = poll()) == null; attempt++) {
+			if (!backOff(attempt, true, deadline))
+				return null;
+		}
+		return front;
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue, waiting as
+	 * long as necessary for one to become available
+	 * @return The object at the front of the queue
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public T take() throws InterruptedException {
+		T front;
+		for (int attempt = 0; (front = poll()) == null; attempt++)
+			backOff(attempt, false, 0L);
+		return front;
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue without waiting
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T dequeue() {
+		T front = poll();
+		if (front == null)
+			throw new EmptyQueueException();
+		return front;
+	}
+
+	/**
+	 * Returns entry at front of this queue without modifying it. With other
+	 * consumers active the entry may already have been removed on return.
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T getFront() {
+		for (;;) {
+			long position = (long) DEQUEUE.getVolatile(this);
+			int index = (int) position & mask;
+			long difference = (long) SEQUENCE.getAcquire(sequences, index) - (position + 1);
+			if (difference < 0)
+				throw new EmptyQueueException();
+			T front = buffer[index];
+			// Only trust the read if no consumer claimed the slot meanwhile
+			if (difference == 0 && front != null && (long) DEQUEUE.getVolatile(this) == position)
+				return front;
+		}
+	}
+
+	/**
+	 * Detects whether the queue is empty. With other threads active
+	 * the answer may already be stale on return.
+	 * @return True if the queue is empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return (long) DEQUEUE.getVolatile(this) >= (long) ENQUEUE.getVolatile(this);
+	}
+
+	/**
+	 * Returns the number of entries in this queue. With other threads
+	 * active the answer may already be stale on return.
+	 * @return Number of entries
+	 */
+	@Override
+	public int size() {
+		long dequeued = (long) DEQUEUE.getVolatile(this);
+		long enqueued = (long) ENQUEUE.getVolatile(this);
+		return (int) Math.max(0, Math.min(enqueued - dequeued, buffer.length));
+	}
+
+	/**
+	 * Removes up to max entries from the front of this queue without
+	 * waiting and stores them at the start of dst. Other consumers may
+	 * take entries in between, so the run need not be contiguous.
+	 * @param dst Array receiving the entries
+	 * @param max Maximum number of entries to remove
+	 * @return Number of entries removed
+	 * @throws IndexOutOfBoundsException if max is negative or exceeds dst.length
+	 */
+	@Override
+	public int drainTo(T[] dst, int max) {
+		Objects.checkFromIndexSize(0, max, dst.length);
+		int count = 0;
+		for (T front; count < max && (front = poll()) != null; count++)
+			dst[count] = front;
+		return count;
+	}
+
+	/**
+	 * Removes entries without waiting until the queue is seen empty
+	 * and adds them to the given collection
+	 * @param dst Collection receiving the entries
+	 * @return Number of entries removed
+	 */
+	@Override
+	public int drainTo(Collection<? super T> dst) {
+		int count = 0;
+		for (T front; (front = poll()) != null; count++)
+			dst.add(front);
+		return count;
+	}
+
+	/**
+	 * Removes all entries that are in the queue when the call starts.
+	 * Entries added concurrently may or may not be removed.
+	 */
+	@Override
+	public void clear() {
+		while (poll() != null)
+			;
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the entries from front to
+	 * back, without removing them
+	 * @return Iterator over entries present when it was created
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private long position = (long) DEQUEUE.getVolatile(MpmcBlockingQueue.this);
+			private final long end = (long) ENQUEUE.getVolatile(MpmcBlockingQueue.this);
+			private T nextEntry = advance();
+
+			/**
+			 * Reads the entry at the next position whose slot is filled and not
+			 * yet claimed by a consumer, or returns null when there is none before end
+			 */
+			@SuppressWarnings("unchecked")
+			private T advance() {
+				for (; position < end; position++) {
+					int index = (int) position & mask;
+					long filled = position + 1;
+					if ((long) SEQUENCE.getAcquire(sequences, index) != filled)
+						continue; // still being added, or already removed
+					T entry = (T) ENTRY.getAcquire(buffer, index);
+					// Only trust the read if no consumer emptied the slot meanwhile
+					if (entry != null && (long) SEQUENCE.getAcquire(sequences, index) == filled) {
+						position++;
+						return entry;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return nextEntry != null;
+			}
+
+			@Override
+			public T next() {
+				T entry = nextEntry;
+				if (entry == null)
+					throw new NoSuchElementException();
+				nextEntry = advance();
+				return entry;
+			}
+		};
+	}
+
+	/**
+	 * Waits a little before the caller retries an operation that found the
+	 * queue full or empty: spin first, then yield, then park for
+	 * exponentially growing periods capped at one millisecond.
+	 * @param attempt Number of failed attempts so far
+	 * @param timed True if the caller gives up at the deadline
+	 * @param deadline System.nanoTime value after which a timed caller gives up
+	 * @return False if the deadline has passed, true otherwise
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	private static boolean backOff(int attempt, boolean timed, long deadline) throws InterruptedException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+		long remaining = timed ? deadline - System.nanoTime() : MAX_PARK_NANOS;
+		if (remaining <= 0)
+			return false;
+		if (attempt < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			int doublings = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10);
+			long park = Math.min(MIN_PARK_NANOS << doublings, MAX_PARK_NANOS);
+			LockSupport.parkNanos(Math.min(park, remaining));
+		}
+		return true;
+	}
+}
@@ -0,0 +1,157 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the bounded multi-producer/multi-consumer queue: the plain
+ * FIFO contract, the timed and blocking operations, and several
+ * producers and consumers sharing one queue.
+ */
+public class MpmcBlockingQueueTest {
+
+	private MpmcBlockingQueue<String> q1;
+	private MpmcBlockingQueue<Integer> q2;
+
+	@Before
+	public void setUp() throws Exception {
+		q1 = new MpmcBlockingQueue<>(4);
+		q1.enqueue("First");
+		q1.enqueue("Second");
+		q1.enqueue("Third");
+		q2 = new MpmcBlockingQueue<>(1);
+	}
+
+	@Test
+	public void testFifoContract() {
+		assertEquals(4, q1.capacity());
+		assertEquals(2, q2.capacity());
+		assertEquals("First", q1.getFront());
+		assertEquals("First", q1.dequeue());
+		q1.enqueue("Fourth");
+		q1.enqueue("Fifth");
+		assertFalse(q1.offer("Sixth"));
+		assertEquals("Second", q1.dequeue());
+		assertEquals("Third", q1.dequeue());
+		assertEquals("Fourth", q1.dequeue());
+		assertEquals("Fifth", q1.getFront());
+		assertFalse(q1.isEmpty());
+		q1.clear();
+		assertTrue(q1.isEmpty());
+		assertNull(q1.poll());
+
+		boolean exception = false;
+		try {
+			q1.dequeue();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+
+		exception = false;
+		q2.enqueue(1);
+		q2.enqueue(2);
+		try {
+			q2.enqueue(3);
+		} catch(IllegalStateException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	@Test
+	public void testTimedOperations() throws InterruptedException {
+		// Empty queue: poll gives up after roughly the timeout
+		long start = System.nanoTime();
+		assertNull(q2.poll(20, TimeUnit.MILLISECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+		// Full queue: offer gives up after roughly the timeout
+		q2.put(1);
+		q2.put(2);
+		start = System.nanoTime();
+		assertFalse(q2.offer(3, 20, TimeUnit.MILLISECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(Integer.valueOf(1), q2.take());
+		assertTrue(q2.offer(3, 20, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testTakeWaitsForProducer() throws Exception {
+		Thread producer = new Thread(() -> {
+			try {
+				Thread.sleep(20);
+				q2.put(42);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		assertEquals(Integer.valueOf(42), q2.take());
+		producer.join();
+	}
+
+	@Test(expected = InterruptedException.class)
+	public void testTakeInterrupted() throws InterruptedException {
+		Thread.currentThread().interrupt();
+		q2.take();
+	}
+
+	@Test
+	public void testManyProducersManyConsumers() throws Exception {
+		final int producers = 4;
+		final int consumers = 4;
+		final int perProducer = 50_000;
+		final MpmcBlockingQueue<Integer> queue = new MpmcBlockingQueue<>(64);
+		final AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+		final boolean[] ordered = new boolean[consumers];
+
+		Thread[] threads = new Thread[producers + consumers];
+		for (int p = 0; p < producers; p++) {
+			final int base = p * perProducer;
+			threads[p] = new Thread(() -> {
+				try {
+					for (int i = 0; i < perProducer; i++)
+						queue.put(base + i);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		for (int c = 0; c < consumers; c++) {
+			final int id = c;
+			threads[producers + c] = new Thread(() -> {
+				// Entries from any one producer must reach a consumer in the order produced
+				int[] lastFromProducer = new int[producers];
+				Arrays.fill(lastFromProducer, -1);
+				boolean inOrder = true;
+				try {
+					for (int i = 0; i < perProducer * producers / consumers; i++) {
+						int value = queue.take();
+						seen.incrementAndGet(value);
+						int producer = value / perProducer;
+						inOrder &= value > lastFromProducer[producer];
+						lastFromProducer[producer] = value;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				ordered[id] = inOrder;
+			});
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+
+		for (int i = 0; i < seen.length(); i++)
+			assertEquals("entry " + i, 1, seen.get(i));
+		for (boolean inOrder : ordered)
+			assertTrue(inOrder);
+		assertTrue(queue.isEmpty());
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * A multi-level feedback queue. Processes arrive at the top level; a
+ * process that uses its whole time slice moves down a level, where slices
+ * are twice as long, so short interactive work stays near the top and long
+ * jobs sink to the bottom. The highest non-empty level always runs first
+ * and an arrival preempts a process from a lower level. Every boost period
+ * all waiting processes are moved back to the top so long jobs cannot
+ * starve.
+ *
+ * Each level is a SegmentedQueue. The level of a waiting process is the
+ * queue it is in, and the level of the running process is remembered by
+ * next, so no per-process state is kept.
+ */
+public class MultilevelFeedbackPolicy implements SchedulingPolicy {
+
+	private final SegmentedQueue<Scheduler.Process>[] levels;
+	private final int quantum;
+	private final int boostPeriod;
+	private long nextBoost;
+	private int runningLevel;
+	private int size;
+
+	/**
+	 * Creates a multi-level feedback queue
+	 * @param levelCount Number of levels, at least 1
+	 * @param quantum Time slice at the top level, doubling at each level below
+	 * @param boostPeriod Time between moving every process back to the top
+	 *                    level, or Integer.MAX_VALUE never to do so
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public MultilevelFeedbackPolicy(int levelCount, int quantum, int boostPeriod) {
+		if (levelCount < 1 || levelCount > 31)
+			throw new IllegalArgumentException("Number of levels must be between 1 and 31: " + levelCount);
+		if (quantum < 1)
+			throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+		if (boostPeriod < 1)
+			throw new IllegalArgumentException("Boost period must be positive: " + boostPeriod);
+		levels = new SegmentedQueue[levelCount];
+		for (int i = 0; i < levelCount; i++)
+			levels[i] = new SegmentedQueue<>();
+		this.quantum = quantum;
+		this.boostPeriod = boostPeriod;
+		nextBoost = boostPeriod;
+	}
+
+	@Override
+	public void arrive(Scheduler.Process process, int time) {
+		levels[0].enqueue(process);
+		size++;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Scheduler.Process next(int time) {
+		if (size == 0)
+			throw new EmptyQueueException();
+		if (time >= nextBoost) {
+			for (int i = 1; i < levels.length; i++)
+				while (!levels[i].isEmpty())
+					levels[0].enqueue(levels[i].dequeue());
+			nextBoost = time - time % boostPeriod + (long) boostPeriod;
+		}
+		int level = 0;
+		while (levels[level].isEmpty())
+			level++;
+		runningLevel = level;
+		size--;
+		return levels[level].dequeue();
+	}
+
+	@Override
+	public int timeSlice(Scheduler.Process process) {
+		return sliceAt(runningLevel);
+	}
+
+	/**
+	 * Returns the time slice at a level, capped so it cannot overflow
+	 */
+	private int sliceAt(int level) {
+		return (int) Math.min((long) quantum << level, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void preempted(Scheduler.Process process, int time, int ran) {
+		// Only a full slice counts against the process; one cut short by an arrival keeps its level
+		int level = runningLevel;
+		if (ran >= sliceAt(level) && level < levels.length - 1)
+			level++;
+		levels[level].enqueue(process);
+		size++;
+	}
+
+	@Override
+	public boolean preempts(Scheduler.Process running, int remaining, Scheduler.Process arriving) {
+		return runningLevel > 0;
+	}
+}
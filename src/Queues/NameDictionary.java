@@ -0,0 +1,161 @@
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive integer IDs to distinct names given as bytes. The
+ * names are stored back to back in one byte array with an array of
+ * offsets, and looked up through an open-addressing hash table of IDs, so
+ * a dictionary of a million names is a handful of arrays rather than a
+ * million String and Integer objects, and looking a name up allocates
+ * nothing. Names are never removed. Not thread-safe.
+ */
+public class NameDictionary {
+
+	private static final int INITIAL_CAPACITY = 64; // power of two
+	private static final Charset CHARSET = Charset.defaultCharset();
+
+	private byte[] names = new byte[INITIAL_CAPACITY * 16];
+	private int[] offsets = new int[INITIAL_CAPACITY + 1]; // offsets[id] to offsets[id + 1]
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private int[] table = new int[INITIAL_CAPACITY * 2];   // ID + 1 of each entry, 0 if empty
+	private int size;
+
+	/**
+	 * Returns the ID of a name, adding the name if it is new
+	 * @param bytes Array holding the name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @return ID of the name; it is new exactly when it equals size() before the call
+	 */
+	public int intern(byte[] bytes, int off, int len) {
+		int hash = hash(bytes, off, len);
+		int mask = table.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = table[slot] - 1;
+			if (id < 0) {
+				id = append(bytes, off, len, hash);
+				table[slot] = id + 1;
+				if (size * 2 > table.length)
+					rehash();
+				return id;
+			}
+			if (hashes[id] == hash && matches(id, bytes, off, len))
+				return id;
+		}
+	}
+
+	/**
+	 * Returns the ID of a name without adding it
+	 * @param bytes Array holding the name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @return ID of the name, or -1 if it is not in the dictionary
+	 */
+	public int find(byte[] bytes, int off, int len) {
+		int hash = hash(bytes, off, len);
+		int mask = table.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = table[slot] - 1;
+			if (id < 0)
+				return -1;
+			if (hashes[id] == hash && matches(id, bytes, off, len))
+				return id;
+		}
+	}
+
+	/**
+	 * Copies a name to the end of the array of names and gives it the next ID
+	 */
+	private int append(byte[] bytes, int off, int len, int hash) {
+		int id = size;
+		if (id == hashes.length) {
+			hashes = Arrays.copyOf(hashes, id * 2);
+			offsets = Arrays.copyOf(offsets, id * 2 + 1);
+		}
+		int end = offsets[id];
+		if (names.length - end < len)
+			names = Arrays.copyOf(names, Math.max(names.length * 2, end + len));
+		System.arraycopy(bytes, off, names, end, len);
+		offsets[id + 1] = end + len;
+		hashes[id] = hash;
+		size++;
+		return id;
+	}
+
+	/**
+	 * Doubles the hash table and puts every ID back in it
+	 */
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Compares a stored name with the given bytes
+	 */
+	private boolean matches(int id, byte[] bytes, int off, int len) {
+		int start = offsets[id];
+		return offsets[id + 1] - start == len && Arrays.equals(names, start, start + len, bytes, off, off + len);
+	}
+
+	/**
+	 * Hashes a name, spreading the bits so the low ones can index the table
+	 */
+	private static int hash(byte[] bytes, int off, int len) {
+		int h = 1;
+		for (int i = off; i < off + len; i++)
+			h = 31 * h + bytes[i];
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the number of names
+	 * @return Number of IDs handed out
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the array holding every name. It must not be modified, and it
+	 * is replaced by a larger one when names are added.
+	 * @return The names back to back, in ID order
+	 */
+	public byte[] names() {
+		return names;
+	}
+
+	/**
+	 * Returns where a name starts in names()
+	 * @param id ID of the name
+	 * @return Offset of its first byte
+	 */
+	public int offset(int id) {
+		return offsets[id];
+	}
+
+	/**
+	 * Returns the length of a name
+	 * @param id ID of the name
+	 * @return Number of bytes in it
+	 */
+	public int length(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	/**
+	 * Returns a name as a String
+	 * @param id ID of the name
+	 * @return Name decoded in the default charset
+	 */
+	public String name(int id) {
+		return new String(names, offsets[id], length(id), CHARSET);
+	}
+}
@@ -0,0 +1,47 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests assigning IDs to names in a NameDictionary.
+ */
+public class NameDictionaryTest {
+
+	private static byte[] bytes(String text) {
+		return HistoryWriter.bytes(text);
+	}
+
+	@Test
+	public void testIntern() {
+		NameDictionary dictionary = new NameDictionary();
+		byte[] browser = bytes("xxBrowserxx");
+		assertEquals(0, dictionary.intern(browser, 2, 7));
+		assertEquals(1, dictionary.intern(bytes("Email"), 0, 5));
+		assertEquals(0, dictionary.intern(bytes("Browser"), 0, 7));
+		assertEquals(2, dictionary.size());
+		assertEquals("Browser", dictionary.name(0));
+		assertEquals(7, dictionary.length(0));
+		assertEquals(7, dictionary.offset(1));
+		assertEquals(1, dictionary.find(bytes("Email"), 0, 5));
+		assertEquals(-1, dictionary.find(bytes("Emai"), 0, 4));
+		assertEquals(2, dictionary.size());
+		// The empty name is a name like any other
+		assertEquals(2, dictionary.intern(new byte[0], 0, 0));
+		assertEquals("", dictionary.name(2));
+	}
+
+	@Test
+	public void testGrows() {
+		NameDictionary dictionary = new NameDictionary();
+		for (int i = 0; i < 100000; i++) {
+			byte[] name = bytes("Process " + i);
+			assertEquals(i, dictionary.intern(name, 0, name.length));
+		}
+		for (int i = 0; i < 100000; i += 7) {
+			byte[] name = bytes("Process " + i);
+			assertEquals(i, dictionary.find(name, 0, name.length));
+			assertEquals("Process " + i, dictionary.name(i));
+		}
+		assertEquals(100000, dictionary.size());
+	}
+}
@@ -0,0 +1,59 @@
+import java.util.function.ToIntFunction;
+
+/**
+ * Preemptive priority scheduling: the ready process with the lowest
+ * priority number runs, for at most one timeout period at a time, and an
+ * arriving process with a lower number than the running one takes over the
+ * processor at once. Processes with the same priority take turns in round
+ * robin order. The input format has no priority column, so priorities come
+ * from a function of the process, such as a lookup by name.
+ */
+public class PriorityPolicy implements SchedulingPolicy {
+
+	private final DaryHeapPriorityQueue<Scheduler.Process> readyQueue;
+	private final ToIntFunction<Scheduler.Process> priority;
+	private final int timeout;
+
+	/**
+	 * Creates a priority policy
+	 * @param timeout How long a process can be on the processor before being kicked off
+	 * @param priority Priority of each process, lower numbers running first
+	 */
+	public PriorityPolicy(int timeout, ToIntFunction<Scheduler.Process> priority) {
+		if (timeout < 1)
+			throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+		this.timeout = timeout;
+		this.priority = priority;
+		readyQueue = new DaryHeapPriorityQueue<>(process -> priority.applyAsInt(process));
+	}
+
+	@Override
+	public void arrive(Scheduler.Process process, int time) {
+		readyQueue.enqueue(process);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return readyQueue.isEmpty();
+	}
+
+	@Override
+	public Scheduler.Process next(int time) {
+		return readyQueue.dequeue();
+	}
+
+	@Override
+	public int timeSlice(Scheduler.Process process) {
+		return timeout;
+	}
+
+	@Override
+	public void preempted(Scheduler.Process process, int time, int ran) {
+		readyQueue.enqueue(process);
+	}
+
+	@Override
+	public boolean preempts(Scheduler.Process running, int remaining, Scheduler.Process arriving) {
+		return priority.applyAsInt(arriving) < priority.applyAsInt(running);
+	}
+}
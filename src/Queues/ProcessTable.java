@@ -0,0 +1,269 @@
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The processes of a running simulation, stored as parallel int arrays
+ * indexed by a small process number instead of as one object per process.
+ * Names are interned in a NameDictionary, so a name shared by many
+ * processes is stored once and a process only keeps the name's ID. A
+ * process costs 20 bytes, plus an int in whatever queue holds its index,
+ * against well over a hundred for a Scheduler.Process with its String, its
+ * encoded name and its queue slot.
+ *
+ * The index of a process that has finished can be released and is then
+ * given to a later process, so a simulation that reads its input as it
+ * goes only needs room for the processes that have arrived and not
+ * finished. The same goes for names: each name ID counts the processes
+ * using it, and once more names are unused than the table has indices,
+ * the dictionary is rebuilt from the names still in use. That costs O(1)
+ * amortized per release, and a stream of distinct names never holds more
+ * than a bounded number of them. Adding a process allocates nothing once
+ * the arrays are large enough, apart from those rebuilds. Not thread-safe.
+ */
+public final class ProcessTable {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final Charset CHARSET = Charset.defaultCharset();
+
+	private static final int NO_NAME = -1;
+
+	private NameDictionary names = new NameDictionary();
+	private int[] references = new int[INITIAL_CAPACITY]; // processes using each name ID
+	private int unusedNames; // IDs in the dictionary that no process uses
+	private final IntCircularArrayQueue released = new IntCircularArrayQueue();
+	private int[] startTimes = new int[INITIAL_CAPACITY];
+	private int[] durations = new int[INITIAL_CAPACITY];
+	private int[] remaining = new int[INITIAL_CAPACITY];
+	private int[] firstRuns = new int[INITIAL_CAPACITY];
+	private int[] nameIds = new int[INITIAL_CAPACITY];
+	private byte[] nameBuffer = new byte[64];
+	private int capacityUsed; // indices handed out at least once
+	private int size;
+
+	/**
+	 * Adds the process a TraceSource has just read
+	 * @param source Source positioned on the process
+	 * @return Index of the new process
+	 * @throws IllegalArgumentException If its duration is not positive or its start time is negative
+	 */
+	public int add(TraceSource source) {
+		int startTime = source.startTime();
+		int duration = source.duration();
+		if (duration <= 0)
+			throw new IllegalArgumentException("Execution time must be positive: " + duration);
+		if (startTime < 0)
+			throw new IllegalArgumentException("Start times cannot be negative: " + startTime);
+		int length = source.nameLength();
+		if (nameBuffer.length < length)
+			nameBuffer = new byte[Math.max(nameBuffer.length * 2, length)];
+		source.copyName(nameBuffer, 0);
+
+		int process = nextIndex();
+		startTimes[process] = startTime;
+		durations[process] = duration;
+		remaining[process] = duration;
+		firstRuns[process] = -1;
+		nameIds[process] = internName(nameBuffer, 0, length);
+		size++;
+		return process;
+	}
+
+	/**
+	 * Adds a process that has already run for part of its duration, when a
+	 * saved simulation is restored
+	 * @param startTime Start time of the process
+	 * @param duration Duration of the process
+	 * @param remainingTime Time it still needs, from 1 to its duration
+	 * @param firstRun Time it was first put on a processor, or -1 if it has not run yet
+	 * @param name Array holding its name
+	 * @param off Index of the first byte of the name
+	 * @param len Number of bytes in the name
+	 * @return Index of the new process
+	 * @throws IllegalArgumentException If the remaining time is out of range
+	 */
+	int restore(int startTime, int duration, int remainingTime, int firstRun, byte[] name, int off, int len) {
+		if (remainingTime <= 0 || remainingTime > duration)
+			throw new IllegalArgumentException("Remaining time out of range: " + remainingTime + " of " + duration);
+		int process = nextIndex();
+		startTimes[process] = startTime;
+		durations[process] = duration;
+		remaining[process] = remainingTime;
+		firstRuns[process] = firstRun;
+		nameIds[process] = internName(name, off, len);
+		size++;
+		return process;
+	}
+
+	/**
+	 * Looks up or adds a name and counts one more process using it
+	 * @return ID of the name
+	 */
+	private int internName(byte[] bytes, int off, int len) {
+		int known = names.size();
+		int id = names.intern(bytes, off, len);
+		if (id == references.length)
+			references = Arrays.copyOf(references, id * 2);
+		if (references[id]++ == 0 && id < known)
+			unusedNames--;
+		return id;
+	}
+
+	/**
+	 * Replaces the dictionary with one holding only the names in use, and
+	 * gives the processes their new name IDs
+	 */
+	private void rebuildNames() {
+		NameDictionary old = names;
+		names = new NameDictionary();
+		Arrays.fill(references, 0);
+		for (int process = 0; process < capacityUsed; process++) {
+			int id = nameIds[process];
+			if (id != NO_NAME)
+				nameIds[process] = internName(old.names(), old.offset(id), old.length(id));
+		}
+		unusedNames = 0;
+	}
+
+	/**
+	 * Hands out a released index if there is one, or else a new one
+	 */
+	private int nextIndex() {
+		if (!released.isEmpty())
+			return released.dequeueInt();
+		int process = capacityUsed++;
+		if (process == startTimes.length)
+			grow();
+		return process;
+	}
+
+	/**
+	 * Doubles every array
+	 */
+	private void grow() {
+		int capacity = startTimes.length * 2;
+		startTimes = Arrays.copyOf(startTimes, capacity);
+		durations = Arrays.copyOf(durations, capacity);
+		remaining = Arrays.copyOf(remaining, capacity);
+		firstRuns = Arrays.copyOf(firstRuns, capacity);
+		nameIds = Arrays.copyOf(nameIds, capacity);
+	}
+
+	/**
+	 * Gives up the index of a process that is no longer needed, so that a
+	 * later process can have it. Its name stays in the dictionary until
+	 * enough names are unused to rebuild it.
+	 * @param process Index of the process
+	 */
+	public void release(int process) {
+		int id = nameIds[process];
+		nameIds[process] = NO_NAME;
+		released.enqueueInt(process);
+		size--;
+		if (--references[id] == 0 && ++unusedNames > Math.max(capacityUsed, INITIAL_CAPACITY))
+			rebuildNames();
+	}
+
+	/**
+	 * Runs a process starting at a given time, recording the time if it is
+	 * the first run and the outcome in the result, like Scheduler.Process does
+	 * @param process Index of the process
+	 * @param time Simulation time the run starts
+	 * @param processorTime Positive time to run it for, at most its remaining time
+	 * @param cpu Processor it runs on
+	 * @param result Metrics of the simulation
+	 */
+	public void run(int process, int time, int processorTime, int cpu, SimulationResult result) {
+		if (processorTime <= 0)
+			throw new IllegalArgumentException("Time spent on processor must be positive: " + processorTime);
+		if (processorTime > remaining[process])
+			throw new IllegalArgumentException("Cannot execute for more time than is remaining: " + processorTime + " > " + remaining[process]);
+		remaining[process] -= processorTime;
+		if (firstRuns[process] < 0)
+			firstRuns[process] = time;
+		result.ran(cpu, process, processorTime);
+		if (remaining[process] == 0) {
+			result.completed(startTimes[process], durations[process], firstRuns[process], time + processorTime);
+			result.vacated(cpu);
+		}
+	}
+
+	/**
+	 * Returns the number of processes added and not released
+	 * @return Number of processes held
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns when a process arrives
+	 * @param process Index of the process
+	 * @return Start time of the process
+	 */
+	public int startTime(int process) {
+		return startTimes[process];
+	}
+
+	/**
+	 * Returns how long a process needs on the processor in all
+	 * @param process Index of the process
+	 * @return Duration of the process
+	 */
+	public int duration(int process) {
+		return durations[process];
+	}
+
+	/**
+	 * Returns how long a process still needs on the processor
+	 * @param process Index of the process
+	 * @return Remaining execution time
+	 */
+	public int remaining(int process) {
+		return remaining[process];
+	}
+
+	/**
+	 * Returns when a process was first put on a processor
+	 * @param process Index of the process
+	 * @return Simulation time of its first run, or -1 if it has not run yet
+	 */
+	public int firstRun(int process) {
+		return firstRuns[process];
+	}
+
+	/**
+	 * Returns the array holding every name. It must not be modified, and it
+	 * is replaced when names are added or the dictionary is rebuilt.
+	 * @return The distinct names back to back
+	 */
+	public byte[] names() {
+		return names.names();
+	}
+
+	/**
+	 * Returns where the name of a process starts in names()
+	 * @param process Index of the process
+	 * @return Offset of the first byte of its name
+	 */
+	public int nameOffset(int process) {
+		return names.offset(nameIds[process]);
+	}
+
+	/**
+	 * Returns the length of the name of a process
+	 * @param process Index of the process
+	 * @return Number of bytes in its name
+	 */
+	public int nameLength(int process) {
+		return names.length(nameIds[process]);
+	}
+
+	/**
+	 * Returns the name of a process
+	 * @param process Index of the process
+	 * @return Name decoded in the default charset
+	 */
+	public String name(int process) {
+		return new String(names.names(), nameOffset(process), nameLength(process), CHARSET);
+	}
+}
@@ -0,0 +1,145 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests adding, running and releasing processes in a ProcessTable.
+ */
+public class ProcessTableTest {
+
+	private static TraceParser parser(String input) {
+		return new TraceParser(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	@Test
+	public void testAdd() throws IOException {
+		TraceParser parser = parser("0 100 Initialization\n10  25   Background   service\n");
+		ProcessTable table = new ProcessTable();
+		assertTrue(parser.next());
+		int first = table.add(parser);
+		assertTrue(parser.next());
+		int second = table.add(parser);
+		assertEquals(2, table.size());
+		assertEquals(0, table.startTime(first));
+		assertEquals(100, table.duration(first));
+		assertEquals(100, table.remaining(first));
+		assertEquals(-1, table.firstRun(first));
+		assertEquals("Initialization", table.name(first));
+		assertEquals(10, table.startTime(second));
+		assertEquals("Background service", table.name(second));
+		assertEquals(18, table.nameLength(second));
+		assertEquals("Background service",
+				new String(table.names(), table.nameOffset(second), table.nameLength(second), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testNamesInterned() throws IOException {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			input.append(i).append(" 5 ").append(i % 3 == 0 ? "Email" : "Browser").append('\n');
+		TraceParser parser = parser(input.toString());
+		ProcessTable table = new ProcessTable();
+		int[] processes = new int[10000];
+		for (int i = 0; parser.next(); i++)
+			processes[i] = table.add(parser);
+		assertEquals(10000, table.size());
+		assertEquals(table.nameOffset(processes[0]), table.nameOffset(processes[3]));
+		assertEquals(table.nameOffset(processes[1]), table.nameOffset(processes[9998]));
+		assertEquals("Browser", table.name(processes[9998]));
+		// Both names together, however many processes share them
+		assertEquals(12, table.nameOffset(processes[1]) + table.nameLength(processes[1]));
+	}
+
+	@Test
+	public void testDistinctNamesReleased() throws IOException {
+		// One process in flight at a time, each with a name of its own
+		ProcessTable table = new ProcessTable();
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 200000; i++)
+			input.append(i).append(" 5 Unique process ").append(i).append('\n');
+		TraceParser parser = parser(input.toString());
+		int kept = -1;
+		for (int i = 0; parser.next(); i++) {
+			int process = table.add(parser);
+			assertEquals("Unique process " + i, table.name(process));
+			if (i == 10)
+				kept = process; // stays in flight across every rebuild
+			else
+				table.release(process);
+		}
+		assertEquals(1, table.size());
+		assertEquals("Unique process 10", table.name(kept));
+		// The names of a few thousand processes at most, not of all of them
+		assertTrue(table.names().length < 1 << 17);
+	}
+
+	@Test
+	public void testReleaseReusesIndex() throws IOException {
+		TraceParser parser = parser("0 10 A\n0 20 B\n5 30 C\n");
+		ProcessTable table = new ProcessTable();
+		parser.next();
+		int a = table.add(parser);
+		parser.next();
+		int b = table.add(parser);
+		table.release(a);
+		assertEquals(1, table.size());
+		parser.next();
+		int c = table.add(parser);
+		assertEquals(a, c);
+		assertTrue(b != c);
+		assertEquals("C", table.name(c));
+		assertEquals(30, table.remaining(c));
+		assertEquals(-1, table.firstRun(c));
+	}
+
+	@Test
+	public void testRun() throws IOException {
+		TraceParser parser = parser("0 10 A\n0 20 B\n");
+		ProcessTable table = new ProcessTable();
+		parser.next();
+		int a = table.add(parser);
+		parser.next();
+		int b = table.add(parser);
+		SimulationResult result = new SimulationResult(1);
+		table.run(a, 0, 10, 0, result);
+		assertEquals(0, table.remaining(a));
+		table.release(a);
+		table.run(b, 10, 15, 0, result);
+		assertEquals(10, table.firstRun(b));
+		assertEquals(5, table.remaining(b));
+		table.run(b, 25, 5, 0, result);
+		table.release(b);
+		parser = parser("40 10 C\n");
+		parser.next();
+		int c = table.add(parser); // takes the index of A
+		assertEquals(a, c);
+		table.run(c, 40, 10, 0, result);
+		result.finish(50);
+		assertEquals(3, result.processes());
+		assertEquals(40, result.busyTime());
+		// A to B and B to C, although C has the index A had
+		assertEquals(2, result.contextSwitches());
+		assertEquals((10 + 30 + 10) / 3.0, result.turnaround().mean(), 1e-9);
+		assertEquals((0 + 10 + 0) / 3.0, result.response().mean(), 1e-9);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRunTooLong() throws IOException {
+		TraceParser parser = parser("0 10 A\n");
+		ProcessTable table = new ProcessTable();
+		parser.next();
+		table.run(table.add(parser), 0, 11, 0, new SimulationResult(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroDuration() throws IOException {
+		TraceParser parser = parser("0 0 A\n");
+		parser.next();
+		new ProcessTable().add(parser);
+	}
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * An input file parsed once into a compact, immutable form that any
+ * number of simulations can share, including simulations running in
+ * parallel. Start times and durations sit in two int arrays indexed by
+ * the process's line number, and all names are stored back to back in a
+ * single byte array, exactly as they appear in the input, with an array of
+ * offsets marking where each one starts. A process therefore costs 12 bytes
+ * plus its name, with no objects of its own.
+ */
+public final class ProcessTrace {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final Charset CHARSET = Charset.defaultCharset();
+
+	private final int[] startTimes;
+	private final int[] durations;
+	private final int[] nameOffsets; // one more than the number of processes
+	private final byte[] names;
+
+	private ProcessTrace(int[] startTimes, int[] durations, int[] nameOffsets, byte[] names) {
+		this.startTimes = startTimes;
+		this.durations = durations;
+		this.nameOffsets = nameOffsets;
+		this.names = names;
+	}
+
+	/**
+	 * Parses an input file in the Scheduler's format
+	 * @param inputFile Name of file containing correctly formatted input data
+	 * @return The processes of the file, in file order
+	 * @throws IOException If the file cannot be read
+	 * @throws IllegalArgumentException If a start time is negative, a duration is
+	 *                                  not positive or the start times decrease
+	 */
+	public static ProcessTrace load(String inputFile) throws IOException {
+		try (TraceParser parser = TraceParser.open(Paths.get(inputFile))) {
+			return read(parser);
+		}
+	}
+
+	/**
+	 * Parses every remaining line of a parser
+	 * @param parser Parser positioned at the first line to read
+	 * @return The processes read, in input order
+	 * @throws IOException If reading the input fails
+	 * @throws IllegalArgumentException If a start time is negative, a duration is
+	 *                                  not positive or the start times decrease
+	 */
+	public static ProcessTrace read(TraceParser parser) throws IOException {
+		int[] startTimes = new int[INITIAL_CAPACITY];
+		int[] durations = new int[INITIAL_CAPACITY];
+		int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+		byte[] names = new byte[INITIAL_CAPACITY * 16];
+		int count = 0;
+		int nameEnd = 0;
+		while (parser.next()) {
+			int startTime = parser.startTime();
+			int duration = parser.duration();
+			if (duration <= 0)
+				throw new IllegalArgumentException("Execution time must be positive: " + duration);
+			if (startTime < 0)
+				throw new IllegalArgumentException("Start times cannot be negative: " + startTime);
+			if (count > 0 && startTime < startTimes[count - 1])
+				throw new IllegalArgumentException("Start times must not decrease: " + startTime + " after " + startTimes[count - 1]);
+			if (count == startTimes.length) {
+				startTimes = Arrays.copyOf(startTimes, count * 2);
+				durations = Arrays.copyOf(durations, count * 2);
+				nameOffsets = Arrays.copyOf(nameOffsets, count * 2 + 1);
+			}
+			int length = parser.nameLength();
+			if (names.length - nameEnd < length)
+				names = Arrays.copyOf(names, Math.max(names.length * 2, nameEnd + length));
+			parser.copyName(names, nameEnd);
+			startTimes[count] = startTime;
+			durations[count] = duration;
+			nameOffsets[count] = nameEnd;
+			nameEnd += length;
+			count++;
+		}
+		nameOffsets[count] = nameEnd;
+		return new ProcessTrace(Arrays.copyOf(startTimes, count), Arrays.copyOf(durations, count),
+				Arrays.copyOf(nameOffsets, count + 1), Arrays.copyOf(names, nameEnd));
+	}
+
+	/**
+	 * Returns the number of processes
+	 * @return Number of lines in the input
+	 */
+	public int size() {
+		return startTimes.length;
+	}
+
+	/**
+	 * Returns when a process arrives
+	 * @param process Index of the process, its line number counting from 0
+	 * @return Start time of the process
+	 */
+	public int startTime(int process) {
+		return startTimes[process];
+	}
+
+	/**
+	 * Returns how long a process needs on the processor
+	 * @param process Index of the process
+	 * @return Duration of the process
+	 */
+	public int duration(int process) {
+		return durations[process];
+	}
+
+	/**
+	 * Returns the array holding every name. It must not be modified.
+	 * @return The names back to back, as they appear in the input
+	 */
+	byte[] names() {
+		return names;
+	}
+
+	/**
+	 * Returns where the name of a process starts in names()
+	 * @param process Index of the process
+	 * @return Offset of the first byte of its name
+	 */
+	int nameOffset(int process) {
+		return nameOffsets[process];
+	}
+
+	/**
+	 * Returns the length of the name of a process in names()
+	 * @param process Index of the process
+	 * @return Number of bytes in its name
+	 */
+	int nameLength(int process) {
+		return nameOffsets[process + 1] - nameOffsets[process];
+	}
+
+	/**
+	 * Returns the name of a process
+	 * @param process Index of the process
+	 * @return Name decoded in the default charset
+	 */
+	public String name(int process) {
+		return new String(names, nameOffsets[process], nameLength(process), CHARSET);
+	}
+
+	/**
+	 * Returns a TraceSource that reads the processes in input order. Each call
+	 * gives a cursor of its own, so simulations can read the trace at once.
+	 * @return Source positioned before the first process
+	 */
+	public TraceSource source() {
+		return new Cursor();
+	}
+
+	/**
+	 * A position in the trace, read as a TraceSource
+	 */
+	private final class Cursor implements TraceSource {
+		private int process = -1;
+
+		@Override
+		public boolean next() {
+			if (process + 1 >= size())
+				return false;
+			process++;
+			return true;
+		}
+
+		@Override
+		public int startTime() {
+			return startTimes[process];
+		}
+
+		@Override
+		public int duration() {
+			return durations[process];
+		}
+
+		@Override
+		public String name() {
+			return ProcessTrace.this.name(process);
+		}
+
+		@Override
+		public int nameLength() {
+			return ProcessTrace.this.nameLength(process);
+		}
+
+		@Override
+		public void copyName(byte[] dst, int off) {
+			System.arraycopy(names, nameOffsets[process], dst, off, nameLength());
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,99 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests parsing an input file into a ProcessTrace.
+ */
+public class ProcessTraceTest {
+
+	public static final String INPUT_NAME = "InputTrace.txt";
+
+	@After
+	public void tearDown() {
+		new File(INPUT_NAME).delete();
+	}
+
+	private static void write(String... lines) throws IOException {
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		for (String line : lines)
+			ps.println(line);
+		ps.close();
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		write("0      100  Initialization", "0 200   Background    service", "600 10 X");
+		ProcessTrace trace = ProcessTrace.load(INPUT_NAME);
+		assertEquals(3, trace.size());
+		assertEquals(0, trace.startTime(1));
+		assertEquals(200, trace.duration(1));
+		assertEquals("Background service", trace.name(1));
+		assertEquals(600, trace.startTime(2));
+		assertEquals("X", trace.name(2));
+		assertEquals(18, trace.nameLength(1));
+		assertEquals(trace.nameOffset(1) + 18, trace.nameOffset(2));
+		assertEquals(100, trace.duration(0));
+	}
+
+	@Test
+	public void testGrows() throws IOException {
+		String[] lines = new String[5000];
+		for (int i = 0; i < lines.length; i++)
+			lines[i] = i + " " + (i + 1) + " Process number " + i;
+		write(lines);
+		ProcessTrace trace = ProcessTrace.load(INPUT_NAME);
+		assertEquals(lines.length, trace.size());
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals(i, trace.startTime(i));
+			assertEquals(i + 1, trace.duration(i));
+			assertEquals("Process number " + i, trace.name(i));
+		}
+	}
+
+	@Test
+	public void testSource() throws IOException {
+		write("0 100 Initialization", "0 200   Background    service", "600 10 X");
+		ProcessTrace trace = ProcessTrace.load(INPUT_NAME);
+		TraceSource first = trace.source();
+		TraceSource second = trace.source();
+		assertTrue(first.next());
+		assertTrue(first.next());
+		// Cursors move independently
+		assertTrue(second.next());
+		assertEquals("Initialization", second.name());
+		assertEquals(0, first.startTime());
+		assertEquals(200, first.duration());
+		assertEquals("Background service", first.name());
+		byte[] name = new byte[first.nameLength() + 1];
+		first.copyName(name, 1);
+		assertEquals("Background service", new String(name, 1, first.nameLength()));
+		assertTrue(first.next());
+		assertEquals(600, first.startTime());
+		assertFalse(first.next());
+		assertFalse(first.next());
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		write();
+		assertEquals(0, ProcessTrace.load(INPUT_NAME).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecreasingStartTimes() throws IOException {
+		write("100 10 Late", "50 10 Early");
+		ProcessTrace.load(INPUT_NAME);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroDuration() throws IOException {
+		write("0 0 Nothing");
+		ProcessTrace.load(INPUT_NAME);
+	}
+}
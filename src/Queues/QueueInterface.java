@@ -1,8 +1,14 @@
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * General queue interface.
+ * General queue interface. Iterating over a queue visits its entries
+ * without removing them.
  * @param <T> type of element in queue
  */
-public interface QueueInterface<T> {
+public interface QueueInterface<T> extends Iterable<T> {
 	/**
 	 * Adds new entry to back of this queue
 	 * @param newEntry An object to be added
@@ -29,4 +35,58 @@ public interface QueueInterface<T> {
 	 * Removes all entries from this queue
 	 */
 	public void clear();
+	/**
+	 * Returns the number of entries in this queue
+	 * @return Number of entries
+	 */
+	public int size();
+	/**
+	 * Adds a run of entries to back of this queue, in array order
+	 * @param src Array holding the new entries
+	 * @param off Index in src of the first entry to add
+	 * @param len Number of entries to add
+	 * @throws IndexOutOfBoundsException if the run does not fit in src
+	 */
+	public default void enqueueAll(T[] src, int off, int len) {
+		Objects.checkFromIndexSize(off, len, src.length);
+		for (int i = off; i < off + len; i++)
+			enqueue(src[i]);
+	}
+	/**
+	 * Removes up to max entries from the front of this queue and stores
+	 * them, in queue order, at the start of dst
+	 * @param dst Array receiving the entries
+	 * @param max Maximum number of entries to remove
+	 * @return Number of entries removed
+	 * @throws IndexOutOfBoundsException if max is negative or exceeds dst.length
+	 */
+	public default int drainTo(T[] dst, int max) {
+		Objects.checkFromIndexSize(0, max, dst.length);
+		int count = 0;
+		while (count < max && !isEmpty())
+			dst[count++] = dequeue();
+		return count;
+	}
+	/**
+	 * Removes all entries from this queue and adds them, in queue
+	 * order, to the given collection
+	 * @param dst Collection receiving the entries
+	 * @return Number of entries removed
+	 */
+	public default int drainTo(Collection<? super T> dst) {
+		int count = 0;
+		while (!isEmpty()) {
+			dst.add(dequeue());
+			count++;
+		}
+		return count;
+	}
+	/**
+	 * Returns a sequential stream over the entries of this queue,
+	 * without removing them
+	 * @return Stream of the entries, in the order the queue iterates them
+	 */
+	public default Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
 }
@@ -0,0 +1,13 @@
+/**
+ * Receives a callback each time a growable queue replaces its array
+ * with a larger one.
+ */
+public interface ResizeListener {
+	/**
+	 * Called after the queue has copied its entries into the new array
+	 * @param oldCapacity Number of entries the old array could hold
+	 * @param newCapacity Number of entries the new array can hold
+	 * @param entriesCopied Number of entries copied from the old array
+	 */
+	public void resized(int oldCapacity, int newCapacity, int entriesCopied);
+}
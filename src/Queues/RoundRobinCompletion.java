@@ -0,0 +1,254 @@
+import java.util.SplittableRandom;
+
+/**
+ * Computes when each process of a trace finishes under the Scheduler's
+ * round robin simulation without stepping through its time slices, for
+ * traces where only completion times matter. The simulation takes time
+ * proportional to the total work divided by the timeout; this takes
+ * O(n log n) for n processes, whatever the durations and the timeout.
+ *
+ * Between two events (a process finishing or a process arriving) the ready
+ * queue just rotates, every process using a full timeout per turn. So the
+ * queue is kept as an implicit treap in queue order, with each process's
+ * remaining time and the minimum of every subtree. The process with the
+ * least remaining time, counted in whole timeouts, finishes first, with
+ * ties going to the one nearest the front; that gives the number of full
+ * turns before the next completion, which is compared with the number of
+ * turns before the next arrival. The turns up to the earlier event are
+ * applied at once: every process loses the timeout once per complete round
+ * and the front of the queue once more, then moves to the back, with a
+ * split, two lazy additions and a merge.
+ *
+ * Arrivals join the queue exactly as in Scheduler.simulateProcessor: after
+ * a time slice, the processes that arrived strictly before it ended are
+ * queued ahead of the process that was just preempted, and a process that
+ * arrives just as a slice ends waits for the next one. The results are the
+ * same as the simulation's for every trace.
+ */
+public final class RoundRobinCompletion {
+
+	private static final int NONE = -1;
+
+	private final ProcessTrace trace;
+	private final long timeout;
+	// Treap nodes are process indices
+	private final int[] left;
+	private final int[] right;
+	private final int[] priority;
+	private final int[] size;
+	private final long[] remaining;
+	private final long[] minimum; // least remaining time in the subtree
+	private final long[] pending; // added to the subtree below the node but not applied yet
+	private int root = NONE;
+	private int splitLeft;
+	private int splitRight;
+
+	private RoundRobinCompletion(ProcessTrace trace, int timeout) {
+		this.trace = trace;
+		this.timeout = timeout;
+		int count = trace.size();
+		left = new int[count];
+		right = new int[count];
+		priority = new int[count];
+		size = new int[count];
+		remaining = new long[count];
+		minimum = new long[count];
+		pending = new long[count];
+		SplittableRandom random = new SplittableRandom(count);
+		for (int i = 0; i < count; i++)
+			priority[i] = random.nextInt();
+	}
+
+	/**
+	 * Computes the completion time of every process under round robin
+	 * @param trace Processes to schedule
+	 * @param timeout How long a process can be on the processor before being kicked off
+	 * @return Time each process finishes, indexed like the trace
+	 */
+	public static long[] completionTimes(ProcessTrace trace, int timeout) {
+		if (timeout < 1)
+			throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+		return new RoundRobinCompletion(trace, timeout).run();
+	}
+
+	/**
+	 * Moves from event to event until every process has finished
+	 */
+	private long[] run() {
+		int count = trace.size();
+		long[] completion = new long[count];
+		int next = 0; // first process that has not arrived
+		long time = 0;
+		while (next < count || root != NONE) {
+			if (root == NONE) {
+				int start = trace.startTime(next);
+				time = Math.max(time, start);
+				while (next < count && trace.startTime(next) == start)
+					append(next++);
+				continue;
+			}
+			int queued = size[root];
+			long rounds = (minimum[root] + timeout - 1) / timeout;
+			long completingTurn = (rounds - 1) * queued + firstAtMost(rounds * timeout) + 1;
+			long arrivingTurn = Long.MAX_VALUE; // turn after which the next process is queued
+			if (next < count)
+				arrivingTurn = Math.max(0, trace.startTime(next) - time) / timeout + 1;
+
+			if (completingTurn <= arrivingTurn) {
+				time += rotate(completingTurn - 1);
+				split(root, 1);
+				int process = splitLeft;
+				root = splitRight;
+				time += remaining[process];
+				completion[process] = time;
+				while (next < count && trace.startTime(next) < time)
+					append(next++);
+			} else {
+				time += rotate(arrivingTurn);
+				split(root, queued - 1);
+				int preempted = splitRight;
+				root = splitLeft;
+				while (next < count && trace.startTime(next) < time)
+					append(next++);
+				root = merge(root, preempted);
+			}
+		}
+		return completion;
+	}
+
+	/**
+	 * Gives the queue a number of full turns: each process loses the timeout
+	 * once per complete round and the ones at the front once more, and those
+	 * move to the back
+	 * @return Time the turns took
+	 */
+	private long rotate(long turns) {
+		int queued = size[root];
+		add(root, -(turns / queued) * timeout);
+		split(root, (int) (turns % queued));
+		int front = splitLeft;
+		add(front, -timeout);
+		root = merge(splitRight, front);
+		return turns * timeout;
+	}
+
+	/**
+	 * Puts a process that has just arrived at the back of the queue
+	 */
+	private void append(int process) {
+		left[process] = NONE;
+		right[process] = NONE;
+		size[process] = 1;
+		remaining[process] = trace.duration(process);
+		minimum[process] = remaining[process];
+		pending[process] = 0;
+		root = merge(root, process);
+	}
+
+	/**
+	 * Finds the first process in the queue with at most the given remaining time
+	 * @return Its position, counting from 0 at the front
+	 */
+	private int firstAtMost(long threshold) {
+		int position = 0;
+		int node = root;
+		for (;;) {
+			push(node);
+			int before = left[node];
+			if (before != NONE && minimum[before] <= threshold) {
+				node = before;
+			} else {
+				int skipped = before == NONE ? 0 : size[before];
+				if (remaining[node] <= threshold)
+					return position + skipped;
+				position += skipped + 1;
+				node = right[node];
+			}
+		}
+	}
+
+	/**
+	 * Splits a treap after its first count processes, leaving the parts in
+	 * splitLeft and splitRight
+	 */
+	private void split(int node, int count) {
+		if (node == NONE) {
+			splitLeft = NONE;
+			splitRight = NONE;
+			return;
+		}
+		push(node);
+		int leftSize = left[node] == NONE ? 0 : size[left[node]];
+		if (count <= leftSize) {
+			split(left[node], count);
+			left[node] = splitRight;
+			splitRight = node;
+		} else {
+			split(right[node], count - leftSize - 1);
+			right[node] = splitLeft;
+			splitLeft = node;
+		}
+		update(node);
+	}
+
+	/**
+	 * Joins two treaps, all of the first before all of the second
+	 * @return Root of the joined treap
+	 */
+	private int merge(int first, int second) {
+		if (first == NONE)
+			return second;
+		if (second == NONE)
+			return first;
+		if (priority[first] > priority[second]) {
+			push(first);
+			right[first] = merge(right[first], second);
+			update(first);
+			return first;
+		}
+		push(second);
+		left[second] = merge(first, left[second]);
+		update(second);
+		return second;
+	}
+
+	/**
+	 * Adds an amount to the remaining time of every process in a subtree
+	 */
+	private void add(int node, long amount) {
+		if (node == NONE)
+			return;
+		remaining[node] += amount;
+		minimum[node] += amount;
+		pending[node] += amount;
+	}
+
+	/**
+	 * Passes a node's pending addition on to its children
+	 */
+	private void push(int node) {
+		if (pending[node] != 0) {
+			add(left[node], pending[node]);
+			add(right[node], pending[node]);
+			pending[node] = 0;
+		}
+	}
+
+	/**
+	 * Recomputes a node's size and minimum from its children
+	 */
+	private void update(int node) {
+		int nodeSize = 1;
+		long least = remaining[node];
+		if (left[node] != NONE) {
+			nodeSize += size[left[node]];
+			least = Math.min(least, minimum[left[node]]);
+		}
+		if (right[node] != NONE) {
+			nodeSize += size[right[node]];
+			least = Math.min(least, minimum[right[node]]);
+		}
+		size[node] = nodeSize;
+		minimum[node] = least;
+	}
+}
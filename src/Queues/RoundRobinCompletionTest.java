@@ -0,0 +1,141 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Tests the completion times computed without simulation against the
+ * Scheduler, on the Scheduler's examples and on random traces.
+ */
+public class RoundRobinCompletionTest {
+
+	public static final String INPUT_NAME = "InputCompletion.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputCompletion.txt";
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		new File(INPUT_NAME).delete();
+		new File(OUTPUT_NAME).delete();
+	}
+
+	@Test
+	public void testExample() throws IOException {
+		write("0 100 Initialization", "0 200 Background service", "10 150 Compiler", "600 300 Virus scan",
+				"600 10 Quick process", "610 150 Browser", "1630 400 Movie clip", "1890 350 Email", "2100 100 Data processing");
+		long[] completion = RoundRobinCompletion.completionTimes(ProcessTrace.load(INPUT_NAME), 100);
+		assertArrayEquals(new long[] {100, 400, 450, 1060, 710, 960, 2130, 2480, 2330}, completion);
+		checkAgainstScheduler(100);
+	}
+
+	@Test
+	public void testSchedulerExamples() throws IOException {
+		write("0 10 Initialization", "0 10 Browser", "0 101 iTunes", "300 210 Safari", "500 40 Email");
+		checkAgainstScheduler(100);
+		checkAgainstScheduler(1);
+		write("75 75 Initialization", "75 76 Data processing", "75 77 Email", "75 78 Virus scan", "75 79 Compiler");
+		checkAgainstScheduler(50);
+		checkAgainstScheduler(100);
+		write("0 100 Initialization", "251 251 Email", "252 502 Virus scan", "500 78 Spotify", "1000 300 Chrome");
+		checkAgainstScheduler(250);
+		write("0 100 Initialization", "10 200 Background service", "20 150 iTunes", "30 300 Virus scan", "40 10 Email",
+				"50 150 Browser 2", "60 400 Movie clip", "70 350 Sound clip", "80 100 Chrome", "90 150 Browser",
+				"100 400 Movie clip 2", "500 350 Email 2", "5000 100 Data processing");
+		checkAgainstScheduler(150);
+		checkAgainstScheduler(7);
+		write("0 1000000 Long job", "250 10 Short job");
+		checkAgainstScheduler(100);
+	}
+
+	@Test
+	public void testRandomTraces() throws IOException {
+		Random random = new Random(20);
+		for (int trial = 0; trial < 40; trial++) {
+			int count = 1 + random.nextInt(300);
+			int gap = 1 + random.nextInt(400);
+			int longest = 1 + random.nextInt(trial % 2 == 0 ? 50 : 3000);
+			String[] lines = new String[count];
+			int start = random.nextInt(100);
+			for (int i = 0; i < count; i++) {
+				start += random.nextInt(3) == 0 ? random.nextInt(gap) : 0;
+				lines[i] = start + " " + (1 + random.nextInt(longest)) + " Process " + i;
+			}
+			write(lines);
+			checkAgainstScheduler(1 + random.nextInt(120));
+		}
+	}
+
+	@Test
+	public void testLargeTrace() throws IOException {
+		// Ten thousand processes sharing the processor for about a billion time units
+		Random random = new Random(21);
+		String[] lines = new String[10000];
+		for (int i = 0; i < lines.length; i++)
+			lines[i] = (i / 100) * 1000 + " " + (1 + random.nextInt(200000)) + " Process " + i;
+		write(lines);
+		ProcessTrace trace = ProcessTrace.load(INPUT_NAME);
+		long[] completion = RoundRobinCompletion.completionTimes(trace, 1);
+		long total = 0;
+		long last = 0;
+		for (int i = 0; i < trace.size(); i++) {
+			total += trace.duration(i);
+			last = Math.max(last, completion[i]);
+			assertTrue(completion[i] >= trace.startTime(i) + trace.duration(i));
+		}
+		assertEquals(total, last); // the processor is never idle
+		assertEquals(completion.length, distinct(completion)); // one process finishes at a time
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroTimeout() throws IOException {
+		write("0 10 Process");
+		RoundRobinCompletion.completionTimes(ProcessTrace.load(INPUT_NAME), 0);
+	}
+
+	private static void write(String... lines) throws IOException {
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		for (String line : lines)
+			ps.println(line);
+		ps.close();
+	}
+
+	private static int distinct(long[] values) {
+		return (int) Arrays.stream(values).distinct().count();
+	}
+
+	/**
+	 * Compares the completion times of the input file with the end of the last
+	 * time slice of each process in the Scheduler's history. Names must be unique.
+	 */
+	private static void checkAgainstScheduler(int timeout) throws IOException {
+		ProcessTrace trace = ProcessTrace.load(INPUT_NAME);
+		long[] completion = RoundRobinCompletion.completionTimes(trace, timeout);
+		SimulationResult result = Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, timeout);
+		Map<String, Long> lastEnd = new HashMap<>();
+		for (String line : Files.readAllLines(Paths.get(OUTPUT_NAME))) {
+			if (!line.startsWith("At time "))
+				continue;
+			int colon = line.indexOf(':');
+			int open = line.indexOf('"');
+			int close = line.lastIndexOf('"');
+			long start = Long.parseLong(line.substring(8, colon));
+			long duration = Long.parseLong(line.substring(close + 6, line.indexOf(' ', close + 6)));
+			lastEnd.put(line.substring(open + 1, close), start + duration);
+		}
+		long makespan = 0;
+		for (int i = 0; i < trace.size(); i++) {
+			assertEquals("timeout " + timeout + ", " + trace.name(i), (long) lastEnd.get(trace.name(i)), completion[i]);
+			makespan = Math.max(makespan, completion[i]);
+		}
+		assertEquals(result.makespan(), makespan);
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * Round robin: processes take turns in arrival order, each running for at
+ * most one timeout period before going to the back of the ready queue.
+ * This is the policy of Scheduler's original simulation and gives the same
+ * history.
+ */
+public class RoundRobinPolicy implements SchedulingPolicy {
+
+	private final SegmentedQueue<Scheduler.Process> readyQueue = new SegmentedQueue<>();
+	private final int timeout;
+
+	/**
+	 * Creates a round robin policy
+	 * @param timeout How long a process can be on the processor before being kicked off
+	 */
+	public RoundRobinPolicy(int timeout) {
+		if (timeout < 1)
+			throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void arrive(Scheduler.Process process, int time) {
+		readyQueue.enqueue(process);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return readyQueue.isEmpty();
+	}
+
+	@Override
+	public Scheduler.Process next(int time) {
+		return readyQueue.dequeue();
+	}
+
+	@Override
+	public int timeSlice(Scheduler.Process process) {
+		return timeout;
+	}
+
+	@Override
+	public void preempted(Scheduler.Process process, int time, int ran) {
+		readyQueue.enqueue(process);
+	}
+}
@@ -1,29 +1,48 @@
-import java.io.File;
+import java.io.Closeable;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Scanner;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
  
 /**
 * This program simulates a simple process scheduler
-* for a system with a single processor. Each process
+* for a system with a single processor, or with several
+* processors sharing one ready queue. Each process
 * has a start time and a pre-specified duration. The
 * simulateProcessor method reads this data from an
 * input file, and then writes an output file indicating
 * when and for how long each process is using the
 * processor.
 */
-public class OtherScheduler {
+public class Scheduler {
+ 
+        private static final int STREAM_BUFFER_SIZE = 1 << 16;
  
         /**
         * This internal class represents a single process. A name
         * is used to identify the process, and a start time and duration
         * are also stored. The simulation time starts at 0 and advances
-        * upward from there.
+        * upward from there. It is public so that a SchedulingPolicy can
+        * look at the processes it chooses between.
         */
-        private static class Process {
+        public static class Process {
                private String name;
+               private byte[] nameBytes;
                private int timeToCompletion;
                private int startTime;
+               private int executionTime;
+               private int firstRunTime = -1;
  
                /**
                * Creates new process with specified
@@ -41,8 +60,10 @@ public class OtherScheduler {
                                throw new IllegalArgumentException("Start times cannot be negative: " + startTime);
                        
                        this.name = name;
+                       this.nameBytes = HistoryWriter.bytes(name);
                        this.timeToCompletion = executionTime;
                        this.startTime = startTime;
+                       this.executionTime = executionTime;
                }
  
                /**
@@ -62,6 +83,30 @@ public class OtherScheduler {
                        return name;
                }
  
+               /**
+               * Get name identifying the process, encoded once for the output file
+               * @return Bytes of the name in the default charset
+               */
+               public byte[] getNameBytes(){
+                       return nameBytes;
+               }
+ 
+               /**
+               * Total number of time units the process needs on the processor
+               * @return Execution time given when the process was created
+               */
+               public int getExecutionTime(){
+                       return executionTime;
+               }
+ 
+               /**
+               * When the process was first put on a processor
+               * @return Simulation time of its first run, or -1 if it has not run yet
+               */
+               public int getFirstRunTime(){
+                       return firstRunTime;
+               }
+ 
                /**
                * Returns remaining number of time units that the
                * process must spend on the processor in order to complete.
@@ -80,7 +125,7 @@ public class OtherScheduler {
                 * @param processorTime Time to run process for. Must be positive and
                *                      less than or equal to timeToCompletion.
                */
-               public void executeForTime(int processorTime) {
+               private void executeForTime(int processorTime) {
                        if(processorTime <= 0)  
                                throw new IllegalArgumentException("Time spent on processor must be positive: " + processorTime);
                        else if(processorTime > timeToCompletion)  
@@ -88,10 +133,43 @@ public class OtherScheduler {
                        
                        timeToCompletion -= processorTime;
                }
+ 
+               /**
+               * Executes the process starting at a given time, recording the
+               * time if it is the first run and the outcome in the result.
+               *
+               * @param time Simulation time the run starts
+               * @param processorTime Time to run process for (see executeForTime)
+               * @param cpu Processor it runs on
+               * @param result Metrics of the simulation
+               */
+               private void run(int time, int processorTime, int cpu, SimulationResult result) {
+                       executeForTime(processorTime);
+                       if (firstRunTime < 0)
+                               firstRunTime = time;
+                       result.ran(cpu, this, processorTime);
+                       if (timeToCompletion == 0)
+                               result.completed(startTime, executionTime, firstRunTime, time + processorTime);
+               }
         }
  
         /**
-        * Creates a Scanner for a specified input file name and an output stream for
+        * Runs the processor simulation without echoing anything to the console.
+        * See simulateProcessor(String, String, int, PrintStream).
+        *
+        * @param inputFile Name of file containing correctly formatted input data (see below)
+        * @param outputFile Name of file that will contain output data
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @return Metrics of the simulation
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateProcessor(String inputFile, String outputFile, int timeout) throws FileNotFoundException {
+               return simulateProcessor(inputFile, outputFile, timeout, null);
+        }
+ 
+        /**
+        * Creates a TraceParser for a specified input file name and a HistoryWriter for
         * a specified output file name, and runs the processor simulation with a
         * given timeout period using the two files. All resources are closed
         * at the completion of the method.
@@ -99,20 +177,465 @@ public class OtherScheduler {
         * @param inputFile Name of file containing correctly formatted input data (see below)
         * @param outputFile Name of file that will contain output data
         * @param timeout How long a process can be on the processor before being kicked off
+        * @param console Stream that idle periods are also printed to, such as System.out,
+        *                or null to print them only to the output file
+        * @return Metrics of the simulation
         * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateProcessor(String inputFile, String outputFile, int timeout, PrintStream console) throws FileNotFoundException {
+               return simulateProcessor(inputFile, outputFile, timeout, console, false);
+        }
+ 
+        /**
+        * Creates a TraceParser for a specified input file name and a HistoryWriter for
+        * a specified output file name, and runs the processor simulation with a
+        * given timeout period using the two files. All resources are closed
+        * at the completion of the method.
+        *
+        * When a process is alone on the processor and keeps being kicked off and put
+        * straight back, the simulation runs all of those timeout periods in one step.
+        * The output file still gets one line per period unless compact is true, in
+        * which case such a run of periods is written as a single line:
+        * At time 1630: run "Movie clip" for 3 x 100 time units
+        *
+        * @param inputFile Name of file containing correctly formatted input data (see below)
+        * @param outputFile Name of file that will contain output data
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param console Stream that idle periods are also printed to, such as System.out,
+        *                or null to print them only to the output file
+        * @param compact True to write consecutive timeout periods of one process as one line
+        * @return Metrics of the simulation
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateProcessor(String inputFile, String outputFile, int timeout, PrintStream console, boolean compact) throws FileNotFoundException {
+               return runWithFiles(inputFile, outputFile,
+                               (processList, processHistory) -> simulateProcessor(processList, processHistory, timeout, console, compact));
+        }
+ 
+        /**
+        * Runs the round robin simulation on an input file whose lines do not have to be
+        * in order of start time. The whole input is read first, and the processes wait
+        * in a TimingWheel keyed by start time, so they arrive in order of start time and,
+        * when start times are equal, in file order, and checking for arrivals after each
+        * time slice stays cheap however many are still to come. On input that is in
+        * order the output file is the same as simulateProcessor's.
+        *
+        * @param inputFile Name of file containing correctly formatted input data, in any order
+        * @param outputFile Name of file that will contain output data
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @return Metrics of the simulation
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateUnsorted(String inputFile, String outputFile, int timeout) throws FileNotFoundException {
+               return runWithFiles(inputFile, outputFile, (processList, processHistory) -> {
+                       SchedulerListener listener = new HistoryListener(processHistory, false);
+                       ProcessTable processes = new ProcessTable();
+                       return simulateProcessor(new WheelArrivals(processList, processes, listener), processes, timeout, listener);
+               });
+        }
+
+        /**
+        * Runs the round robin simulation on an input file in any order that may be too
+        * large to hold in memory. A TraceSorter sorts the input in runs of the given
+        * length, spilling them to temporary files next to the output file, and its merge
+        * of the runs feeds the simulation directly, so only the runs and the processes
+        * that are waiting for the processor are in memory. The output file is the same as
+        * simulateUnsorted's, and the temporary files are deleted before this returns.
+        *
+        * @param inputFile Name of file containing correctly formatted input data, in any order
+        * @param outputFile Name of file that will contain output data
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param runLength Number of processes sorted in memory at a time
+        * @return Metrics of the simulation
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If sorting, reading the input or writing the output fails
+        */
+        public static SimulationResult simulateUnsorted(String inputFile, String outputFile, int timeout, int runLength) throws FileNotFoundException {
+               if (runLength < 1)
+                       throw new IllegalArgumentException("Run length must be positive: " + runLength);
+               return runWithFiles(inputFile, outputFile, (processList, processHistory) -> {
+                       try (TraceSorter sorted = TraceSorter.sort(processList, runLength, TraceSorter.directoryOf(outputFile))) {
+                               return simulateProcessor(sorted, processHistory, timeout, null, false);
+                       }
+               });
+        }
+
+        /**
+        * Runs the simulation on a system with several identical processors sharing
+        * one ready queue. Whenever processors are free and processes are ready, the
+        * process at the front of the queue goes to the free processor with the lowest
+        * number, so the result is the same on every run. Each line of the output
+        * file names the processor it is about:
+        * At time 600 on CPU 1: run "Virus scan" for 100 time units
+        * CPU 0 idle from time 450 until time 600
+        * and the file ends with one line per processor giving its utilization:
+        * CPU 0 busy for 2380 of 2480 time units (96.0%)
+        * With one processor the run and idle lines match the single-processor
+        * simulation apart from naming CPU 0.
+        *
+        * @param inputFile Name of file containing correctly formatted input data (see below)
+        * @param outputFile Name of file that will contain output data
+        * @param timeout How long a process can be on a processor before being kicked off
+        * @param processors Number of processors, at least 1
+        * @return Metrics of the simulation, over all processors
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateProcessor(String inputFile, String outputFile, int timeout, int processors) throws FileNotFoundException {
+               if (processors < 1)
+                       throw new IllegalArgumentException("Number of processors must be positive: " + processors);
+               return runWithFiles(inputFile, outputFile,
+                               (processList, processHistory) -> simulateProcessors(processList, processHistory, timeout, processors));
+        }
+ 
+        /**
+        * Runs the processor simulation with the given scheduling policy deciding which
+        * ready process runs next and for how long. The output file has the same format
+        * as the original round robin simulation, which simulateProcessor with a
+        * RoundRobinPolicy reproduces line for line.
+        *
+        * A policy holds the state of one simulation, so each call needs a new one.
+        *
+        * @param inputFile Name of file containing correctly formatted input data (see below)
+        * @param outputFile Name of file that will contain output data
+        * @param policy Policy that chooses between the ready processes
+        * @return Metrics of the simulation
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateProcessor(String inputFile, String outputFile, SchedulingPolicy policy) throws FileNotFoundException {
+               return runWithFiles(inputFile, outputFile,
+                               (processList, processHistory) -> simulateProcessor(processList, processHistory, policy));
+        }
+ 
+        /**
+        * Runs the round robin simulation on binary files: the input is a binary trace
+        * (see BinaryTrace.textToBinary) and the history is written in the binary format,
+        * which BinaryTrace.historyToText turns into the text simulateProcessor writes.
+        * Both files are read and written through FileChannels in large blocks.
+        *
+        * @param inputFile Name of binary trace file
+        * @param outputFile Name of file that will contain the binary history
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @return Metrics of the simulation
+        * @throws IOException If a file cannot be opened, read or written, or the trace is damaged
+        */
+        public static SimulationResult simulateBinary(String inputFile, String outputFile, int timeout) throws IOException {
+               try (BinaryTraceReader processList = BinaryTraceReader.open(Paths.get(inputFile));
+                               BinaryHistoryWriter processHistory = new BinaryHistoryWriter(BinaryTrace.create(outputFile))) {
+                       return simulateProcessor(processList, processHistory, timeout, null, false);
+               }
+        }
+
+        /**
+        * Runs the round robin simulation and reports its events to a listener instead of
+        * writing an output file. With SchedulerListener.NONE nothing is formatted at all
+        * and only the metrics are gathered; with a HistoryListener the history is the
+        * same as simulateProcessor writes, and listeners can be combined with
+        * SchedulerListener.both.
+        *
+        * @param inputFile Name of file containing correctly formatted input data (see below)
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param listener Listener told about the simulation's events
+        * @return Metrics of the simulation
+        * @throws IOException If the input file cannot be read or the listener's output fails
+        */
+        public static SimulationResult simulateProcessor(String inputFile, int timeout, SchedulerListener listener) throws IOException {
+               try (TraceParser processList = TraceParser.open(Paths.get(inputFile))) {
+                       return simulateProcessor(processList, timeout, listener);
+               }
+        }
+
+        /**
+        * Runs the round robin simulation like simulateProcessor, saving its state to a
+        * checkpoint file every given number of scheduling steps, where a step is one time
+        * slice, one run of timeout periods of a process alone on the processor, or one
+        * idle period. If the run is stopped, resume carries on from the last checkpoint
+        * and the output file ends up byte for byte the same as if it had not stopped.
+        *
+        * Before each checkpoint the history written so far is forced to disk, and the
+        * checkpoint records its length along with the input offset, the current time,
+        * the ready queue with each process's remaining time, the process read ahead and
+        * the metrics, in a binary snapshot (see SimulationCheckpoint) that replaces the
+        * previous one by an atomic rename. The checkpoint file is left in place when the
+        * simulation finishes; resuming from it again just rewrites the same ending.
+        *
+        * @param inputFile Name of file containing correctly formatted input data (see below)
+        * @param outputFile Name of file that will contain output data
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param compact True to write consecutive timeout periods of one process as one line
+        * @param checkpointFile Name of the checkpoint file to write
+        * @param checkpointInterval Number of scheduling steps between checkpoints, at least 1
+        * @return Metrics of the simulation
+        * @throws IOException If a file cannot be opened, read or written
         */
-        public static void simulateProcessor(String inputFile, String outputFile, int timeout) throws FileNotFoundException {
-               Scanner processList = new Scanner(new File(inputFile));
-               PrintStream processHistory = new PrintStream(new File(outputFile));
+        public static SimulationResult simulateProcessor(String inputFile, String outputFile, int timeout, boolean compact, String checkpointFile, int checkpointInterval) throws IOException {
+               return simulateWithCheckpoints(inputFile, outputFile, null, timeout, compact, checkpointFile, checkpointInterval);
+        }
+
+        /**
+        * Continues a simulation started with checkpoints (see the method above) from its
+        * last checkpoint. The input is read from the offset the checkpoint records, the
+        * output file is cut back to the length it records, dropping anything written
+        * after the checkpoint, and the simulation goes on with the checkpoint's timeout,
+        * still saving checkpoints. The metrics returned cover the whole simulation.
+        *
+        * @param inputFile Name of the input file of the interrupted simulation
+        * @param outputFile Name of its output file
+        * @param checkpointFile Name of its checkpoint file
+        * @param checkpointInterval Number of scheduling steps between checkpoints, at least 1
+        * @return Metrics of the simulation
+        * @throws IOException If a file cannot be opened, read or written, or does not match the checkpoint
+        * @throws StreamCorruptedException If the checkpoint is damaged
+        */
+        public static SimulationResult resume(String inputFile, String outputFile, String checkpointFile, int checkpointInterval) throws IOException {
+               SimulationCheckpoint saved = SimulationCheckpoint.read(Paths.get(checkpointFile));
+               return simulateWithCheckpoints(inputFile, outputFile, saved, saved.timeout, saved.compact, checkpointFile, checkpointInterval);
+        }
+
+        /**
+        * Opens the files and runs the round robin simulation from the start or from a
+        * checkpoint, saving checkpoints as it goes.
+        *
+        * @param inputFile Name of file containing correctly formatted input data
+        * @param outputFile Name of file that will contain output data
+        * @param saved Checkpoint to carry on from, or null to start from the beginning
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param compact True to write consecutive timeout periods of one process as one line
+        * @param checkpointFile Name of the checkpoint file to write
+        * @param checkpointInterval Number of scheduling steps between checkpoints
+        * @return Metrics of the simulation
+        * @throws IOException If a file cannot be opened, read or written, or does not match the checkpoint
+        */
+        private static SimulationResult simulateWithCheckpoints(String inputFile, String outputFile, SimulationCheckpoint saved, int timeout, boolean compact, String checkpointFile, int checkpointInterval) throws IOException {
+               if (checkpointInterval < 1)
+                       throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+               try (FileChannel input = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ);
+                               FileChannel output = FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                       long inputOffset = saved == null ? 0 : saved.inputOffset;
+                       long outputLength = saved == null ? 0 : saved.outputLength;
+                       if (input.size() < inputOffset || output.size() < outputLength)
+                               throw new IOException("Files are shorter than checkpoint " + checkpointFile + " records");
+                       input.position(inputOffset);
+                       output.truncate(outputLength);
+                       output.position(outputLength);
  
-               simulateProcessor(processList, processHistory, timeout);
+                       TraceParser processList = new TraceParser(input);
+                       HistoryWriter processHistory = new HistoryWriter(output);
+                       SchedulerListener listener = new HistoryListener(processHistory, compact);
+                       ProcessTable processes = saved == null ? new ProcessTable() : saved.processes;
+                       StreamArrivals incomingQueue = new StreamArrivals(processList, processes, listener,
+                                       saved == null ? SimulationCheckpoint.NONE : saved.pending);
+                       IntCircularArrayQueue readyQueue = new IntCircularArrayQueue();
+                       if (saved != null)
+                               for (int process : saved.ready)
+                                       readyQueue.enqueueInt(process);
+                       SimulationResult result = saved == null ? new SimulationResult(1) : saved.result;
+                       Checkpointer checkpointer = new Checkpointer(Paths.get(checkpointFile), checkpointInterval, timeout, compact,
+                                       inputOffset, processList, incomingQueue, output, processHistory);
  
-               processList.close();
-               processHistory.close();
+                       result = simulateProcessor(incomingQueue, processes, readyQueue, result, saved == null ? 0 : saved.time,
+                                       timeout, listener, checkpointer);
+                       processHistory.flush();
+                       return result;
+               }
+        }
+
+        /**
+        * Saves a SimulationCheckpoint every given number of scheduling steps of the round
+        * robin loop
+        */
+        private static class Checkpointer {
+               private final Path file;
+               private final int interval;
+               private final int timeout;
+               private final boolean compact;
+               private final long inputStart;
+               private final TraceParser processList;
+               private final StreamArrivals incomingQueue;
+               private final FileChannel output;
+               private final HistoryWriter processHistory;
+               private int stepsLeft;
+ 
+               public Checkpointer(Path file, int interval, int timeout, boolean compact, long inputStart, TraceParser processList,
+                               StreamArrivals incomingQueue, FileChannel output, HistoryWriter processHistory) {
+                       this.file = file;
+                       this.interval = interval;
+                       this.timeout = timeout;
+                       this.compact = compact;
+                       this.inputStart = inputStart;
+                       this.processList = processList;
+                       this.incomingQueue = incomingQueue;
+                       this.output = output;
+                       this.processHistory = processHistory;
+                       stepsLeft = interval;
+               }
+ 
+               /**
+               * Counts a scheduling step and saves a checkpoint if it is time for one
+               *
+               * @param time Current simulation time
+               * @param processes Table of the simulation
+               * @param readyQueue Ready queue of the simulation
+               * @param result Metrics so far
+               * @throws IOException If the history or the checkpoint cannot be written
+               */
+               public void step(int time, ProcessTable processes, IntCircularArrayQueue readyQueue, SimulationResult result) throws IOException {
+                       if (--stepsLeft > 0)
+                               return;
+                       stepsLeft = interval;
+                       processHistory.flush();
+                       output.force(false);
+                       new SimulationCheckpoint(timeout, compact, inputStart + processList.offset(), output.position(), time,
+                                       result, processes, readyQueue.toArray(), incomingQueue.lookahead()).write(file);
+               }
         }
  
         /**
-        * Takes input file Scanner and PrintStream to the output file from the simulateProcessor
+        * Runs the round robin simulation online: processes are read from a stream such
+        * as standard input or a socket as they are written, and history lines are written
+        * as soon as they are known. A line is known once the next arrival that could come
+        * before it has been read, so the history trails the input by one line; whenever
+        * the simulation has to wait for input, everything it has worked out so far is
+        * written out first.
+        *
+        * Input and output go through fixed 64 KiB buffers, and only processes that have
+        * arrived and not finished are held, so memory use does not grow with the length
+        * of the stream. The simulation reads no further ahead than it needs and blocks
+        * while the output cannot be written, so a slow reader of the history slows down
+        * the reading of the input, and through it the writer of the input. A line whose
+        * start time is earlier than one already read is treated as arriving at the next
+        * scheduling decision. Neither channel is closed.
+        *
+        * @param input Stream of lines in the input file format
+        * @param output Destination of the history
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param compact True to write consecutive timeout periods of one process as one line
+        * @return Metrics of the simulation, once the input has ended
+        * @throws IOException If reading the input or writing the output fails
+        */
+        public static SimulationResult simulateStream(ReadableByteChannel input, WritableByteChannel output, int timeout, boolean compact) throws IOException {
+               HistoryWriter processHistory = new HistoryWriter(output, STREAM_BUFFER_SIZE);
+               TraceParser processList = new TraceParser(new FlushingChannel(input, processHistory), STREAM_BUFFER_SIZE);
+               SimulationResult result = simulateProcessor(processList, processHistory, timeout, null, compact);
+               processHistory.flush();
+               return result;
+        }
+ 
+        /**
+        * An input channel that writes out the buffered history before each read, since
+        * a read from a stream may wait for a long time
+        */
+        private static class FlushingChannel implements ReadableByteChannel {
+               private final ReadableByteChannel input;
+               private final HistoryWriter processHistory;
+ 
+               public FlushingChannel(ReadableByteChannel input, HistoryWriter processHistory) {
+                       this.input = input;
+                       this.processHistory = processHistory;
+               }
+ 
+               @Override
+               public int read(ByteBuffer dst) throws IOException {
+                       processHistory.flush();
+                       return input.read(dst);
+               }
+ 
+               @Override
+               public boolean isOpen() {
+                       return input.isOpen();
+               }
+ 
+               @Override
+               public void close() throws IOException {
+                       input.close();
+               }
+        }
+ 
+        /**
+        * Listener that prints idle periods to a stream such as System.out
+        */
+        private static class ConsoleListener implements SchedulerListener {
+               private final PrintStream console;
+ 
+               public ConsoleListener(PrintStream console) {
+                       this.console = console;
+               }
+ 
+               @Override
+               public void onArrival(int pid, int time) {
+               }
+ 
+               @Override
+               public void onRun(int pid, int start, int duration) {
+               }
+ 
+               @Override
+               public void onIdle(int from, int to) {
+                       console.println("CPU idle from time " + from + " until time " + to);
+               }
+ 
+               @Override
+               public void onComplete(int pid, int time) {
+               }
+        }
+ 
+        /**
+        * A simulation reading from a TraceSource and writing to a HistorySink
+        */
+        private interface Simulation {
+               SimulationResult run(TraceSource processList, HistorySink processHistory) throws IOException;
+        }
+ 
+        /**
+        * Opens the input and output files, runs a simulation on them and closes both.
+        *
+        * @param inputFile Name of file containing correctly formatted input data
+        * @param outputFile Name of file that will contain output data
+        * @param simulation Simulation to run
+        * @return Metrics returned by the simulation
+        * @throws FileNotFoundException If either the input or output files are not found/created
+        * @throws UncheckedIOException If reading the input or writing the output fails
+        */
+        private static SimulationResult runWithFiles(String inputFile, String outputFile, Simulation simulation) throws FileNotFoundException {
+               TraceParser processList = new TraceParser(new FileInputStream(inputFile).getChannel());
+               HistoryWriter processHistory;
+               try {
+                       processHistory = new HistoryWriter(new FileOutputStream(outputFile).getChannel());
+               } catch (FileNotFoundException e) {
+                       closeQuietly(processList);
+                       throw e;
+               }
+ 
+               try {
+                       SimulationResult result = simulation.run(processList, processHistory);
+                       processHistory.close();
+                       return result;
+               } catch (IOException e) {
+                       throw new UncheckedIOException("Simulation of " + inputFile + " failed", e);
+               } finally {
+                       closeQuietly(processList);
+                       closeQuietly(processHistory);
+               }
+        }
+ 
+        /**
+        * Closes a resource after the simulation, ignoring failures since anything
+        * that needed to be written has already been written or reported
+        */
+        private static void closeQuietly(Closeable resource) {
+               try {
+                       resource.close();
+               } catch (IOException e) {
+                       // already finished with or already failing
+               }
+        }
+ 
+        /**
+        * Takes input file TraceSource and HistorySink to the output file from the simulateProcessor
         * method above, along with the timeout, and actually runs the simulation. The input file
         * contains one line per process to be loaded, and three columns. The first column is the
         * start time, the second column is the execution duration, and all remaining text makes
@@ -120,66 +643,519 @@ public class OtherScheduler {
         * separated by whitespace. Note that the start times of sequential processes in the file
         * must be non-decreasing (times increase, but ties are allowed).
         *
-        * @param processList Scanner that reads the input file
-        * @param processHistory PrintStream to the output file
+        * The input is read only as far as the simulation needs to look ahead, one
+        * process past the current time, so the simulation can run on a stream whose
+        * later lines have not been written yet.
+        *
+        * Processes are kept in a ProcessTable and the ready queue holds their indices,
+        * so the loop allocates nothing per process and a finished process's index is
+        * reused by a later one.
+        *
+        * @param processList TraceSource that reads the input file
+        * @param processHistory HistorySink to the output file
         * @param timeout How long a process can be on the processor before being kicked off
+        * @param console Stream that idle periods are also printed to, or null
+        * @param compact True to write consecutive timeout periods of one process as one line
+        * @return Metrics of the simulation
+        * @throws IOException If reading the input or writing the output fails
         */
-        private static void simulateProcessor(Scanner processList, PrintStream processHistory, int timeout) {
-               CircularArrayQueue<Process> incomingQueue = new CircularArrayQueue<>(); 
-               CircularArrayQueue<Process> readyQueue = new CircularArrayQueue<>(); 
- 
-               while(processList.hasNextLine()) { 
-                       String name = ""; 
-                       String oneLine = processList.nextLine(); 
-                       Scanner lineScanner = new Scanner(oneLine); 
-                       int startTime = lineScanner.nextInt(); 
-                       int runTime = lineScanner.nextInt(); 
-                       name = lineScanner.next();  
-                       
-                       while (lineScanner.hasNext())  
-                               name = name + " " + lineScanner.next();
-                       
-                       lineScanner.close();
-                       Process p = new Process(startTime, runTime, name); 
-                       incomingQueue.enqueue(p); 
-               }
+        private static SimulationResult simulateProcessor(TraceSource processList, HistorySink processHistory, int timeout, PrintStream console, boolean compact) throws IOException {
+               SchedulerListener listener = new HistoryListener(processHistory, compact);
+               if (console != null)
+                       listener = SchedulerListener.both(new ConsoleListener(console), listener);
+               return simulateProcessor(processList, timeout, listener);
+        }
+
+        /**
+        * Runs the round robin simulation on a TraceSource, telling a listener about every
+        * event (see the method above). TimeoutSweep runs each of its timeouts through here.
+        *
+        * @param processList TraceSource that reads the input
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param listener Listener told about the simulation's events
+        * @return Metrics of the simulation
+        * @throws IOException If reading the input or the listener's output fails
+        */
+        static SimulationResult simulateProcessor(TraceSource processList, int timeout, SchedulerListener listener) throws IOException {
+               ProcessTable processes = new ProcessTable();
+               return simulateProcessor(new StreamArrivals(processList, processes, listener), processes, timeout, listener);
+        }
  
-               int timeToPrint = 0; 
+        /**
+        * Runs the round robin simulation on processes arriving from either kind of Arrivals
+        * (see the method above).
+        *
+        * @param incomingQueue Processes that have not arrived yet, reporting their arrivals to the listener
+        * @param processes Table the arrivals are added to
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param listener Listener told about the simulation's events
+        * @return Metrics of the simulation
+        * @throws IOException If reading the input or the listener's output fails
+        */
+        private static SimulationResult simulateProcessor(Arrivals incomingQueue, ProcessTable processes, int timeout, SchedulerListener listener) throws IOException {
+               return simulateProcessor(incomingQueue, processes, new IntCircularArrayQueue(), new SimulationResult(1), 0, timeout, listener, null);
+        }
+
+        /**
+        * Runs the round robin simulation from a given state, which is the initial one
+        * unless it comes from a checkpoint (see the method above).
+        *
+        * @param incomingQueue Processes that have not arrived yet, reporting their arrivals to the listener
+        * @param processes Table the arrivals are added to
+        * @param readyQueue Table indices of the processes that have arrived and not finished
+        * @param result Metrics so far
+        * @param time Current simulation time
+        * @param timeout How long a process can be on the processor before being kicked off
+        * @param listener Listener told about the simulation's events
+        * @param checkpointer Checkpointer told about each scheduling step, or null
+        * @return Metrics of the simulation
+        * @throws IOException If reading the input, the listener's output or a checkpoint fails
+        */
+        private static SimulationResult simulateProcessor(Arrivals incomingQueue, ProcessTable processes, IntCircularArrayQueue readyQueue, SimulationResult result, int time, int timeout, SchedulerListener listener, Checkpointer checkpointer) throws IOException {
+               listener.onStart(processes);
+ 
+               int timeToPrint = time; 
                while(!incomingQueue.isEmpty() || !readyQueue.isEmpty()) { 
+                       if (checkpointer != null)
+                               checkpointer.step(timeToPrint, processes, readyQueue, result);
                        if(readyQueue.isEmpty()) { // will queue all of the steps and add idle time to processHistory
  
                                int originalTime = timeToPrint; 
-                               readyQueue.enqueue(incomingQueue.dequeue()); 
-                               while(!incomingQueue.isEmpty() && (incomingQueue.getFront()).getStartTime() == (readyQueue.getFront()).getStartTime()) 
-                                       readyQueue.enqueue(incomingQueue.dequeue());
+                               readyQueue.enqueueInt(incomingQueue.dequeue()); 
+                               int timeStart = processes.startTime(readyQueue.getFrontInt());
+                               incomingQueue.releaseThrough(timeStart, readyQueue);
                                
-                               Process temp = readyQueue.getFront();
-                               int timeStart = temp.getStartTime();
-                               timeToPrint = timeStart;
-                               if (timeStart != 0) {
-                                       System.out.println("CPU idle from time " + originalTime + " until time " + timeToPrint); // debug statement
-                                       processHistory.println("CPU idle from time " + originalTime + " until time " + timeToPrint); // prints origalTime then time it will jump to (Idle time)
-                               }
+                               timeToPrint = Math.max(timeStart, originalTime); // a late line arrives now
+                               if (timeStart != 0)
+                                       listener.onIdle(originalTime, timeToPrint); // prints origalTime then time it will jump to (Idle time)
                                
                        } else { // if readyQueue is not empty - and a process needs to be run
-                               Process toRun = readyQueue.dequeue(); 
-                               int timeRemaining = toRun.getTimeRemaining(); 
+                               int toRun = readyQueue.dequeueInt(); 
+                               int timeRemaining = processes.remaining(toRun); 
                                
                                if(timeRemaining <= timeout) {
-                                       toRun.executeForTime(timeRemaining); 
-                                       processHistory.println("At time " + timeToPrint+ ": run \"" + toRun.getName() + "\" " + "for " + timeRemaining + " time units");
+                                       processes.run(toRun, timeToPrint, timeRemaining, 0, result); 
+                                       listener.onRun(toRun, timeToPrint, timeRemaining);
                                        timeToPrint += timeRemaining;
-                                       while(!incomingQueue.isEmpty() && incomingQueue.getFront().getStartTime() < timeToPrint ) 
-                                               readyQueue.enqueue(incomingQueue.dequeue());
+                                       listener.onComplete(toRun, timeToPrint);
+                                       processes.release(toRun);
+                                       incomingQueue.releaseThrough(timeToPrint - 1, readyQueue);
                                } else {
-                                       toRun.executeForTime(timeout); 
-                                       processHistory.println("At time " + timeToPrint+ ": run \""+toRun.getName() + "\" " + "for " + timeout + " time units"); 
-                                       timeToPrint += timeout; 
-                                       while(!incomingQueue.isEmpty() && incomingQueue.getFront().getStartTime() < timeToPrint)  
-                                               readyQueue.enqueue(incomingQueue.dequeue()); 
-                                       readyQueue.enqueue(toRun); 
+                                       // Alone on the processor, the process is put straight back after each
+                                       // period until it is nearly done or another process arrives
+                                       int periods = readyQueue.isEmpty() ? uninterruptedPeriods(timeRemaining, incomingQueue, timeToPrint, timeout) : 1;
+                                       processes.run(toRun, timeToPrint, periods * timeout, 0, result); 
+                                       if (periods > 1)
+                                               listener.onRunRepeated(toRun, timeToPrint, periods, timeout);
+                                       else
+                                               listener.onRun(toRun, timeToPrint, timeout);
+                                       timeToPrint += periods * timeout; 
+                                       incomingQueue.releaseThrough(timeToPrint - 1, readyQueue); 
+                                       readyQueue.enqueueInt(toRun); 
                                }
                        }
                }
+               result.finish(timeToPrint);
+               return result;
+        }
+
+        /**
+        * Counts the full timeout periods a process can run back to back when it is the
+        * only ready process: it must have more than a full period left after each of
+        * them, and no other process may arrive before the last one starts.
+        *
+        * @param timeRemaining Remaining time of the only ready process, more than one period
+        * @param incomingQueue Processes that have not arrived yet
+        * @param time Current simulation time
+        * @param timeout Length of a period
+        * @return Number of periods, at least 1
+        * @throws IOException If reading the next arrival fails
+        */
+        private static int uninterruptedPeriods(int timeRemaining, Arrivals incomingQueue, int time, int timeout) throws IOException {
+               int periods = (timeRemaining - 1) / timeout;
+               if (!incomingQueue.isEmpty())
+                       periods = Math.min(periods, (incomingQueue.getFrontStartTime() - time) / timeout + 1);
+               return Math.max(periods, 1);
+        }
+
+        /**
+        * The processes that have not arrived yet, as indices into the simulation's
+        * ProcessTable, handed out in order of start time. Each process handed out is
+        * reported to the simulation's listener as arriving.
+        */
+        private interface Arrivals {
+               /**
+               * Detects whether every process has arrived
+               *
+               * @return True if no process is left to arrive
+               * @throws IOException If reading the input fails
+               */
+               public boolean isEmpty() throws IOException;
+ 
+               /**
+               * Returns the start time of the next process to arrive
+               *
+               * @return Start time of the next process
+               * @throws EmptyQueueException If every process has arrived
+               * @throws IOException If reading the input fails
+               */
+               public int getFrontStartTime() throws IOException;
+ 
+               /**
+               * Removes and returns the next process to arrive
+               *
+               * @return Table index of the next process
+               * @throws EmptyQueueException If every process has arrived
+               * @throws IOException If reading the input fails
+               */
+               public int dequeue() throws IOException;
+ 
+               /**
+               * Moves every process starting at or before a time to the back of the ready queue
+               *
+               * @param time Latest start time to let in
+               * @param readyQueue Queue of table indices receiving the processes
+               * @throws IOException If reading the input fails
+               */
+               public void releaseThrough(int time, IntCircularArrayQueue readyQueue) throws IOException;
+        }
+ 
+        /**
+        * Arrivals read from the input one at a time when the simulation first asks about
+        * the next one, for input in order of start time. At most one process is read ahead,
+        * so together with the table releasing finished processes, memory use does not
+        * depend on the length of the input. A line that starts earlier than the one before
+        * it arrives along with the line before it.
+        */
+        private static class StreamArrivals implements Arrivals {
+               private static final int NONE = -1;
+ 
+               private final TraceSource processList;
+               private final ProcessTable processes;
+               private final SchedulerListener listener;
+               private int next = NONE;
+               private boolean ended;
+ 
+               /**
+               * Creates the arrivals of an input
+               *
+               * @param processList TraceSource that reads the input
+               * @param processes Table the processes are added to as they are read
+               * @param listener Listener told about each arrival
+               */
+               public StreamArrivals(TraceSource processList, ProcessTable processes, SchedulerListener listener) {
+                       this(processList, processes, listener, NONE);
+               }
+ 
+               /**
+               * Creates the arrivals of the rest of an input, when a process has already
+               * been read from it
+               *
+               * @param processList TraceSource that reads the rest of the input
+               * @param processes Table the processes are added to as they are read
+               * @param listener Listener told about each arrival
+               * @param next Table index of the process read ahead, or -1 if there is none
+               */
+               public StreamArrivals(TraceSource processList, ProcessTable processes, SchedulerListener listener, int next) {
+                       this.processList = processList;
+                       this.processes = processes;
+                       this.listener = listener;
+                       this.next = next;
+               }
+ 
+               /**
+               * Returns the process read ahead without reading any further
+               *
+               * @return Its table index, or -1 if none has been read
+               */
+               public int lookahead() {
+                       return next;
+               }
+ 
+               /**
+               * On a stream this waits until the next line or the end of the input.
+               */
+               @Override
+               public boolean isEmpty() throws IOException {
+                       if (next == NONE && !ended) {
+                               if (processList.next())
+                                       next = processes.add(processList);
+                               else
+                                       ended = true;
+                       }
+                       return next == NONE;
+               }
+ 
+               @Override
+               public int getFrontStartTime() throws IOException {
+                       if (isEmpty())
+                               throw new EmptyQueueException();
+                       return processes.startTime(next);
+               }
+ 
+               @Override
+               public int dequeue() throws IOException {
+                       if (isEmpty())
+                               throw new EmptyQueueException();
+                       int front = next;
+                       next = NONE;
+                       listener.onArrival(front, processes.startTime(front));
+                       return front;
+               }
+ 
+               @Override
+               public void releaseThrough(int time, IntCircularArrayQueue readyQueue) throws IOException {
+                       while (!isEmpty() && processes.startTime(next) <= time)
+                               readyQueue.enqueueInt(dequeue());
+               }
+        }
+ 
+        /**
+        * Arrivals for input in any order: the whole input is read up front and each
+        * process is put in a TimingWheel under its start time, which hands them out in
+        * order of start time and, for equal start times, in input order.
+        */
+        private static class WheelArrivals implements Arrivals {
+               private final TimingWheel wheel = new TimingWheel();
+               private final IntCircularArrayQueue released = new IntCircularArrayQueue();
+               private final ProcessTable processes;
+               private final SchedulerListener listener;
+ 
+               /**
+               * Reads every process of an input
+               *
+               * @param processList TraceSource that reads the input
+               * @param processes Table the processes are added to
+               * @param listener Listener told about each arrival
+               * @throws IOException If reading the input fails
+               */
+               public WheelArrivals(TraceSource processList, ProcessTable processes, SchedulerListener listener) throws IOException {
+                       this.processes = processes;
+                       this.listener = listener;
+                       while (processList.next()) {
+                               int process = processes.add(processList);
+                               wheel.add(process, processes.startTime(process));
+                       }
+               }
+ 
+               @Override
+               public boolean isEmpty() {
+                       return wheel.isEmpty();
+               }
+ 
+               @Override
+               public int getFrontStartTime() {
+                       return wheel.nextTime();
+               }
+ 
+               @Override
+               public int dequeue() throws IOException {
+                       int process = wheel.poll();
+                       listener.onArrival(process, processes.startTime(process));
+                       return process;
+               }
+ 
+               /**
+               * The wheel releases the processes in bulk; they pass through a queue of
+               * their own on the way to the ready queue so that each can be reported.
+               */
+               @Override
+               public void releaseThrough(int time, IntCircularArrayQueue readyQueue) throws IOException {
+                       wheel.releaseThrough(time, released);
+                       while (!released.isEmpty()) {
+                               int process = released.dequeueInt();
+                               listener.onArrival(process, processes.startTime(process));
+                               readyQueue.enqueueInt(process);
+                       }
+               }
+        }
+ 
+        /**
+        * Reads every process in the input file, in file order, for the policy loop,
+        * which hands SchedulingPolicies the processes as objects.
+        *
+        * @param processList TraceSource that reads the input file
+        * @return Queue of processes that have not arrived yet
+        * @throws IOException If reading the input fails
+        */
+        private static SegmentedQueue<Process> readProcesses(TraceSource processList) throws IOException {
+               SegmentedQueue<Process> incomingQueue = new SegmentedQueue<>(); 
+               while(processList.next()) 
+                       incomingQueue.enqueue(new Process(processList.startTime(), processList.duration(), processList.name())); 
+               return incomingQueue;
+        }
+ 
+        /**
+        * Runs the multi-processor simulation (see the public method). Time jumps from one
+        * event to the next: busy processors wait in a heap ordered by the time they become
+        * free and then by number, so the next completion is always at the front, and a
+        * processor is only looked at when something happens to it. At each event time all
+        * processors finishing then are handled first, in number order, and only then are
+        * free processors given new work.
+        *
+        * The rules of the single-processor loop carry over unchanged: a process kicked off
+        * at time t goes to the back of the ready queue after the processes that arrived
+        * before t, and processes arriving exactly at t are only let in once a processor
+        * finds the ready queue empty.
+        *
+        * @param processList TraceSource that reads the input file
+        * @param processHistory HistorySink to the output file
+        * @param timeout How long a process can be on a processor before being kicked off
+        * @param processors Number of processors
+        * @return Metrics of the simulation, over all processors
+        * @throws IOException If reading the input or writing the output fails
+        */
+        private static SimulationResult simulateProcessors(TraceSource processList, HistorySink processHistory, int timeout, int processors) throws IOException {
+               ProcessTable processes = new ProcessTable();
+               Arrivals incomingQueue = new StreamArrivals(processList, processes, SchedulerListener.NONE); 
+               IntCircularArrayQueue readyQueue = new IntCircularArrayQueue(); 
+               int[] running = new int[processors];
+               int[] freeAt = new int[processors];
+               int[] idleSince = new int[processors];
+               long[] busyTime = new long[processors];
+               BitSet free = new BitSet(processors);
+               BitSet idle = new BitSet(processors); // free processors that have found nothing to run
+               free.set(0, processors);
+               DaryHeapPriorityQueue<Integer> busy = new DaryHeapPriorityQueue<>(cpu -> (long) freeAt[cpu] * processors + cpu);
+               SimulationResult result = new SimulationResult(processors);
+ 
+               int time = 0;
+               for (;;) {
+                       if (readyQueue.isEmpty() && !free.isEmpty()) {
+                               markIdle(free, idle, idleSince, time);
+                               incomingQueue.releaseThrough(time, readyQueue);
+                       }
+ 
+                       for (int cpu = free.nextSetBit(0); cpu >= 0 && !readyQueue.isEmpty(); cpu = free.nextSetBit(cpu + 1)) {
+                               int toRun = readyQueue.dequeueInt();
+                               if (idle.get(cpu)) {
+                                       if (time != 0)
+                                               processHistory.idleOn(cpu, idleSince[cpu], time);
+                                       idle.clear(cpu);
+                               }
+                               int slice = Math.min(processes.remaining(toRun), timeout);
+                               processes.run(toRun, time, slice, cpu, result);
+                               processHistory.runOn(time, cpu, processes.names(), processes.nameOffset(toRun), processes.nameLength(toRun), slice);
+                               busyTime[cpu] += slice;
+                               running[cpu] = toRun;
+                               freeAt[cpu] = time + slice;
+                               free.clear(cpu);
+                               busy.enqueue(cpu);
+                       }
+                       if (readyQueue.isEmpty())
+                               markIdle(free, idle, idleSince, time);
+ 
+                       if (busy.isEmpty() && incomingQueue.isEmpty())
+                               break;
+                       // Ready processes imply no free processor, so arrivals only matter when one is free
+                       int next = busy.isEmpty() ? Integer.MAX_VALUE : freeAt[busy.getFront()];
+                       if (!free.isEmpty() && !incomingQueue.isEmpty())
+                               next = Math.min(next, incomingQueue.getFrontStartTime());
+                       time = next;
+ 
+                       while (!busy.isEmpty() && freeAt[busy.getFront()] == time) {
+                               int cpu = busy.dequeue();
+                               int ran = running[cpu];
+                               incomingQueue.releaseThrough(time - 1, readyQueue);
+                               if (processes.remaining(ran) > 0)
+                                       readyQueue.enqueueInt(ran);
+                               else
+                                       processes.release(ran);
+                               free.set(cpu);
+                       }
+               }
+ 
+               for (int cpu = 0; cpu < processors; cpu++)
+                       processHistory.utilization(cpu, busyTime[cpu], time);
+               result.finish(time);
+               return result;
+        }
+ 
+        /**
+        * Marks free processors that are not yet idle as idle from the given time.
+        */
+        private static void markIdle(BitSet free, BitSet idle, int[] idleSince, int time) {
+               for (int cpu = free.nextSetBit(0); cpu >= 0; cpu = free.nextSetBit(cpu + 1)) {
+                       if (!idle.get(cpu)) {
+                               idle.set(cpu);
+                               idleSince[cpu] = time;
+                       }
+               }
+        }
+
+        /**
+        * Runs the single-processor simulation with a scheduling policy (see the public method).
+        * Arrivals are handed to the policy with the same timing as in the round robin loop
+        * above: when a process comes off the processor at time t, the processes that arrived
+        * before t go in first, then the process itself if it has time left, then those
+        * arriving exactly at t, unless nothing is ready, in which case the processor is idle
+        * until the next arrival.
+        *
+        * Before a process runs, the arrivals due during its time slice are offered to
+        * the policy's preempts method in order, and the slice is cut short at the first
+        * one that preempts it.
+        *
+        * @param processList TraceSource that reads the input file
+        * @param processHistory HistorySink to the output file
+        * @param policy Policy that chooses between the ready processes
+        * @return Metrics of the simulation
+        * @throws IOException If reading the input or writing the output fails
+        */
+        private static SimulationResult simulateProcessor(TraceSource processList, HistorySink processHistory, SchedulingPolicy policy) throws IOException {
+               SegmentedQueue<Process> incomingQueue = readProcesses(processList); 
+               SimulationResult result = new SimulationResult(1);
+ 
+               int time = 0;
+               while (!incomingQueue.isEmpty() || !policy.isEmpty()) {
+                       if (policy.isEmpty()) {
+                               int idleFrom = time;
+                               time = incomingQueue.getFront().getStartTime();
+                               admit(incomingQueue, policy, time, time);
+                               if (time != 0)
+                                       processHistory.idle(idleFrom, time);
+                               continue;
+                       }
+ 
+                       Process toRun = policy.next(time);
+                       int limit = policy.timeSlice(toRun);
+                       if (limit <= 0)
+                               throw new IllegalStateException("Time slice must be positive: " + limit);
+                       int slice = Math.min(toRun.getTimeRemaining(), limit);
+                       for (Process arriving : incomingQueue) {
+                               int arrival = arriving.getStartTime();
+                               if (arrival - time >= slice)
+                                       break;
+                               if (policy.preempts(toRun, toRun.getTimeRemaining() - (arrival - time), arriving)) {
+                                       slice = arrival - time;
+                                       break;
+                               }
+                       }
+ 
+                       toRun.run(time, slice, 0, result);
+                       processHistory.run(time, toRun.getNameBytes(), slice);
+                       time += slice;
+                       admit(incomingQueue, policy, time - 1, time);
+                       if (toRun.getTimeRemaining() > 0)
+                               policy.preempted(toRun, time, slice);
+                       else
+                               policy.completed(toRun, time);
+                       if (!policy.isEmpty())
+                               admit(incomingQueue, policy, time, time);
+               }
+               result.finish(time);
+               return result;
+        }
+ 
+        /**
+        * Hands the policy every process arriving at or before a given time.
+        *
+        * @param incomingQueue Processes that have not arrived yet, in arrival order
+        * @param policy Policy receiving them
+        * @param until Latest start time to admit
+        * @param time Current simulation time
+        */
+        private static void admit(SegmentedQueue<Process> incomingQueue, SchedulingPolicy policy, int until, int time) {
+               while (!incomingQueue.isEmpty() && incomingQueue.getFront().getStartTime() <= until)
+                       policy.arrive(incomingQueue.dequeue(), time);
         }
 }
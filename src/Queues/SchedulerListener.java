@@ -0,0 +1,140 @@
+import java.io.IOException;
+
+/**
+ * Observer of the Scheduler's round robin simulation, told about each
+ * event as the simulation decides it, with plain int arguments so that
+ * nothing is formatted or allocated unless a listener chooses to. The text
+ * history is written by one listener, HistoryListener; a simulation run
+ * with NONE only gathers its SimulationResult.
+ *
+ * A process is identified by its index in the simulation's ProcessTable,
+ * which onStart hands over so that a listener can look up names and times.
+ * An index is valid from the process's onArrival until its onComplete, and
+ * may then be given to a later process. Events are reported in the order
+ * they are decided, which is not always time order: a run is reported when
+ * it starts and the processes arriving while it runs after it. A listener
+ * is not shared between simulations running at the same time.
+ */
+public interface SchedulerListener {
+
+	/**
+	 * Listener that ignores every event
+	 */
+	public static final SchedulerListener NONE = new SchedulerListener() {
+		@Override
+		public void onArrival(int pid, int time) {
+		}
+
+		@Override
+		public void onRun(int pid, int start, int duration) {
+		}
+
+		@Override
+		public void onIdle(int from, int to) {
+		}
+
+		@Override
+		public void onComplete(int pid, int time) {
+		}
+	};
+
+	/**
+	 * Called once before any other event. The default does nothing.
+	 * @param processes Table the process indices of the other events refer to
+	 */
+	public default void onStart(ProcessTable processes) {
+	}
+	/**
+	 * Called when a process joins the ready queue
+	 * @param pid Table index of the process
+	 * @param time Start time of the process
+	 * @throws IOException If the listener's output fails
+	 */
+	public void onArrival(int pid, int time) throws IOException;
+	/**
+	 * Called when a process is put on the processor
+	 * @param pid Table index of the process
+	 * @param start Time the process starts running
+	 * @param duration Number of time units it runs for
+	 * @throws IOException If the listener's output fails
+	 */
+	public void onRun(int pid, int start, int duration) throws IOException;
+	/**
+	 * Called when a process alone on the processor runs several timeout
+	 * periods back to back. The default reports each period to onRun.
+	 * @param pid Table index of the process
+	 * @param start Time the first period starts
+	 * @param count Number of periods
+	 * @param quantum Length of each period
+	 * @throws IOException If the listener's output fails
+	 */
+	public default void onRunRepeated(int pid, int start, int count, int quantum) throws IOException {
+		for (int i = 0; i < count; i++)
+			onRun(pid, start + i * quantum, quantum);
+	}
+	/**
+	 * Called when the processor is idle until the next arrival
+	 * @param from Time the processor became idle
+	 * @param to Time the next process arrives
+	 * @throws IOException If the listener's output fails
+	 */
+	public void onIdle(int from, int to) throws IOException;
+	/**
+	 * Called when a process finishes, after its last onRun
+	 * @param pid Table index of the process
+	 * @param time Time it finished
+	 * @throws IOException If the listener's output fails
+	 */
+	public void onComplete(int pid, int time) throws IOException;
+
+	/**
+	 * Combines two listeners into one that passes every event to the first
+	 * and then to the second
+	 * @param first Listener told first
+	 * @param second Listener told second
+	 * @return Listener for both
+	 */
+	public static SchedulerListener both(SchedulerListener first, SchedulerListener second) {
+		if (first == NONE)
+			return second;
+		if (second == NONE)
+			return first;
+		return new SchedulerListener() {
+			@Override
+			public void onStart(ProcessTable processes) {
+				first.onStart(processes);
+				second.onStart(processes);
+			}
+
+			@Override
+			public void onArrival(int pid, int time) throws IOException {
+				first.onArrival(pid, time);
+				second.onArrival(pid, time);
+			}
+
+			@Override
+			public void onRun(int pid, int start, int duration) throws IOException {
+				first.onRun(pid, start, duration);
+				second.onRun(pid, start, duration);
+			}
+
+			@Override
+			public void onRunRepeated(int pid, int start, int count, int quantum) throws IOException {
+				first.onRunRepeated(pid, start, count, quantum);
+				second.onRunRepeated(pid, start, count, quantum);
+			}
+
+			@Override
+			public void onIdle(int from, int to) throws IOException {
+				first.onIdle(from, to);
+				second.onIdle(from, to);
+			}
+
+			@Override
+			public void onComplete(int pid, int time) throws IOException {
+				first.onComplete(pid, time);
+				second.onComplete(pid, time);
+			}
+		};
+	}
+}
@@ -0,0 +1,133 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests observing the round robin simulation through SchedulerListeners
+ * instead of its output file.
+ */
+public class SchedulerListenerTest {
+
+	public static final String INPUT_NAME = "InputListener.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputListener.txt";
+	public static final String LISTENER_OUTPUT_NAME = "OutputListener.txt";
+	public static final int LINES = 2000;
+	public static final int TIMEOUT = 80;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Random random = new Random(24);
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		int start = 0;
+		for (int i = 0; i < LINES; i++) {
+			start += random.nextInt(4) == 0 ? random.nextInt(2000) : 0;
+			ps.println(start + " " + (1 + random.nextInt(random.nextInt(10) == 0 ? 5000 : 300)) + " Job " + (i % 50));
+		}
+		ps.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		for (String file : new String[] {INPUT_NAME, OUTPUT_NAME, LISTENER_OUTPUT_NAME})
+			new File(file).delete();
+	}
+
+	/**
+	 * Listener that formats the events itself and checks that they make sense
+	 */
+	private static class Recorder implements SchedulerListener {
+		final List<String> lines = new ArrayList<>();
+		final Map<Integer, Integer> active = new HashMap<>(); // arrived and not completed, with the end of the last run
+		ProcessTable processes;
+		int arrivals;
+		int completions;
+
+		@Override
+		public void onStart(ProcessTable processes) {
+			assertNull(this.processes);
+			this.processes = processes;
+		}
+
+		@Override
+		public void onArrival(int pid, int time) {
+			assertNull(active.put(pid, -1));
+			assertEquals(processes.startTime(pid), time);
+			arrivals++;
+		}
+
+		@Override
+		public void onRun(int pid, int start, int duration) {
+			assertTrue(active.containsKey(pid));
+			lines.add("At time " + start + ": run \"" + processes.name(pid) + "\" for " + duration + " time units");
+			active.put(pid, start + duration);
+		}
+
+		@Override
+		public void onIdle(int from, int to) {
+			lines.add("CPU idle from time " + from + " until time " + to);
+		}
+
+		@Override
+		public void onComplete(int pid, int time) {
+			assertEquals(time, (int) active.remove(pid));
+			assertEquals(0, processes.remaining(pid));
+			completions++;
+		}
+	}
+
+	@Test
+	public void testEventsMatchHistory() throws IOException {
+		SimulationResult expected = Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, TIMEOUT);
+		Recorder recorder = new Recorder();
+		SimulationResult observed = Scheduler.simulateProcessor(INPUT_NAME, TIMEOUT, recorder);
+		assertEquals(Files.readAllLines(Paths.get(OUTPUT_NAME)), recorder.lines);
+		assertEquals(LINES, recorder.arrivals);
+		assertEquals(LINES, recorder.completions);
+		assertTrue(recorder.active.isEmpty());
+		assertEquals(expected.toCsvRow(), observed.toCsvRow());
+	}
+
+	@Test
+	public void testNoListener() throws IOException {
+		SimulationResult expected = Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, TIMEOUT);
+		assertEquals(expected.toCsvRow(), Scheduler.simulateProcessor(INPUT_NAME, TIMEOUT, SchedulerListener.NONE).toCsvRow());
+	}
+
+	@Test
+	public void testHistoryListener() throws IOException {
+		for (boolean compact : new boolean[] {false, true}) {
+			Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, TIMEOUT, null, compact);
+			Recorder recorder = new Recorder();
+			try (HistoryWriter history = new HistoryWriter(new FileOutputStream(LISTENER_OUTPUT_NAME).getChannel())) {
+				Scheduler.simulateProcessor(INPUT_NAME, TIMEOUT, SchedulerListener.both(new HistoryListener(history, compact), recorder));
+			}
+			assertEquals(Files.readAllLines(Paths.get(OUTPUT_NAME)), Files.readAllLines(Paths.get(LISTENER_OUTPUT_NAME)));
+			// Both listeners were told everything
+			assertEquals(LINES, recorder.completions);
+			if (compact)
+				assertTrue(Files.readAllLines(Paths.get(LISTENER_OUTPUT_NAME)).size() < recorder.lines.size());
+		}
+	}
+
+	@Test
+	public void testBoth() {
+		SchedulerListener recorder = new Recorder();
+		assertSame(recorder, SchedulerListener.both(SchedulerListener.NONE, recorder));
+		assertSame(recorder, SchedulerListener.both(recorder, SchedulerListener.NONE));
+		assertTrue(SchedulerListener.both(recorder, new Recorder()) != recorder);
+	}
+}
@@ -2,7 +2,15 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 import org.junit.AfterClass;
@@ -43,6 +51,19 @@ public class SchedulerTest {
 	public static final int TIMEOUT6 = 150;
 	public static final String OUTPUT_NAME6 = "ExpectedOutput6.txt";
 
+	public static final String INPUT_NAME7 = "InputExample7.txt";
+	public static final int TIMEOUT7 = 100;
+	public static final String OUTPUT_NAME7 = "ExpectedOutput7.txt";
+
+	// Every example with its timeout, for the tests that cross-check the simulations
+	public static final String[] EXAMPLE_INPUTS = { INPUT_NAME1, INPUT_NAME2, INPUT_NAME3, INPUT_NAME3, INPUT_NAME4, INPUT_NAME5, INPUT_NAME6, INPUT_NAME7 };
+	public static final int[] EXAMPLE_TIMEOUTS = { TIMEOUT1, TIMEOUT2, TIMEOUT3, TIMEOUT3v2, TIMEOUT4, TIMEOUT5, TIMEOUT6, TIMEOUT7 };
+
+	public static final String OUTPUT_NAME_MULTI = "ExpectedOutputMulti.txt";
+
+	public static final String INPUT_NAME_UNSORTED = "InputExampleUnsorted.txt";
+	public static final String OUTPUT_NAME_UNSORTED = "ExpectedOutputUnsorted.txt";
+
 	/**
 	 * This setup method creates several input files
 	 * for use with the simulator.
@@ -118,6 +139,11 @@ public class SchedulerTest {
 		ps6.println("500    350  Email");
 		ps6.println("5000   100  Data processing");
 		ps6.close();
+
+		PrintStream ps7 = new PrintStream(new File(INPUT_NAME7));
+		ps7.println("0      1000000  Long job");
+		ps7.println("250    10       Short job");
+		ps7.close();
 	}
 
 	/**
@@ -139,6 +165,11 @@ public class SchedulerTest {
 		new File(OUTPUT_NAME5).delete();
 		new File(INPUT_NAME6).delete();
 		new File(OUTPUT_NAME6).delete();
+		new File(INPUT_NAME7).delete();
+		new File(OUTPUT_NAME7).delete();
+		new File(OUTPUT_NAME_MULTI).delete();
+		new File(INPUT_NAME_UNSORTED).delete();
+		new File(OUTPUT_NAME_UNSORTED).delete();
 	}
 
 	/**
@@ -334,4 +365,193 @@ public class SchedulerTest {
 		assertEquals(scan6.nextLine(), "At time 5000: run \"Data processing\" for 100 time units");
 		scan6.close();
 	}
+
+	/**
+	 * Test that a process running alone for many timeout periods gives the
+	 * same output as running them one at a time, and the compact form.
+	 * 
+	 * @throws FileNotFoundException If input or output files
+	 *                               are not found/created.
+	 */
+	@Test
+	public void testUninterruptedPeriods() throws FileNotFoundException {
+		Scheduler.simulateProcessor(INPUT_NAME7, OUTPUT_NAME7, TIMEOUT7);
+		Scanner scan7 = new Scanner(new File(OUTPUT_NAME7));
+		// Long job runs alone until the short job arrives
+		assertEquals(scan7.nextLine(), "At time 0: run \"Long job\" for 100 time units");
+		assertEquals(scan7.nextLine(), "At time 100: run \"Long job\" for 100 time units");
+		assertEquals(scan7.nextLine(), "At time 200: run \"Long job\" for 100 time units");
+		assertEquals(scan7.nextLine(), "At time 300: run \"Short job\" for 10 time units");
+		// then alone again for the rest of its time, one line per period
+		for (int time = 310; time < 999910; time += TIMEOUT7)
+			assertEquals(scan7.nextLine(), "At time " + time + ": run \"Long job\" for 100 time units");
+		assertEquals(scan7.nextLine(), "At time 999910: run \"Long job\" for 100 time units");
+		assertFalse(scan7.hasNextLine());
+		scan7.close();
+
+		Scheduler.simulateProcessor(INPUT_NAME7, OUTPUT_NAME7, TIMEOUT7, null, true);
+		scan7 = new Scanner(new File(OUTPUT_NAME7));
+		assertEquals(scan7.nextLine(), "At time 0: run \"Long job\" for 3 x 100 time units");
+		assertEquals(scan7.nextLine(), "At time 300: run \"Short job\" for 10 time units");
+		assertEquals(scan7.nextLine(), "At time 310: run \"Long job\" for 9996 x 100 time units");
+		assertEquals(scan7.nextLine(), "At time 999910: run \"Long job\" for 100 time units");
+		assertFalse(scan7.hasNextLine());
+		scan7.close();
+
+		// Compact output is identical when no process ever runs alone
+		Scheduler.simulateProcessor(INPUT_NAME3, OUTPUT_NAME3, TIMEOUT3, null, true);
+		scan7 = new Scanner(new File(OUTPUT_NAME3));
+		assertEquals(scan7.nextLine(), "CPU idle from time 0 until time 75");
+		assertEquals(scan7.nextLine(), "At time 75: run \"Initialization\" for 50 time units");
+		scan7.close();
+	}
+
+	/**
+	 * Test that the multi-processor simulation with one processor gives the
+	 * same history as the single-processor simulation for every input.
+	 * 
+	 * @throws IOException If input or output files
+	 *                     cannot be read or written.
+	 */
+	@Test
+	public void testOneProcessor() throws IOException {
+		for (int i = 0; i < EXAMPLE_INPUTS.length; i++) {
+			Scheduler.simulateProcessor(EXAMPLE_INPUTS[i], OUTPUT_NAME1, EXAMPLE_TIMEOUTS[i]);
+			Scheduler.simulateProcessor(EXAMPLE_INPUTS[i], OUTPUT_NAME_MULTI, EXAMPLE_TIMEOUTS[i], 1);
+			List<String> single = Files.readAllLines(Paths.get(OUTPUT_NAME1));
+			List<String> multi = new ArrayList<>();
+			for (String line : Files.readAllLines(Paths.get(OUTPUT_NAME_MULTI)))
+				if (!line.startsWith("CPU 0 busy for "))
+					multi.add(line.replace(" on CPU 0:", ":").replace("CPU 0 idle", "CPU idle"));
+			assertEquals(EXAMPLE_INPUTS[i] + " with timeout " + EXAMPLE_TIMEOUTS[i], single, multi);
+		}
+	}
+
+	/**
+	 * Test the simulateProcessor method with two processors sharing the ready queue.
+	 * 
+	 * @throws FileNotFoundException If input or output files
+	 *                               are not found/created.
+	 */
+	@Test
+	public void testTwoProcessors() throws FileNotFoundException {
+		Scheduler.simulateProcessor(INPUT_NAME2, OUTPUT_NAME_MULTI, TIMEOUT2, 2);
+		Scanner scan = new Scanner(new File(OUTPUT_NAME_MULTI));
+		// Processes starting together go to the lowest numbered free processor first
+		assertEquals(scan.nextLine(), "At time 0 on CPU 0: run \"Initialization\" for 10 time units");
+		assertEquals(scan.nextLine(), "At time 0 on CPU 1: run \"Browser\" for 10 time units");
+		assertEquals(scan.nextLine(), "At time 10 on CPU 0: run \"iTunes\" for 100 time units");
+		// iTunes is alone, so it is put straight back on the same processor
+		assertEquals(scan.nextLine(), "At time 110 on CPU 0: run \"iTunes\" for 1 time units");
+		// Each processor reports its own idle periods
+		assertEquals(scan.nextLine(), "CPU 0 idle from time 111 until time 300");
+		assertEquals(scan.nextLine(), "At time 300 on CPU 0: run \"Safari\" for 100 time units");
+		assertEquals(scan.nextLine(), "At time 400 on CPU 0: run \"Safari\" for 100 time units");
+		assertEquals(scan.nextLine(), "At time 500 on CPU 0: run \"Safari\" for 10 time units");
+		// CPU 1 has been idle since Browser finished
+		assertEquals(scan.nextLine(), "CPU 1 idle from time 10 until time 500");
+		assertEquals(scan.nextLine(), "At time 500 on CPU 1: run \"Email\" for 40 time units");
+		// Utilization of each processor over the whole simulation
+		assertEquals(scan.nextLine(), "CPU 0 busy for 321 of 540 time units (59.4%)");
+		assertEquals(scan.nextLine(), "CPU 1 busy for 50 of 540 time units (9.3%)");
+		assertFalse(scan.hasNextLine());
+		scan.close();
+	}
+
+	/**
+	 * Test that the simulation driven by a RoundRobinPolicy gives the same
+	 * history as the built-in round robin simulation for every input.
+	 * 
+	 * @throws IOException If input or output files
+	 *                     cannot be read or written.
+	 */
+	@Test
+	public void testRoundRobinPolicy() throws IOException {
+		for (int i = 0; i < EXAMPLE_INPUTS.length; i++) {
+			Scheduler.simulateProcessor(EXAMPLE_INPUTS[i], OUTPUT_NAME1, EXAMPLE_TIMEOUTS[i]);
+			Scheduler.simulateProcessor(EXAMPLE_INPUTS[i], OUTPUT_NAME_MULTI, new RoundRobinPolicy(EXAMPLE_TIMEOUTS[i]));
+			assertEquals(EXAMPLE_INPUTS[i] + " with timeout " + EXAMPLE_TIMEOUTS[i],
+					Files.readAllLines(Paths.get(OUTPUT_NAME1)), Files.readAllLines(Paths.get(OUTPUT_NAME_MULTI)));
+		}
+	}
+
+	/**
+	 * Test the metrics returned by the simulation and their CSV form.
+	 * 
+	 * @throws FileNotFoundException If input or output files
+	 *                               are not found/created.
+	 */
+	@Test
+	public void testMetrics() throws FileNotFoundException {
+		SimulationResult result = Scheduler.simulateProcessor(INPUT_NAME2, OUTPUT_NAME2, TIMEOUT2);
+		assertEquals(1, result.processors());
+		assertEquals(5, result.processes());
+		assertEquals(550, result.makespan());
+		assertEquals(371, result.busyTime());
+		assertEquals(179, result.idleTime());
+		assertEquals(371 / 550.0, result.utilization(), 1e-9);
+		assertEquals(5 / 550.0, result.throughput(), 1e-9);
+		// iTunes running twice in a row and Safari three times are not switches
+		assertEquals(4, result.contextSwitches());
+		// Turnarounds 10, 20, 121, 210 and 50
+		assertEquals(82.2, result.turnaround().mean(), 1e-9);
+		assertEquals(210, result.turnaround().max());
+		// Browser waits 10, iTunes 20 and Email 10, each before its first run
+		assertEquals(8.0, result.waiting().mean(), 1e-9);
+		assertEquals(8.0, result.response().mean(), 1e-9);
+		assertEquals(20, result.response().max());
+
+		String[] header = SimulationResult.csvHeader().split(",");
+		String[] row = result.toCsvRow().split(",");
+		assertEquals(header.length, row.length);
+		assertEquals("processes", header[1]);
+		assertEquals("5", row[1]);
+		assertEquals("utilization", header[5]);
+		assertEquals("0.674545", row[5]);
+		assertEquals("turnaroundMean", header[8]);
+		assertEquals("82.200", row[8]);
+
+		// The same processes through a policy give the same metrics
+		assertEquals(result.toCsvRow(),
+				Scheduler.simulateProcessor(INPUT_NAME2, OUTPUT_NAME2, new RoundRobinPolicy(TIMEOUT2)).toCsvRow());
+
+		// Two processors: idle time and utilization count both of them
+		result = Scheduler.simulateProcessor(INPUT_NAME2, OUTPUT_NAME_MULTI, TIMEOUT2, 2);
+		assertEquals(2, result.processors());
+		assertEquals(540, result.makespan());
+		assertEquals(371, result.busyTime());
+		assertEquals(2 * 540 - 371, result.idleTime());
+		assertEquals(3, result.contextSwitches());
+		assertEquals(5, result.processes());
+	}
+
+	/**
+	 * Test that the lines of an input file can be in any order: shuffled input
+	 * gives the same output as the same lines sorted by start time, keeping
+	 * processes with equal start times in file order.
+	 *
+	 * @throws IOException If input or output files cannot be read or written
+	 */
+	@Test
+	public void testUnsortedInput() throws IOException {
+		// Sorted input gives the same output as the original simulation
+		Scheduler.simulateProcessor(INPUT_NAME1, OUTPUT_NAME1, TIMEOUT1);
+		Scheduler.simulateUnsorted(INPUT_NAME1, OUTPUT_NAME_UNSORTED, TIMEOUT1);
+		assertEquals(Files.readAllLines(Paths.get(OUTPUT_NAME1)), Files.readAllLines(Paths.get(OUTPUT_NAME_UNSORTED)));
+
+		Random random = new Random(22);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			int start = random.nextInt(4) == 0 ? random.nextInt(20000000) : random.nextInt(300000);
+			lines.add(start + " " + (1 + random.nextInt(5000)) + " Process " + i);
+		}
+		Files.write(Paths.get(INPUT_NAME_UNSORTED), lines);
+		SimulationResult unsorted = Scheduler.simulateUnsorted(INPUT_NAME_UNSORTED, OUTPUT_NAME_UNSORTED, 70);
+		// A stable sort keeps the file order of equal start times
+		Collections.sort(lines, Comparator.comparingInt(line -> Integer.parseInt(line.substring(0, line.indexOf(' ')))));
+		Files.write(Paths.get(INPUT_NAME_UNSORTED), lines);
+		SimulationResult sorted = Scheduler.simulateProcessor(INPUT_NAME_UNSORTED, OUTPUT_NAME_MULTI, 70);
+		assertEquals(Files.readAllLines(Paths.get(OUTPUT_NAME_MULTI)), Files.readAllLines(Paths.get(OUTPUT_NAME_UNSORTED)));
+		assertEquals(sorted.toCsvRow(), unsorted.toCsvRow());
+	}
 }
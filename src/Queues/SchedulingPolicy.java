@@ -0,0 +1,64 @@
+/**
+ * Decides which ready process the Scheduler runs next and for how long.
+ * The policy owns the ready processes: the simulation hands it each
+ * process when it arrives and each process kicked off the processor with
+ * time left, and asks it for the next one whenever the processor is free.
+ *
+ * The simulation calls next and then timeSlice for the same process
+ * before running it, so a policy may remember what it chose in next. A
+ * policy holds the state of one simulation and is not thread-safe.
+ */
+public interface SchedulingPolicy {
+	/**
+	 * Adds a process that has just arrived
+	 * @param process The arriving process
+	 * @param time Current simulation time
+	 */
+	public void arrive(Scheduler.Process process, int time);
+	/**
+	 * Detects whether any process is ready to run
+	 * @return True if no process is ready, false otherwise
+	 */
+	public boolean isEmpty();
+	/**
+	 * Removes and returns the process to run next
+	 * @param time Current simulation time
+	 * @return The chosen process
+	 * @throws EmptyQueueException if no process is ready
+	 */
+	public Scheduler.Process next(int time);
+	/**
+	 * Returns how long the process just returned by next may run before it
+	 * is kicked off. The simulation runs it for less if it finishes sooner.
+	 * @param process The process returned by the last call to next
+	 * @return Positive number of time units, or Integer.MAX_VALUE to run to completion
+	 */
+	public int timeSlice(Scheduler.Process process);
+	/**
+	 * Adds a process that was kicked off the processor with time left,
+	 * either at the end of its time slice or because of an arrival
+	 * @param process The process that was running
+	 * @param time Current simulation time
+	 * @param ran Number of time units it has just run for
+	 */
+	public void preempted(Scheduler.Process process, int time, int ran);
+	/**
+	 * Decides whether an arriving process kicks the running process off the
+	 * processor at once. Policies that only switch at the end of a time
+	 * slice keep the default, which never preempts.
+	 * @param running The process on the processor
+	 * @param remaining Time the running process will have left when the other arrives
+	 * @param arriving The process arriving
+	 * @return True to stop the running process when the other arrives
+	 */
+	public default boolean preempts(Scheduler.Process running, int remaining, Scheduler.Process arriving) {
+		return false;
+	}
+	/**
+	 * Tells the policy that a process has finished. The default does nothing.
+	 * @param process The process that finished
+	 * @param time Current simulation time
+	 */
+	public default void completed(Scheduler.Process process, int time) {
+	}
+}
@@ -0,0 +1,166 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests each scheduling policy on one small input whose history can be
+ * worked out by hand, and the lottery policy's draws on their own.
+ */
+public class SchedulingPolicyTest {
+
+	public static final String INPUT_NAME = "InputPolicies.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputPolicies.txt";
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		ps.println("0   100  A");
+		ps.println("10  30   B");
+		ps.println("20  10   C");
+		ps.println("60  5    D");
+		ps.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		new File(INPUT_NAME).delete();
+		new File(OUTPUT_NAME).delete();
+	}
+
+	/**
+	 * Runs the input with a policy and returns the history
+	 */
+	private static List<String> simulate(SchedulingPolicy policy) throws IOException {
+		Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, policy);
+		return Files.readAllLines(new File(OUTPUT_NAME).toPath());
+	}
+
+	/**
+	 * Formats a run line
+	 */
+	private static String run(int time, String name, int duration) {
+		return "At time " + time + ": run \"" + name + "\" for " + duration + " time units";
+	}
+
+	@Test
+	public void testFirstComeFirstServed() throws IOException {
+		assertEquals(Arrays.asList(
+				run(0, "A", 100),
+				run(100, "B", 30),
+				run(130, "C", 10),
+				run(140, "D", 5)), simulate(new FirstComeFirstServedPolicy()));
+	}
+
+	@Test
+	public void testShortestJobFirst() throws IOException {
+		// A is alone at time 0 and is not interrupted; then the shortest go first
+		assertEquals(Arrays.asList(
+				run(0, "A", 100),
+				run(100, "D", 5),
+				run(105, "C", 10),
+				run(115, "B", 30)), simulate(new ShortestJobFirstPolicy()));
+	}
+
+	@Test
+	public void testShortestRemainingTime() throws IOException {
+		// Each arrival needing less than the running process has left takes over
+		assertEquals(Arrays.asList(
+				run(0, "A", 10),
+				run(10, "B", 10),
+				run(20, "C", 10),
+				run(30, "B", 20),
+				run(50, "A", 10),
+				run(60, "D", 5),
+				run(65, "A", 80)), simulate(new ShortestRemainingTimePolicy()));
+	}
+
+	@Test
+	public void testPriority() throws IOException {
+		Map<String, Integer> priorities = new HashMap<>();
+		priorities.put("A", 2);
+		priorities.put("B", 1);
+		priorities.put("C", 3);
+		priorities.put("D", 0);
+		assertEquals(Arrays.asList(
+				run(0, "A", 10),
+				run(10, "B", 30),
+				run(40, "A", 20),
+				run(60, "D", 5),
+				run(65, "A", 50),
+				run(115, "A", 20),
+				run(135, "C", 10)), simulate(new PriorityPolicy(50, p -> priorities.get(p.getName()))));
+	}
+
+	@Test
+	public void testMultilevelFeedback() throws IOException {
+		assertEquals(Arrays.asList(
+				run(0, "A", 10),
+				run(10, "B", 10),
+				run(20, "C", 10),
+				// A and B used their whole slices and run with 20 at the second level
+				run(30, "A", 20),
+				// D arriving at the top level cuts B short, and B keeps its level
+				run(50, "B", 10),
+				run(60, "D", 5),
+				run(65, "B", 10),
+				// A sinks to the bottom level and stays there
+				run(75, "A", 40),
+				run(115, "A", 30)), simulate(new MultilevelFeedbackPolicy(3, 10, Integer.MAX_VALUE)));
+
+		// Boosting at time 50 brings A back to the top, ahead of D
+		List<String> boosted = simulate(new MultilevelFeedbackPolicy(3, 10, 50));
+		assertEquals(run(50, "B", 10), boosted.get(4));
+		assertEquals(run(60, "A", 10), boosted.get(5));
+		assertEquals(run(70, "D", 5), boosted.get(6));
+	}
+
+	@Test
+	public void testLotteryIsRepeatable() throws IOException {
+		List<String> first = simulate(new LotteryPolicy(10, 42));
+		assertEquals(first, simulate(new LotteryPolicy(10, 42)));
+		int total = 0;
+		for (String line : first)
+			total += Integer.parseInt(line.substring(line.indexOf(" for ") + 5, line.indexOf(" time units")));
+		assertEquals(145, total);
+	}
+
+	@Test
+	public void testLotteryShares() {
+		Scheduler.Process light = new Scheduler.Process(0, 1000000, "Light");
+		Scheduler.Process heavy = new Scheduler.Process(0, 1000000, "Heavy");
+		LotteryPolicy policy = new LotteryPolicy(1, 7, p -> p == heavy ? 3 : 1);
+		policy.arrive(light, 0);
+		policy.arrive(heavy, 0);
+		int heavyWins = 0;
+		for (int i = 0; i < 100000; i++) {
+			Scheduler.Process winner = policy.next(i);
+			if (winner == heavy)
+				heavyWins++;
+			policy.preempted(winner, i, 1);
+		}
+		assertEquals(75000, heavyWins, 1000);
+	}
+
+	@Test
+	public void testLotteryDrawsEachProcessOnce() {
+		LotteryPolicy policy = new LotteryPolicy(1, 3, p -> p.getTimeRemaining());
+		Map<Scheduler.Process, Boolean> drawn = new IdentityHashMap<>();
+		for (int i = 1; i <= 100; i++)
+			policy.arrive(new Scheduler.Process(0, i, "P" + i), 0);
+		while (!policy.isEmpty())
+			assertNull(drawn.put(policy.next(0), Boolean.TRUE));
+		assertEquals(100, drawn.size());
+	}
+}
@@ -0,0 +1,305 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An unbounded queue built from a linked list of fixed-size array chunks.
+ * Entries are added at the back of the last chunk and removed from the
+ * front of the first. When the last chunk fills up a new chunk is linked
+ * on, so growing never copies existing entries and there is no maximum
+ * capacity other than available memory. Chunks that have been fully
+ * drained are kept in a small pool for reuse and released to the garbage
+ * collector once the pool is full, so memory shrinks after a burst.
+ * Iterators walk the chunks front to back and are fail-fast.
+ */
+public class SegmentedQueue<T> implements QueueInterface<T> {
+
+	private static final int DEFAULT_CHUNK_SIZE = 1024;
+	private static final int DEFAULT_POOL_LIMIT = 4;
+
+	/**
+	 * One fixed-size block of entries and the link to the next block
+	 */
+	private static final class Chunk {
+		final Object[] entries;
+		Chunk next;
+
+		Chunk(int chunkSize) {
+			entries = new Object[chunkSize];
+		}
+	}
+
+	private final int chunkSize;
+	private final int poolLimit;
+	private Chunk frontChunk;
+	private Chunk backChunk;
+	private int frontIndex; // next slot to read in frontChunk
+	private int backIndex;  // next slot to write in backChunk
+	private int size;
+	private Chunk pool;     // singly linked stack of spare chunks
+	private int pooled;
+	private int modCount;   // changes whenever entries are added or removed
+
+	public SegmentedQueue() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_POOL_LIMIT);
+	}
+
+	/**
+	 * Creates an empty queue
+	 * @param chunkSize Number of entries per chunk
+	 * @param poolLimit Maximum number of drained chunks kept for reuse
+	 */
+	public SegmentedQueue(int chunkSize, int poolLimit) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		if (poolLimit < 0)
+			throw new IllegalArgumentException("Pool limit cannot be negative: " + poolLimit);
+		this.chunkSize = chunkSize;
+		this.poolLimit = poolLimit;
+		frontChunk = backChunk = new Chunk(chunkSize);
+	}
+
+	/**
+	 * Adds new entry to back of this queue
+	 * @param newEntry An object to be added
+	 */
+	@Override
+	public void enqueue(T newEntry) {
+		if (backIndex == chunkSize)
+			linkNewChunk();
+		backChunk.entries[backIndex++] = newEntry;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Adds a run of entries to back of this queue, in array order, with
+	 * one block copy per chunk touched
+	 * @param src Array holding the new entries
+	 * @param off Index in src of the first entry to add
+	 * @param len Number of entries to add
+	 * @throws IndexOutOfBoundsException if the run does not fit in src
+	 */
+	@Override
+	public void enqueueAll(T[] src, int off, int len) {
+		Objects.checkFromIndexSize(off, len, src.length);
+		int copied = 0;
+		while (copied < len) {
+			if (backIndex == chunkSize)
+				linkNewChunk();
+			int run = Math.min(len - copied, chunkSize - backIndex);
+			System.arraycopy(src, off + copied, backChunk.entries, backIndex, run);
+			backIndex += run;
+			copied += run;
+		}
+		size += len;
+		modCount++;
+	}
+
+	/**
+	 * Links a fresh chunk after the last one, taking it from the pool if possible.
+	 * Precondition: the last chunk is full
+	 */
+	private void linkNewChunk() {
+		Chunk chunk;
+		if (pool != null) {
+			chunk = pool;
+			pool = chunk.next;
+			chunk.next = null;
+			pooled--;
+		} else {
+			chunk = new Chunk(chunkSize);
+		}
+		backChunk.next = chunk;
+		backChunk = chunk;
+		backIndex = 0;
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T dequeue() {
+		T front = getFront();
+		frontChunk.entries[frontIndex++] = null; // let the entry be collected
+		size--;
+		modCount++;
+		advanceFront();
+		return front;
+	}
+
+	/**
+	 * Moves past the front chunk once it has been fully read, recycling it.
+	 * An empty queue always rewinds to the start of its single chunk.
+	 */
+	private void advanceFront() {
+		if (size == 0) {
+			// Release every chunk but one so an idle queue holds almost nothing
+			while (frontChunk != backChunk) {
+				Chunk drained = frontChunk;
+				frontChunk = drained.next;
+				recycle(drained);
+			}
+			frontIndex = backIndex = 0;
+		} else if (frontIndex == chunkSize) {
+			Chunk drained = frontChunk;
+			frontChunk = drained.next;
+			frontIndex = 0;
+			recycle(drained);
+		}
+	}
+
+	/**
+	 * Returns a drained chunk to the pool, or drops it if the pool is full
+	 * @param chunk Chunk whose slots have all been cleared
+	 */
+	private void recycle(Chunk chunk) {
+		chunk.next = null;
+		if (pooled < poolLimit) {
+			chunk.next = pool;
+			pool = chunk;
+			pooled++;
+		}
+	}
+
+	/**
+	 * Returns entry at front of this queue without modifying it
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T getFront() {
+		if (isEmpty())
+			throw new EmptyQueueException();
+		return (T) frontChunk.entries[frontIndex];
+	}
+
+	/**
+	 * Detects whether the queue is empty
+	 * @return True if the queue is empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of entries in this queue
+	 * @return Number of entries
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes up to max entries from the front of this queue and stores
+	 * them, in queue order, at the start of dst
+	 * @param dst Array receiving the entries
+	 * @param max Maximum number of entries to remove
+	 * @return Number of entries removed
+	 * @throws IndexOutOfBoundsException if max is negative or exceeds dst.length
+	 */
+	@Override
+	public int drainTo(T[] dst, int max) {
+		Objects.checkFromIndexSize(0, max, dst.length);
+		int count = Math.min(max, size);
+		int copied = 0;
+		while (copied < count) {
+			int run = Math.min(count - copied, readableInFrontChunk());
+			System.arraycopy(frontChunk.entries, frontIndex, dst, copied, run);
+			discardFront(run);
+			copied += run;
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all entries from this queue and adds them, in queue
+	 * order, to the given collection
+	 * @param dst Collection receiving the entries
+	 * @return Number of entries removed
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public int drainTo(Collection<? super T> dst) {
+		int count = size;
+		while (size > 0) {
+			int run = readableInFrontChunk();
+			dst.addAll((Collection<? extends T>) Arrays.asList(frontChunk.entries).subList(frontIndex, frontIndex + run));
+			discardFront(run);
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all entries from this queue
+	 */
+	@Override
+	public void clear() {
+		while (size > 0)
+			discardFront(readableInFrontChunk());
+	}
+
+	/**
+	 * Number of entries that can be read from the front chunk without
+	 * moving to the next one
+	 */
+	private int readableInFrontChunk() {
+		return frontChunk == backChunk ? backIndex - frontIndex : chunkSize - frontIndex;
+	}
+
+	/**
+	 * Null-fills count slots of the front chunk starting at frontIndex and
+	 * moves past them. Precondition: count is at most readableInFrontChunk()
+	 * @param count Number of entries to discard
+	 */
+	private void discardFront(int count) {
+		Arrays.fill(frontChunk.entries, frontIndex, frontIndex + count, null);
+		frontIndex += count;
+		size -= count;
+		modCount++;
+		advanceFront();
+	}
+
+	/**
+	 * Returns an iterator over the entries from front to back, without
+	 * removing them
+	 * @return Fail-fast iterator over this queue
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private final int expectedModCount = modCount;
+			private Chunk chunk = frontChunk;
+			private int index = frontIndex;
+			private int remaining = size;
+
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (remaining == 0)
+					throw new NoSuchElementException();
+				if (index == chunkSize) {
+					chunk = chunk.next;
+					index = 0;
+				}
+				remaining--;
+				return (T) chunk.entries[index++];
+			}
+		};
+	}
+}
@@ -0,0 +1,116 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the chunked queue. Most tests use a tiny chunk size so that
+ * every operation crosses chunk boundaries.
+ */
+public class SegmentedQueueTest {
+
+	private SegmentedQueue<String> sq1;
+	private SegmentedQueue<Integer> sq2;
+
+	@Before
+	public void setUp() throws Exception {
+		sq1 = new SegmentedQueue<>(2, 1);
+		sq1.enqueue("First");
+		sq1.enqueue("Second");
+		sq1.enqueue("Third");
+		sq2 = new SegmentedQueue<>();
+	}
+
+	@Test
+	public void testFifoAcrossChunks() {
+		assertEquals(3, sq1.size());
+		assertEquals("First", sq1.getFront());
+		assertEquals("First", sq1.dequeue());
+		assertEquals("Second", sq1.dequeue());
+		sq1.enqueue("Fourth");
+		sq1.enqueue("Fifth");
+		assertEquals("Third", sq1.dequeue());
+		assertEquals("Fourth", sq1.dequeue());
+		assertEquals("Fifth", sq1.getFront());
+		assertEquals("Fifth", sq1.dequeue());
+		assertTrue(sq1.isEmpty());
+
+		boolean exception = false;
+		try {
+			sq1.dequeue();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		exception = false;
+		try {
+			sq2.getFront();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+
+		// Queue keeps working after it has been emptied
+		sq1.enqueue("Again");
+		assertEquals("Again", sq1.dequeue());
+	}
+
+	@Test
+	public void testNoMaximumCapacity() {
+		// Well past CircularArrayQueue's limit of 10000 entries
+		for (int i = 0; i < 1_000_000; i++)
+			sq2.enqueue(i);
+		assertEquals(1_000_000, sq2.size());
+		for (int i = 0; i < 1_000_000; i++)
+			assertEquals(i, sq2.dequeue().intValue());
+		assertTrue(sq2.isEmpty());
+	}
+
+	@Test
+	public void testBulkOperations() {
+		String[] batch = {"x", "Fourth", "Fifth", "Sixth", "Seventh", "x"};
+		sq1.enqueueAll(batch, 1, 4);
+		assertEquals(7, sq1.size());
+
+		String[] out = new String[5];
+		assertEquals(5, sq1.drainTo(out, 5));
+		assertEquals("First", out[0]);
+		assertEquals("Third", out[2]);
+		assertEquals("Fifth", out[4]);
+		assertEquals(2, sq1.size());
+
+		List<String> rest = new ArrayList<>();
+		assertEquals(2, sq1.drainTo(rest));
+		assertEquals("Sixth", rest.get(0));
+		assertEquals("Seventh", rest.get(1));
+		assertTrue(sq1.isEmpty());
+		assertEquals(0, sq1.drainTo(out, 5));
+	}
+
+	@Test
+	public void testClear() {
+		for (int i = 0; i < 10; i++)
+			sq1.enqueue("Entry " + i);
+		sq1.clear();
+		assertTrue(sq1.isEmpty());
+		assertEquals(0, sq1.size());
+		sq1.enqueue("After clear");
+		assertEquals("After clear", sq1.getFront());
+	}
+
+	@Test
+	public void testIterator() {
+		sq1.dequeue(); // iteration starts part way into a chunk
+		List<String> seen = new ArrayList<>();
+		for (String s : sq1)
+			seen.add(s);
+		assertEquals(2, seen.size());
+		assertEquals("Second", seen.get(0));
+		assertEquals("Third", seen.get(1));
+		assertEquals(2, sq1.size());
+		assertEquals(2, sq1.stream().count());
+	}
+}
@@ -0,0 +1,36 @@
+/**
+ * Shortest job first: whenever the processor is free, the ready process
+ * with the least time remaining runs to completion. Ties go in arrival
+ * order. The ready processes are kept in a DaryHeapPriorityQueue keyed by
+ * remaining time, so choosing one costs O(log n).
+ */
+public class ShortestJobFirstPolicy implements SchedulingPolicy {
+
+	protected final DaryHeapPriorityQueue<Scheduler.Process> readyQueue =
+			new DaryHeapPriorityQueue<>(Scheduler.Process::getTimeRemaining);
+
+	@Override
+	public void arrive(Scheduler.Process process, int time) {
+		readyQueue.enqueue(process);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return readyQueue.isEmpty();
+	}
+
+	@Override
+	public Scheduler.Process next(int time) {
+		return readyQueue.dequeue();
+	}
+
+	@Override
+	public int timeSlice(Scheduler.Process process) {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public void preempted(Scheduler.Process process, int time, int ran) {
+		readyQueue.enqueue(process);
+	}
+}
@@ -0,0 +1,13 @@
+/**
+ * Shortest remaining time first, the preemptive form of shortest job
+ * first: an arriving process that needs less time than the running one
+ * has left takes over the processor at once, and the running process goes
+ * back into the heap keyed by what it has left.
+ */
+public class ShortestRemainingTimePolicy extends ShortestJobFirstPolicy {
+
+	@Override
+	public boolean preempts(Scheduler.Process running, int remaining, Scheduler.Process arriving) {
+		return arriving.getTimeRemaining() < remaining;
+	}
+}
@@ -0,0 +1,203 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * The state of a single-processor round robin simulation between two
+ * scheduling steps, enough to carry on as if it had never stopped: the
+ * simulation time, the ready queue in order with each process's remaining
+ * and first run times, the process read from the input but not arrived
+ * yet, the metrics so far, and how far the input has been read and the
+ * history written. Nothing else is needed, since the input is read in
+ * order and processes that have finished are only counted in the metrics.
+ *
+ * The snapshot is a small binary file: a header, the fields in big-endian
+ * order with each name as a length and its bytes, and a CRC-32C of
+ * everything before it. It is written to a temporary file next to the
+ * checkpoint, forced to disk and renamed over the checkpoint, so the
+ * checkpoint is always either the previous snapshot or the new one.
+ */
+final class SimulationCheckpoint {
+
+	static final int CHECKPOINT_MAGIC = 0x5343484B; // "SCHK"
+	static final int VERSION = 1;
+	static final int NONE = -1;
+
+	final int timeout;
+	final boolean compact;
+	final long inputOffset;
+	final long outputLength;
+	final int time;
+	final SimulationResult result;
+	final ProcessTable processes;
+	final int[] ready;   // table indices from the front of the ready queue
+	final int pending;   // table index of the process read ahead, or NONE
+
+	/**
+	 * Captures the state of a simulation. Nothing is copied, so it must be
+	 * written before the simulation goes on.
+	 * @param timeout Timeout of the simulation
+	 * @param compact True if repeated periods are written as one line
+	 * @param inputOffset Number of input bytes read
+	 * @param outputLength Number of history bytes written
+	 * @param time Current simulation time
+	 * @param result Metrics so far
+	 * @param processes Table holding the processes below
+	 * @param ready Processes in the ready queue, front first
+	 * @param pending Process read ahead but not arrived, or NONE
+	 */
+	SimulationCheckpoint(int timeout, boolean compact, long inputOffset, long outputLength, int time,
+			SimulationResult result, ProcessTable processes, int[] ready, int pending) {
+		this.timeout = timeout;
+		this.compact = compact;
+		this.inputOffset = inputOffset;
+		this.outputLength = outputLength;
+		this.time = time;
+		this.result = result;
+		this.processes = processes;
+		this.ready = ready;
+		this.pending = pending;
+	}
+
+	/**
+	 * Replaces a checkpoint file with this snapshot
+	 * @param file Checkpoint file
+	 * @throws IOException If the snapshot cannot be written or renamed
+	 */
+	void write(Path file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(CHECKPOINT_MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(timeout);
+		out.writeBoolean(compact);
+		out.writeLong(inputOffset);
+		out.writeLong(outputLength);
+		out.writeInt(time);
+		result.writeTo(out);
+		out.writeInt(lastRunPosition());
+		out.writeInt(ready.length);
+		for (int process : ready)
+			writeProcess(out, process);
+		out.writeBoolean(pending != NONE);
+		if (pending != NONE)
+			writeProcess(out, pending);
+		CRC32C checksum = new CRC32C();
+		checksum.update(bytes.toByteArray());
+		out.writeInt((int) checksum.getValue());
+		out.flush();
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			channel.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Finds the process the processor ran last in the ready queue, since its
+	 * table index will be different when the snapshot is read
+	 * @return Its position in ready, or the negative value the result holds
+	 */
+	private int lastRunPosition() {
+		int lastRun = result.lastRun(0);
+		if (lastRun < 0)
+			return lastRun;
+		for (int i = 0; i < ready.length; i++)
+			if (ready[i] == lastRun)
+				return i;
+		throw new IllegalStateException("Process last run is not ready: " + lastRun);
+	}
+
+	/**
+	 * Writes the fields of one process
+	 */
+	private void writeProcess(DataOutputStream out, int process) throws IOException {
+		out.writeInt(processes.startTime(process));
+		out.writeInt(processes.duration(process));
+		out.writeInt(processes.remaining(process));
+		out.writeInt(processes.firstRun(process));
+		out.writeInt(processes.nameLength(process));
+		out.write(processes.names(), processes.nameOffset(process), processes.nameLength(process));
+	}
+
+	/**
+	 * Reads a checkpoint file into a new ProcessTable and SimulationResult
+	 * @param file Checkpoint file
+	 * @return The snapshot
+	 * @throws IOException If the file cannot be read
+	 * @throws StreamCorruptedException If the file is not a checkpoint or is damaged
+	 */
+	static SimulationCheckpoint read(Path file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		if (bytes.length < 12)
+			throw new StreamCorruptedException("Checkpoint is too short");
+		CRC32C checksum = new CRC32C();
+		checksum.update(bytes, 0, bytes.length - 4);
+		int stored = ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+		int magic = in.readInt();
+		if (magic != CHECKPOINT_MAGIC)
+			throw new StreamCorruptedException(String.format("Expected magic number %08x but found %08x", CHECKPOINT_MAGIC, magic));
+		if (stored != (int) checksum.getValue())
+			throw new StreamCorruptedException("Checkpoint checksum mismatch");
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new StreamCorruptedException("Unsupported version " + version);
+		try {
+			int timeout = in.readInt();
+			boolean compact = in.readBoolean();
+			long inputOffset = in.readLong();
+			long outputLength = in.readLong();
+			int time = in.readInt();
+			SimulationResult result = SimulationResult.readFrom(in);
+			int lastRun = in.readInt();
+			int count = in.readInt();
+			if (count < 0 || lastRun >= count)
+				throw new StreamCorruptedException("Bad ready queue of " + count + " processes");
+			ProcessTable processes = new ProcessTable();
+			int[] ready = new int[count];
+			for (int i = 0; i < count; i++)
+				ready[i] = readProcess(in, processes);
+			int pending = in.readBoolean() ? readProcess(in, processes) : NONE;
+			result.restoreLastRun(0, lastRun < 0 ? lastRun : ready[lastRun]);
+			return new SimulationCheckpoint(timeout, compact, inputOffset, outputLength, time, result, processes, ready, pending);
+		} catch (EOFException e) {
+			throw new StreamCorruptedException("Checkpoint ends early");
+		} catch (IllegalArgumentException e) {
+			throw new StreamCorruptedException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the fields of one process into a table
+	 * @return Its index in the table
+	 */
+	private static int readProcess(DataInputStream in, ProcessTable processes) throws IOException {
+		int startTime = in.readInt();
+		int duration = in.readInt();
+		int remaining = in.readInt();
+		int firstRun = in.readInt();
+		int length = in.readInt();
+		if (length < 0 || length > in.available())
+			throw new StreamCorruptedException("Bad name length " + length);
+		byte[] name = new byte[length];
+		in.readFully(name);
+		return processes.restore(startTime, duration, remaining, firstRun, name, 0, length);
+	}
+}
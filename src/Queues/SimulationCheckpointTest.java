@@ -0,0 +1,128 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests saving the state of the round robin simulation to checkpoints and
+ * resuming it, with the resumed output the same as an uninterrupted run.
+ */
+public class SimulationCheckpointTest {
+
+	public static final String INPUT_NAME = "InputCheckpoint.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputCheckpoint.txt";
+	public static final String CHECKPOINTED_OUTPUT_NAME = "OutputCheckpointed.txt";
+	public static final String CHECKPOINT_NAME = "Checkpoint.bin";
+	public static final int LINES = 3000;
+	public static final int TIMEOUT = 90;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Random random = new Random(25);
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		int start = 0;
+		for (int i = 0; i < LINES; i++) {
+			start += random.nextInt(3) == 0 ? random.nextInt(1500) : 0;
+			// Some long processes so that runs of periods are compacted
+			int duration = 1 + random.nextInt(random.nextInt(20) == 0 ? 20000 : 400);
+			ps.println(start + "\t" + duration + "  Job  " + (i % 70));
+		}
+		ps.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		for (String file : new String[] {INPUT_NAME, OUTPUT_NAME, CHECKPOINTED_OUTPUT_NAME, CHECKPOINT_NAME,
+				CHECKPOINT_NAME + ".tmp"})
+			new File(file).delete();
+	}
+
+	@Test
+	public void testResumeMatchesUninterruptedRun() throws IOException {
+		for (boolean compact : new boolean[] {false, true}) {
+			SimulationResult expected = Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, TIMEOUT, null, compact);
+			byte[] expectedBytes = Files.readAllBytes(Paths.get(OUTPUT_NAME));
+			// Each interval leaves its last checkpoint at a different point of the run
+			for (int interval : new int[] {1, 7, 250, 1999}) {
+				Files.deleteIfExists(Paths.get(CHECKPOINT_NAME));
+				SimulationResult checkpointed = Scheduler.simulateProcessor(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, TIMEOUT,
+						compact, CHECKPOINT_NAME, interval);
+				assertArrayEquals(expectedBytes, Files.readAllBytes(Paths.get(CHECKPOINTED_OUTPUT_NAME)));
+				assertEquals(expected.toCsvRow(), checkpointed.toCsvRow());
+				assertTrue(new File(CHECKPOINT_NAME).exists());
+
+				// Output written after the checkpoint is replaced
+				Files.write(Paths.get(CHECKPOINTED_OUTPUT_NAME), "partial line".getBytes(), StandardOpenOption.APPEND);
+				SimulationResult resumed = Scheduler.resume(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, CHECKPOINT_NAME, interval);
+				assertArrayEquals(expectedBytes, Files.readAllBytes(Paths.get(CHECKPOINTED_OUTPUT_NAME)));
+				assertEquals(expected.toCsvRow(), resumed.toCsvRow());
+			}
+		}
+	}
+
+	@Test
+	public void testCheckpointContents() throws IOException {
+		Files.deleteIfExists(Paths.get(CHECKPOINT_NAME));
+		Scheduler.simulateProcessor(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, TIMEOUT, false, CHECKPOINT_NAME, 500);
+		SimulationCheckpoint saved = SimulationCheckpoint.read(Paths.get(CHECKPOINT_NAME));
+		assertEquals(TIMEOUT, saved.timeout);
+		assertFalse(saved.compact);
+		assertTrue(saved.inputOffset > 0 && saved.inputOffset <= new File(INPUT_NAME).length());
+		assertTrue(saved.outputLength > 0 && saved.outputLength < new File(CHECKPOINTED_OUTPUT_NAME).length());
+		assertEquals(saved.ready.length + (saved.pending < 0 ? 0 : 1), saved.processes.size());
+		for (int process : saved.ready) {
+			assertTrue(saved.processes.remaining(process) > 0);
+			assertTrue(saved.processes.name(process).startsWith("Job "));
+		}
+		// No temporary file is left behind by the rename
+		assertFalse(new File(CHECKPOINT_NAME + ".tmp").exists());
+	}
+
+	@Test
+	public void testDamagedCheckpoint() throws IOException {
+		Files.deleteIfExists(Paths.get(CHECKPOINT_NAME));
+		Scheduler.simulateProcessor(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, TIMEOUT, false, CHECKPOINT_NAME, 100);
+		byte[] bytes = Files.readAllBytes(Paths.get(CHECKPOINT_NAME));
+		for (int position : new int[] {0, 20, bytes.length / 2, bytes.length - 1}) {
+			byte[] damaged = bytes.clone();
+			damaged[position] ^= 0x10;
+			Files.write(Paths.get(CHECKPOINT_NAME), damaged);
+			try {
+				Scheduler.resume(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, CHECKPOINT_NAME, 100);
+				fail("Damage at " + position + " not detected");
+			} catch (StreamCorruptedException e) {
+				// expected
+			}
+		}
+		Files.write(Paths.get(CHECKPOINT_NAME), Arrays.copyOf(bytes, bytes.length / 2));
+		try {
+			Scheduler.resume(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, CHECKPOINT_NAME, 100);
+			fail("Truncation not detected");
+		} catch (StreamCorruptedException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = NoSuchFileException.class)
+	public void testMissingCheckpoint() throws IOException {
+		Files.deleteIfExists(Paths.get(CHECKPOINT_NAME));
+		Scheduler.resume(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, CHECKPOINT_NAME, 100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInterval() throws IOException {
+		Scheduler.simulateProcessor(INPUT_NAME, CHECKPOINTED_OUTPUT_NAME, TIMEOUT, false, CHECKPOINT_NAME, 0);
+	}
+}
@@ -0,0 +1,324 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Scheduling metrics of one simulation, gathered while it runs so the
+ * history file never has to be read back: per-process turnaround, waiting
+ * and first-response times, processor utilization and idle time, context
+ * switches and throughput.
+ *
+ * The per-process times go into LogLinearHistograms, so the memory used is
+ * the same for ten processes or ten billion, and means are exact while
+ * percentiles are within about 3%. Waiting time is the time a process was
+ * ready but not running, which is its turnaround minus its duration.
+ *
+ * Context switches are counted by remembering the process each processor
+ * ran last, in one of two ways. The multi-processor and policy loops run
+ * Scheduler.Process objects, which use ran(int, Object, long) and are
+ * compared by identity; an object is never reused, so nothing needs
+ * forgetting. The single-processor round robin loop runs ProcessTable
+ * indices, and ProcessTable.run uses ran(int, int, long) and calls vacated
+ * when a process finishes, since its index may go to a later process.
+ *
+ * A result is filled in by the Scheduler and must not be used until the
+ * simulation that returned it has finished.
+ */
+public final class SimulationResult {
+
+	private static final String[] COLUMNS = {
+		"processors", "processes", "makespan", "busy", "idle", "utilization", "contextSwitches", "throughput",
+		"turnaroundMean", "turnaroundP50", "turnaroundP90", "turnaroundP99", "turnaroundMax",
+		"waitingMean", "waitingP50", "waitingP90", "waitingP99", "waitingMax",
+		"responseMean", "responseP50", "responseP90", "responseP99", "responseMax"
+	};
+
+	private static final int NONE = -1;
+	private static final int VACATED = -2;
+
+	private final int processors;
+	private final Object[] lastRun; // process last put on each processor
+	private final int[] lastRunIndex; // or its ProcessTable index, for simulations on a table
+	private final LogLinearHistogram turnaround = new LogLinearHistogram();
+	private final LogLinearHistogram waiting = new LogLinearHistogram();
+	private final LogLinearHistogram response = new LogLinearHistogram();
+	private long makespan;
+	private long busyTime;
+	private long contextSwitches;
+
+	/**
+	 * Creates an empty result for a simulation
+	 * @param processors Number of processors simulated
+	 */
+	SimulationResult(int processors) {
+		this.processors = processors;
+		lastRun = new Object[processors];
+		lastRunIndex = new int[processors];
+		Arrays.fill(lastRunIndex, NONE);
+	}
+
+	/**
+	 * Records a process being put on a processor. Switching to a different
+	 * process than the one the processor ran last counts as a context switch;
+	 * the first process a processor runs does not.
+	 * @param cpu Index of the processor
+	 * @param process The process, compared by identity
+	 * @param duration Number of time units it runs for
+	 */
+	void ran(int cpu, Object process, long duration) {
+		if (lastRun[cpu] != process) {
+			if (lastRun[cpu] != null)
+				contextSwitches++;
+			lastRun[cpu] = process;
+		}
+		busyTime += duration;
+	}
+
+	/**
+	 * Records a process of a ProcessTable being put on a processor, counting
+	 * context switches as ran(int, Object, long) does
+	 * @param cpu Index of the processor
+	 * @param process Index of the process in its table
+	 * @param duration Number of time units it runs for
+	 */
+	void ran(int cpu, int process, long duration) {
+		if (lastRunIndex[cpu] != process) {
+			if (lastRunIndex[cpu] != NONE)
+				contextSwitches++;
+			lastRunIndex[cpu] = process;
+		}
+		busyTime += duration;
+	}
+
+	/**
+	 * Records that the process a processor ran last has finished, so that
+	 * whatever runs there next counts as a switch even if it was given the
+	 * finished process's table index
+	 * @param cpu Index of the processor
+	 */
+	void vacated(int cpu) {
+		if (lastRunIndex[cpu] != NONE)
+			lastRunIndex[cpu] = VACATED;
+	}
+
+	/**
+	 * Returns the ProcessTable index of the process a processor ran last,
+	 * for saving the state of a simulation
+	 * @param cpu Index of the processor
+	 * @return Index of the process, or a negative value if it has not run one or it finished
+	 */
+	int lastRun(int cpu) {
+		return lastRunIndex[cpu];
+	}
+
+	/**
+	 * Sets the process a processor ran last when a saved simulation is
+	 * restored, so that the next switch is counted as it would have been
+	 * @param cpu Index of the processor
+	 * @param process Index of the process in the restored table, or a value returned by lastRun if negative
+	 */
+	void restoreLastRun(int cpu, int process) {
+		lastRunIndex[cpu] = process;
+	}
+
+	/**
+	 * Records a process finishing
+	 * @param arrival Start time of the process
+	 * @param duration Time it needed on the processor
+	 * @param firstRun Time it was first put on a processor
+	 * @param completion Time it finished
+	 */
+	void completed(int arrival, int duration, int firstRun, int completion) {
+		long processTurnaround = (long) completion - arrival;
+		turnaround.record(processTurnaround);
+		waiting.record(processTurnaround - duration);
+		response.record((long) firstRun - arrival);
+	}
+
+	/**
+	 * Records the end of the simulation
+	 * @param time Time the last process finished
+	 */
+	void finish(long time) {
+		makespan = time;
+	}
+
+	/**
+	 * Writes the metrics gathered so far in binary, apart from the last
+	 * process run on each processor, which refers to a ProcessTable
+	 * @param out Destination
+	 * @throws IOException If writing fails
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(processors);
+		out.writeLong(makespan);
+		out.writeLong(busyTime);
+		out.writeLong(contextSwitches);
+		turnaround.writeTo(out);
+		waiting.writeTo(out);
+		response.writeTo(out);
+	}
+
+	/**
+	 * Reads metrics written by writeTo, to continue a simulation from
+	 * @param in Source
+	 * @return Result holding the metrics
+	 * @throws IOException If reading fails
+	 * @throws StreamCorruptedException If the number of processors is not positive
+	 */
+	static SimulationResult readFrom(DataInput in) throws IOException {
+		int processors = in.readInt();
+		if (processors < 1)
+			throw new StreamCorruptedException("Bad number of processors: " + processors);
+		SimulationResult result = new SimulationResult(processors);
+		result.makespan = in.readLong();
+		result.busyTime = in.readLong();
+		result.contextSwitches = in.readLong();
+		result.turnaround.readFrom(in);
+		result.waiting.readFrom(in);
+		result.response.readFrom(in);
+		return result;
+	}
+
+	/**
+	 * @return Number of processors simulated
+	 */
+	public int processors() {
+		return processors;
+	}
+
+	/**
+	 * @return Number of processes that ran to completion
+	 */
+	public long processes() {
+		return turnaround.count();
+	}
+
+	/**
+	 * @return Time the last process finished
+	 */
+	public long makespan() {
+		return makespan;
+	}
+
+	/**
+	 * @return Time units processors spent running processes, summed over processors
+	 */
+	public long busyTime() {
+		return busyTime;
+	}
+
+	/**
+	 * @return Time units processors spent idle before the last process finished,
+	 *         summed over processors
+	 */
+	public long idleTime() {
+		return makespan * processors - busyTime;
+	}
+
+	/**
+	 * @return Fraction of processor time spent running processes, from 0 to 1
+	 */
+	public double utilization() {
+		return makespan == 0 ? 0.0 : (double) busyTime / (makespan * processors);
+	}
+
+	/**
+	 * @return Number of times a processor switched from one process to another
+	 */
+	public long contextSwitches() {
+		return contextSwitches;
+	}
+
+	/**
+	 * @return Processes completed per time unit
+	 */
+	public double throughput() {
+		return makespan == 0 ? 0.0 : (double) processes() / makespan;
+	}
+
+	/**
+	 * @return Time from arrival to completion of each process
+	 */
+	public LogLinearHistogram turnaround() {
+		return new LogLinearHistogram(turnaround);
+	}
+
+	/**
+	 * @return Time each process was ready but not running
+	 */
+	public LogLinearHistogram waiting() {
+		return new LogLinearHistogram(waiting);
+	}
+
+	/**
+	 * @return Time from arrival of each process to its first time on a processor
+	 */
+	public LogLinearHistogram response() {
+		return new LogLinearHistogram(response);
+	}
+
+	/**
+	 * Returns the names of the columns of toCsvRow, separated by commas
+	 * @return Header line without a line separator
+	 */
+	public static String csvHeader() {
+		return String.join(",", COLUMNS);
+	}
+
+	/**
+	 * Formats the metrics as one line of comma-separated values, in the
+	 * order of csvHeader, so the results of many runs can be collected in
+	 * one file
+	 * @return Data line without a line separator
+	 */
+	public String toCsvRow() {
+		List<String> values = new ArrayList<>();
+		values.add(Integer.toString(processors));
+		values.add(Long.toString(processes()));
+		values.add(Long.toString(makespan));
+		values.add(Long.toString(busyTime));
+		values.add(Long.toString(idleTime()));
+		values.add(String.format(Locale.ROOT, "%.6f", utilization()));
+		values.add(Long.toString(contextSwitches));
+		values.add(String.format(Locale.ROOT, "%.6f", throughput()));
+		addSummary(values, turnaround);
+		addSummary(values, waiting);
+		addSummary(values, response);
+		return String.join(",", values);
+	}
+
+	/**
+	 * Adds the mean, percentiles and maximum of a histogram to a row
+	 */
+	private static void addSummary(List<String> values, LogLinearHistogram histogram) {
+		values.add(String.format(Locale.ROOT, "%.3f", histogram.mean()));
+		values.add(Long.toString(histogram.valueAtPercentile(50)));
+		values.add(Long.toString(histogram.valueAtPercentile(90)));
+		values.add(Long.toString(histogram.valueAtPercentile(99)));
+		values.add(Long.toString(histogram.max()));
+	}
+
+	/**
+	 * Formats the main metrics as name=value pairs on one line
+	 * @return Text suitable for a log
+	 */
+	@Override
+	public String toString() {
+		List<String> fields = new ArrayList<>();
+		fields.add("processes=" + processes());
+		fields.add("makespan=" + makespan);
+		fields.add("idle=" + idleTime());
+		fields.add(String.format("utilization=%.1f%%", utilization() * 100));
+		fields.add("contextSwitches=" + contextSwitches);
+		fields.add(String.format("meanTurnaround=%.1f", turnaround.mean()));
+		fields.add(String.format("meanWaiting=%.1f", waiting.mean()));
+		fields.add(String.format("meanResponse=%.1f", response.mean()));
+		return String.join(" ", fields);
+	}
+}
@@ -0,0 +1,350 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Padding that keeps the producer counter off the cache line of
+ * whatever object header or field precedes it.
+ */
+abstract class SpscRingBufferPad0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * Fields written only by the producer thread.
+ */
+abstract class SpscRingBufferProducerFields extends SpscRingBufferPad0 {
+	long tail;       // next slot to write, published with release semantics
+	long cachedHead; // producer's last view of head, refreshed only when full
+}
+
+/**
+ * Padding between the producer and consumer counters.
+ */
+abstract class SpscRingBufferPad1 extends SpscRingBufferProducerFields {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * Fields written only by the consumer thread.
+ */
+abstract class SpscRingBufferConsumerFields extends SpscRingBufferPad1 {
+	long head;       // next slot to read, published with release semantics
+	long cachedTail; // consumer's last view of tail, refreshed only when empty
+}
+
+/**
+ * Padding that keeps the consumer counter off the cache line of
+ * the buffer reference and anything allocated after this object.
+ */
+abstract class SpscRingBufferPad2 extends SpscRingBufferConsumerFields {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * A bounded, lock-free ring buffer for exactly one producer thread and
+ * one consumer thread. Like CircularArrayQueue, entries are never moved;
+ * unlike it, the head and tail counters only ever increase and are mapped
+ * onto a power-of-two array with a mask, so a full buffer needs no spare
+ * slot and no modulo is taken on the hot path.
+ *
+ * The producer publishes a slot by storing the entry and then writing tail
+ * with release semantics; the consumer reads tail with acquire semantics
+ * before reading the slot (and symmetrically for head). Each side caches
+ * the other side's counter and only re-reads it when the buffer looks full
+ * or empty, so in steady state neither thread touches the other's cache line.
+ *
+ * enqueue, enqueueAll and offer may only be called from the producer
+ * thread; dequeue, poll, getFront, drainTo and clear only from the
+ * consumer thread. Null entries are
+ * not permitted because poll uses null to report an empty buffer.
+ *
+ * iterator may be called from any thread, for example to monitor the
+ * buffer. It is weakly consistent: it never throws
+ * ConcurrentModificationException, visits entries in queue order, skips
+ * entries the consumer removes while it runs and does not see entries
+ * added after it was created.
+ */
+public class SpscRingBuffer<T> extends SpscRingBufferPad2
+				implements QueueInterface<T> {
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final VarHandle HEAD;
+	private static final VarHandle TAIL;
+	private static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			HEAD = lookup.findVarHandle(SpscRingBufferConsumerFields.class, "head", long.class);
+			TAIL = lookup.findVarHandle(SpscRingBufferProducerFields.class, "tail", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final T[] buffer;
+	private final int mask;
+
+	/**
+	 * Creates a ring buffer holding at least the requested number of entries.
+	 * The capacity is rounded up to the next power of two.
+	 * @param requestedCapacity Minimum number of entries the buffer can hold
+	 */
+	@SuppressWarnings("unchecked")
+	public SpscRingBuffer(int requestedCapacity) {
+		if (requestedCapacity < 1 || requestedCapacity > MAXIMUM_CAPACITY)
+			throw new IllegalArgumentException("Capacity must be between 1 and " +
+											MAXIMUM_CAPACITY + ": " + requestedCapacity);
+		int capacity = Integer.highestOneBit(requestedCapacity);
+		if (capacity < requestedCapacity)
+			capacity <<= 1;
+		buffer = (T[]) new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the number of entries the buffer can hold
+	 * @return Power-of-two capacity
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Adds new entry to back of this queue if there is room.
+	 * Producer thread only.
+	 * @param newEntry An object to be added, not null
+	 * @return True if the entry was added, false if the buffer is full
+	 */
+	public boolean offer(T newEntry) {
+		if (newEntry == null)
+			throw new NullPointerException("Null entries are not permitted");
+		long currentTail = tail;
+		if (currentTail - cachedHead >= buffer.length) {
+			cachedHead = (long) HEAD.getAcquire(this);
+			if (currentTail - cachedHead >= buffer.length)
+				return false;
+		}
+		buffer[(int) currentTail & mask] = newEntry;
+		TAIL.setRelease(this, currentTail + 1);
+		return true;
+	}
+
+	/**
+	 * Adds new entry to back of this queue. Producer thread only.
+	 * @param newEntry An object to be added, not null
+	 * @throws IllegalStateException if the buffer is full
+	 */
+	@Override
+	public void enqueue(T newEntry) {
+		if (!offer(newEntry))
+			throw new IllegalStateException("Queue is full");
+	}
+
+	/**
+	 * Adds a run of entries to back of this queue and publishes them
+	 * to the consumer with a single release store. Producer thread only.
+	 * @param src Array holding the new entries, none of them null
+	 * @param off Index in src of the first entry to add
+	 * @param len Number of entries to add
+	 * @throws IllegalStateException if the buffer cannot hold all of them; nothing is added
+	 * @throws NullPointerException if any of them is null; nothing is added
+	 */
+	@Override
+	public void enqueueAll(T[] src, int off, int len) {
+		Objects.checkFromIndexSize(off, len, src.length);
+		// Check first, so a null leaves no references behind in the slots
+		for (int i = off; i < off + len; i++)
+			if (src[i] == null)
+				throw new NullPointerException("Null entries are not permitted");
+		long currentTail = tail;
+		if (currentTail + len - cachedHead > buffer.length) {
+			cachedHead = (long) HEAD.getAcquire(this);
+			if (currentTail + len - cachedHead > buffer.length)
+				throw new IllegalStateException("Queue is full");
+		}
+		for (int i = 0; i < len; i++)
+			buffer[(int) (currentTail + i) & mask] = src[off + i]; // unpublished until tail moves
+		TAIL.setRelease(this, currentTail + len);
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue.
+	 * Consumer thread only.
+	 * @return The object at the front of the queue, or null if it is empty
+	 */
+	public T poll() {
+		long currentHead = head;
+		if (!available(currentHead))
+			return null;
+		int index = (int) currentHead & mask;
+		T front = buffer[index];
+		buffer[index] = null; // let the entry be collected
+		HEAD.setRelease(this, currentHead + 1);
+		return front;
+	}
+
+	/**
+	 * Removes up to max entries from the front of this queue and frees
+	 * their slots for the producer with a single release store.
+	 * Consumer thread only.
+	 * @param dst Array receiving the entries
+	 * @param max Maximum number of entries to remove
+	 * @return Number of entries removed
+	 * @throws IndexOutOfBoundsException if max is negative or exceeds dst.length
+	 */
+	@Override
+	public int drainTo(T[] dst, int max) {
+		Objects.checkFromIndexSize(0, max, dst.length);
+		long currentHead = head;
+		cachedTail = (long) TAIL.getAcquire(this);
+		int count = (int) Math.min(max, cachedTail - currentHead);
+		for (int i = 0; i < count; i++) {
+			int index = (int) (currentHead + i) & mask;
+			dst[i] = buffer[index];
+			buffer[index] = null;
+		}
+		HEAD.setRelease(this, currentHead + count);
+		return count;
+	}
+
+	/**
+	 * Removes all entries currently visible to the consumer and adds
+	 * them, in queue order, to the given collection. Consumer thread only.
+	 * @param dst Collection receiving the entries
+	 * @return Number of entries removed
+	 */
+	@Override
+	public int drainTo(Collection<? super T> dst) {
+		int count = 0;
+		for (T front; (front = poll()) != null; count++)
+			dst.add(front);
+		return count;
+	}
+
+	/**
+	 * Removes and returns the entry at the front of this queue.
+	 * Consumer thread only.
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T dequeue() {
+		T front = poll();
+		if (front == null)
+			throw new EmptyQueueException();
+		return front;
+	}
+
+	/**
+	 * Returns entry at front of this queue without modifying it.
+	 * Consumer thread only.
+	 * @return The object at the front of the queue
+	 * @throws EmptyQueueException if queue is empty
+	 */
+	@Override
+	public T getFront() {
+		long currentHead = head;
+		if (!available(currentHead))
+			throw new EmptyQueueException();
+		return buffer[(int) currentHead & mask];
+	}
+
+	/**
+	 * Checks whether the slot at the given head position has been published,
+	 * refreshing the cached tail only when the cached view says it has not.
+	 * Precondition: called from the consumer thread
+	 * @param currentHead Consumer's current head counter
+	 * @return True if an entry is available at currentHead
+	 */
+	private boolean available(long currentHead) {
+		if (currentHead < cachedTail)
+			return true;
+		cachedTail = (long) TAIL.getAcquire(this);
+		return currentHead < cachedTail;
+	}
+
+	/**
+	 * Detects whether the queue is empty. When called while the other
+	 * thread is active the answer may already be stale on return.
+	 * @return True if the queue is empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return (long) HEAD.getAcquire(this) == (long) TAIL.getAcquire(this);
+	}
+
+	/**
+	 * Returns the number of entries in this queue. When called while
+	 * the other thread is active the answer may already be stale on return.
+	 * @return Number of entries
+	 */
+	@Override
+	public int size() {
+		long currentHead = (long) HEAD.getAcquire(this);
+		long currentTail = (long) TAIL.getAcquire(this);
+		return (int) Math.max(0, Math.min(currentTail - currentHead, buffer.length));
+	}
+
+	/**
+	 * Removes all entries from this queue. Consumer thread only.
+	 */
+	@Override
+	public void clear() {
+		while (poll() != null)
+			;
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the entries from front to
+	 * back, without removing them. Any thread may call this method.
+	 * @return Iterator over the entries present when it was created
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private long position = (long) HEAD.getAcquire(SpscRingBuffer.this);
+			private final long end = (long) TAIL.getAcquire(SpscRingBuffer.this);
+			private T nextEntry = advance();
+
+			/**
+			 * Reads the entry at the next position the consumer has not yet
+			 * passed, or returns null when there is none before end
+			 */
+			@SuppressWarnings("unchecked")
+			private T advance() {
+				while (position < end) {
+					T entry = (T) ENTRY.getAcquire(buffer, (int) position & mask);
+					// The slot cannot be reused before head passes it, so the read is valid
+					// as long as head has not moved past position since
+					long currentHead = (long) HEAD.getAcquire(SpscRingBuffer.this);
+					if (currentHead > position) {
+						position = currentHead;
+						continue;
+					}
+					position++;
+					return entry;
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return nextEntry != null;
+			}
+
+			@Override
+			public T next() {
+				T entry = nextEntry;
+				if (entry == null)
+					throw new NoSuchElementException();
+				nextEntry = advance();
+				return entry;
+			}
+		};
+	}
+}
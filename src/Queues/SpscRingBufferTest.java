@@ -0,0 +1,220 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the single-producer/single-consumer ring buffer, first against
+ * the same FIFO contract as CircularArrayQueue and then with a real
+ * producer and consumer thread running concurrently.
+ */
+public class SpscRingBufferTest {
+
+	private SpscRingBuffer<String> rb1;
+	private SpscRingBuffer<String> rb2;
+	private SpscRingBuffer<Integer> rb3;
+
+	@Before
+	public void setUp() throws Exception {
+		// queue of Strings
+		rb1 = new SpscRingBuffer<>(8);
+		rb1.enqueue("First");
+		rb1.enqueue("Second");
+		rb1.enqueue("Third");
+		// Empty queue of Strings
+		rb2 = new SpscRingBuffer<>(8);
+		// queue of Integers, capacity rounded up from 3 to 4
+		rb3 = new SpscRingBuffer<>(3);
+		rb3.enqueue(999);
+		rb3.enqueue(-14);
+		rb3.enqueue(3);
+		rb3.enqueue(0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		rb1.clear();
+		rb3.clear();
+	}
+
+	@Test
+	public void testEnqueue() {
+		rb1.enqueue("Fourth");
+		rb1.enqueue("Fifth");
+		assertEquals("First", rb1.dequeue());
+		assertEquals("Second", rb1.dequeue());
+		assertEquals("Third", rb1.dequeue());
+		assertEquals("Fourth", rb1.dequeue());
+		assertEquals("Fifth", rb1.dequeue());
+
+		// Entries wrap around the end of the array
+		for (int i = 0; i < 20; i++) {
+			rb2.enqueue("Entry " + i);
+			assertEquals("Entry " + i, rb2.dequeue());
+		}
+		assertTrue(rb2.isEmpty());
+	}
+
+	@Test
+	public void testCapacity() {
+		assertEquals(8, rb1.capacity());
+		assertEquals(4, rb3.capacity());
+		assertEquals(1, new SpscRingBuffer<String>(1).capacity());
+		// Full buffer refuses further entries instead of growing
+		assertFalse(rb3.offer(65));
+		boolean exception = false;
+		try {
+			rb3.enqueue(65);
+		} catch(IllegalStateException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		// Room is available again once an entry is removed
+		assertEquals(Integer.valueOf(999), rb3.dequeue());
+		assertTrue(rb3.offer(65));
+	}
+
+	@Test
+	public void testDequeue() {
+		assertEquals("First", rb1.dequeue());
+		assertEquals("Second", rb1.dequeue());
+		assertEquals("Third", rb1.dequeue());
+		boolean exception = false;
+		try {
+			rb1.dequeue();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		assertNull(rb2.poll());
+
+		assertEquals(Integer.valueOf(999), rb3.dequeue());
+		assertEquals(Integer.valueOf(-14), rb3.dequeue());
+		assertEquals(Integer.valueOf(3), rb3.dequeue());
+		assertEquals(Integer.valueOf(0), rb3.dequeue());
+		assertNull(rb3.poll());
+	}
+
+	@Test
+	public void testGetFront() {
+		assertEquals("First", rb1.getFront());
+		rb1.dequeue();
+		assertEquals("Second", rb1.getFront());
+		rb1.dequeue();
+		rb1.dequeue();
+		boolean exception = false;
+		try {
+			rb1.getFront();
+		} catch(EmptyQueueException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+
+		// Front should stay the same when entries are enqueued
+		rb1.enqueue("1st");
+		assertEquals("1st", rb1.getFront());
+		rb1.enqueue("2nd");
+		assertEquals("1st", rb1.getFront());
+	}
+
+	@Test
+	public void testIsEmptyAndClear() {
+		assertFalse(rb1.isEmpty());
+		rb1.clear();
+		assertTrue(rb1.isEmpty());
+		assertTrue(rb2.isEmpty());
+		assertFalse(rb3.isEmpty());
+		rb3.clear();
+		assertTrue(rb3.isEmpty());
+	}
+
+	@Test
+	public void testBulkOperations() {
+		String[] batch = {"Fourth", "Fifth", "Sixth", "Seventh", "Eighth"};
+		rb1.enqueueAll(batch, 0, batch.length);
+		assertEquals(8, rb1.size());
+		// No room for even one more, and a failed batch adds nothing
+		boolean exception = false;
+		try {
+			rb1.enqueueAll(batch, 0, 1);
+		} catch(IllegalStateException e) {
+			exception = true;
+		}
+		assertTrue(exception);
+		assertEquals(8, rb1.size());
+
+		String[] out = new String[8];
+		assertEquals(2, rb1.drainTo(out, 2));
+		assertEquals("First", out[0]);
+		assertEquals("Second", out[1]);
+		List<String> rest = new ArrayList<>();
+		assertEquals(6, rb1.drainTo(rest));
+		assertEquals("Third", rest.get(0));
+		assertEquals("Eighth", rest.get(5));
+		assertEquals(0, rb1.size());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullRejected() {
+		rb2.enqueue(null);
+	}
+
+	@Test
+	public void testNullInBatchAddsNothing() {
+		String[] batch = {"Fourth", null, "Sixth"};
+		try {
+			rb1.enqueueAll(batch, 0, batch.length);
+			fail("Null entry accepted");
+		} catch(NullPointerException e) {
+			// expected
+		}
+		assertEquals(3, rb1.size());
+		rb1.enqueueAll(batch, 2, 1);
+		String[] out = new String[8];
+		assertEquals(4, rb1.drainTo(out, 8));
+		assertEquals("Sixth", out[3]);
+	}
+
+	@Test
+	public void testConcurrentLargeBuffer() throws Exception {
+		runProducerConsumer(1024, 2_000_000);
+	}
+
+	@Test
+	public void testConcurrentTinyBuffer() throws Exception {
+		// A tiny buffer makes both threads hit the full and empty paths constantly
+		runProducerConsumer(2, 200_000);
+	}
+
+	/**
+	 * Streams count distinct entries from a producer thread to this thread
+	 * and checks that every entry arrives exactly once and in order.
+	 */
+	private static void runProducerConsumer(int capacity, int count) throws Exception {
+		final SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(capacity);
+		final Integer[] values = new Integer[count];
+		for (int i = 0; i < count; i++)
+			values[i] = i;
+
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < count; i++) {
+				while (!buffer.offer(values[i]))
+					Thread.yield();
+			}
+		});
+		producer.start();
+
+		for (int expected = 0; expected < count; expected++) {
+			Integer next;
+			while ((next = buffer.poll()) == null)
+				Thread.yield();
+			assertSame(values[expected], next);
+		}
+		producer.join();
+		assertTrue(buffer.isEmpty());
+	}
+}
@@ -0,0 +1,76 @@
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Runs the Scheduler as a long-lived process that simulates arrivals as
+ * they happen (see Scheduler.simulateStream). With just a timeout it reads
+ * process lines from standard input and writes the history to standard
+ * output. With a port as well it listens on the loopback interface and
+ * runs one simulation per connection, reading process lines from the
+ * connection and writing the history back to it; a client ends its input
+ * by shutting down its side of the connection. The metrics of each
+ * simulation are printed to standard error.
+ *
+ * Usage: java StreamingScheduler timeout [port]
+ */
+public class StreamingScheduler {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: java StreamingScheduler timeout [port]");
+			System.exit(2);
+		}
+		int timeout = Integer.parseInt(args[0]);
+		if (args.length == 1) {
+			SimulationResult result = Scheduler.simulateStream(new FileInputStream(FileDescriptor.in).getChannel(),
+					new FileOutputStream(FileDescriptor.out).getChannel(), timeout, false);
+			System.err.println(result);
+			return;
+		}
+		try (ServerSocketChannel server = listen(Integer.parseInt(args[1]))) {
+			for (;;) {
+				try {
+					System.err.println(serve(server, timeout));
+				} catch (IOException e) {
+					System.err.println("Connection failed: " + e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a server socket on the loopback interface
+	 * @param port Port to listen on, or 0 for any free port
+	 * @return The listening socket
+	 * @throws IOException If the port cannot be bound
+	 */
+	public static ServerSocketChannel listen(int port) throws IOException {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		} catch (IOException e) {
+			server.close();
+			throw e;
+		}
+		return server;
+	}
+
+	/**
+	 * Accepts one connection and runs a simulation on it, then closes it
+	 * @param server Listening socket
+	 * @param timeout How long a process can be on the processor before being kicked off
+	 * @return Metrics of the simulation
+	 * @throws IOException If accepting, reading or writing fails
+	 */
+	public static SimulationResult serve(ServerSocketChannel server, int timeout) throws IOException {
+		try (SocketChannel connection = server.accept()) {
+			return Scheduler.simulateStream(connection, connection, timeout, false);
+		}
+	}
+}
@@ -0,0 +1,232 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests running the scheduler on input that is still being written, over a
+ * pipe and over a loopback socket, against the batch simulation of the
+ * same input.
+ */
+public class StreamingSchedulerTest {
+
+	public static final String INPUT_NAME = "InputStreaming.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputStreaming.txt";
+	public static final int TIMEOUT = 50;
+	public static final int LINES = 5000;
+
+	private static String input;
+	private static String expected;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Random random = new Random(19);
+		StringBuilder lines = new StringBuilder();
+		int start = 0;
+		for (int i = 0; i < LINES; i++) {
+			start += random.nextInt(2) == 0 ? random.nextInt(200) : 0;
+			lines.append(start).append(' ').append(1 + random.nextInt(300)).append(" Job ").append(i % 37).append('\n');
+		}
+		input = lines.toString();
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		ps.print(input);
+		ps.close();
+		Scheduler.simulateProcessor(INPUT_NAME, OUTPUT_NAME, TIMEOUT);
+		expected = new String(Files.readAllBytes(Paths.get(OUTPUT_NAME)), StandardCharsets.US_ASCII);
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		new File(INPUT_NAME).delete();
+		new File(OUTPUT_NAME).delete();
+	}
+
+	@Test
+	public void testPipe() throws Exception {
+		Pipe in = Pipe.open();
+		Pipe out = Pipe.open();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<SimulationResult> simulation = executor.submit(() -> Scheduler.simulateStream(in.source(), out.sink(), TIMEOUT, false));
+			Collector collector = new Collector(out.source());
+			Future<?> collecting = executor.submit(collector);
+
+			// Everything before Backup is written while the simulation waits for the line after it
+			write(in.sink(), "0 120 Editor\n5 20 Shell\n");
+			write(in.sink(), "1000 10 Backup\n");
+			String beforeBackup = line(0, "Editor", 50) + line(50, "Shell", 20) + line(70, "Editor", 50) + line(120, "Editor", 20);
+			assertTrue(collector.await(beforeBackup));
+			assertEquals(beforeBackup, collector.text());
+
+			write(in.sink(), "1005 10 Cron\n");
+			in.sink().close();
+			SimulationResult result = simulation.get(60, TimeUnit.SECONDS);
+			out.sink().close();
+			collecting.get(60, TimeUnit.SECONDS);
+			assertEquals(beforeBackup + "CPU idle from time 140 until time 1000\n" + line(1000, "Backup", 10) + line(1010, "Cron", 10), collector.text());
+			assertEquals(4, result.processes());
+			assertEquals(1020, result.makespan());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPipeMatchesBatch() throws Exception {
+		Pipe in = Pipe.open();
+		Pipe out = Pipe.open();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<SimulationResult> simulation = executor.submit(() -> Scheduler.simulateStream(in.source(), out.sink(), TIMEOUT, false));
+			Collector collector = new Collector(out.source());
+			Future<?> collecting = executor.submit(collector);
+			byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+			for (int off = 0; off < bytes.length; off += 777) // lines split across writes
+				in.sink().write(ByteBuffer.wrap(bytes, off, Math.min(777, bytes.length - off)));
+			in.sink().close();
+			assertEquals(LINES, simulation.get(60, TimeUnit.SECONDS).processes());
+			out.sink().close();
+			collecting.get(60, TimeUnit.SECONDS);
+			assertEquals(expected, collector.text());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLateArrival() throws Exception {
+		Pipe in = Pipe.open();
+		Pipe out = Pipe.open();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Collector collector = new Collector(out.source());
+			Future<?> collecting = executor.submit(collector);
+			write(in.sink(), "100 10 First\n40 10 Late\n");
+			in.sink().close();
+			SimulationResult result = Scheduler.simulateStream(in.source(), out.sink(), TIMEOUT, false);
+			out.sink().close();
+			collecting.get(60, TimeUnit.SECONDS);
+			// Late is treated as arriving when First finishes
+			assertEquals("CPU idle from time 0 until time 100\n" + line(100, "First", 10)
+					+ line(110, "Late", 10), collector.text());
+			assertEquals(120, result.makespan());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLoopback() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (ServerSocketChannel server = StreamingScheduler.listen(0)) {
+			Future<SimulationResult> simulation = executor.submit(() -> StreamingScheduler.serve(server, TIMEOUT));
+			try (SocketChannel client = SocketChannel.open(server.getLocalAddress())) {
+				Collector collector = new Collector(client);
+				Thread reader = new Thread(collector);
+				reader.start();
+				write(client, input);
+				client.shutdownOutput();
+				reader.join(60000);
+				assertEquals(expected, collector.text());
+			}
+			assertEquals(LINES, simulation.get(60, TimeUnit.SECONDS).processes());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testDistinctNamesOnSmallHeap() throws Exception {
+		// A separate JVM with a heap far smaller than the names streamed through it
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		Process process = new ProcessBuilder(java, "-Xmx32m", "-cp", System.getProperty("java.class.path"),
+				"StreamingScheduler", Integer.toString(TIMEOUT))
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.DISCARD)
+				.start();
+		try (PrintStream ps = new PrintStream(new BufferedOutputStream(process.getOutputStream(), 1 << 16))) {
+			for (int i = 0; i < 2000000; i++)
+				ps.println(i * 10 + " 10 Process with a name used only once " + i);
+		}
+		assertTrue(process.waitFor(300, TimeUnit.SECONDS));
+		assertEquals(0, process.exitValue());
+	}
+
+	private static String line(int time, String name, int duration) {
+		return "At time " + time + ": run \"" + name + "\" for " + duration + " time units\n";
+	}
+
+	private static void write(WritableByteChannel channel, String text) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+	}
+
+	/**
+	 * Reads a channel to its end, keeping everything read
+	 */
+	private static class Collector implements Runnable {
+		private final ReadableByteChannel channel;
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		Collector(ReadableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void run() {
+			ByteBuffer buffer = ByteBuffer.allocate(4096);
+			try {
+				while (channel.read(buffer) >= 0) {
+					synchronized (this) {
+						bytes.write(buffer.array(), 0, buffer.position());
+						notifyAll();
+					}
+					buffer.clear();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		synchronized String text() {
+			return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+		}
+
+		/**
+		 * Waits up to ten seconds for the text read so far to end with a suffix
+		 * @return False if it did not
+		 */
+		synchronized boolean await(String suffix) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!text().endsWith(suffix)) {
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0)
+					return false;
+				wait(left);
+			}
+			return true;
+		}
+	}
+}
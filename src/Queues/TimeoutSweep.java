@@ -0,0 +1,259 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the Scheduler's round robin simulation of one ProcessTrace for many
+ * timeouts at once, to find the timeout that suits a workload. The trace
+ * is parsed once and shared read-only; each timeout is simulated as a
+ * separate task on the common ForkJoinPool, reading the trace through a
+ * cursor of its own into a ProcessTable of its own, so the tasks share
+ * nothing mutable and a sweep is limited by the number of cores rather
+ * than by reading the input again.
+ *
+ * Each simulation is run by the Scheduler's round robin loop itself, so it
+ * follows exactly the rules of Scheduler.simulateProcessor and produces
+ * the same history when one is asked for.
+ */
+public final class TimeoutSweep {
+
+	private TimeoutSweep() {
+	}
+
+	/**
+	 * Simulates a trace for every timeout from first to last in steps of step
+	 * @param trace Processes to simulate
+	 * @param first Smallest timeout
+	 * @param last Largest timeout
+	 * @param step Positive difference between consecutive timeouts
+	 * @return One result per timeout, in increasing order of timeout
+	 */
+	public static List<Result> sweep(ProcessTrace trace, int first, int last, int step) {
+		if (step < 1)
+			throw new IllegalArgumentException("Step must be positive: " + step);
+		List<Integer> timeouts = new ArrayList<>();
+		for (long timeout = first; timeout <= last; timeout += step)
+			timeouts.add((int) timeout);
+		return sweep(trace, timeouts.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * Simulates a trace for each of the given timeouts, in parallel, without
+	 * writing any history
+	 * @param trace Processes to simulate
+	 * @param timeouts Timeouts to try
+	 * @return One result per timeout, in the order of timeouts
+	 */
+	public static List<Result> sweep(ProcessTrace trace, int[] timeouts) {
+		return sweep(trace, timeouts, timeout -> null);
+	}
+
+	/**
+	 * Simulates a trace for each of the given timeouts, in parallel, writing
+	 * the history of the timeouts that outputFile names a file for
+	 * @param trace Processes to simulate
+	 * @param timeouts Timeouts to try
+	 * @param outputFile Name of the history file for a timeout, or null for none
+	 * @return One result per timeout, in the order of timeouts
+	 * @throws UncheckedIOException If a history file cannot be created or written
+	 */
+	public static List<Result> sweep(ProcessTrace trace, int[] timeouts, IntFunction<String> outputFile) {
+		for (int timeout : timeouts)
+			if (timeout < 1)
+				throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+		int[] copy = Arrays.copyOf(timeouts, timeouts.length);
+		return IntStream.range(0, copy.length).parallel()
+				.mapToObj(i -> simulate(trace, copy[i], outputFile.apply(copy[i])))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Simulates a trace for one timeout, writing its history if a file is named
+	 * @param trace Processes to simulate
+	 * @param timeout How long a process can be on the processor before being kicked off
+	 * @param outputFile Name of the history file, or null for none
+	 * @return Summary of the simulation
+	 * @throws UncheckedIOException If the history file cannot be created or written
+	 */
+	public static Result simulate(ProcessTrace trace, int timeout, String outputFile) {
+		if (outputFile == null) {
+			try {
+				return simulate(trace, timeout, (HistoryWriter) null);
+			} catch (IOException e) {
+				throw new AssertionError(e); // nothing is written
+			}
+		}
+		HistoryWriter processHistory;
+		try {
+			processHistory = new HistoryWriter(new FileOutputStream(outputFile).getChannel());
+		} catch (FileNotFoundException e) {
+			throw new UncheckedIOException(e);
+		}
+		try (HistoryWriter history = processHistory) {
+			return simulate(trace, timeout, history);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Writing " + outputFile + " failed", e);
+		}
+	}
+
+	/**
+	 * Runs one timeout through the Scheduler's round robin loop, reading the
+	 * trace through a cursor of its own
+	 */
+	private static Result simulate(ProcessTrace trace, int timeout, HistoryWriter processHistory) throws IOException {
+		SliceCounter slices = new SliceCounter();
+		SchedulerListener listener = slices;
+		if (processHistory != null)
+			listener = SchedulerListener.both(new HistoryListener(processHistory, false), slices);
+		SimulationResult metrics = Scheduler.simulateProcessor(trace.source(), timeout, listener);
+		return new Result(timeout, trace.size(), metrics, slices.count);
+	}
+
+	/**
+	 * Counts the times a process is put on the processor, the one figure of a
+	 * Result that SimulationResult does not keep
+	 */
+	private static final class SliceCounter implements SchedulerListener {
+		private long count;
+
+		@Override
+		public void onArrival(int pid, int time) {
+		}
+
+		@Override
+		public void onRun(int pid, int start, int duration) {
+			count++;
+		}
+
+		@Override
+		public void onRunRepeated(int pid, int start, int count, int quantum) {
+			this.count += count;
+		}
+
+		@Override
+		public void onIdle(int from, int to) {
+		}
+
+		@Override
+		public void onComplete(int pid, int time) {
+		}
+	}
+
+	/**
+	 * Summary of one simulation in a sweep
+	 */
+	public static final class Result {
+		private final int timeout;
+		private final int processes;
+		private final int makespan;
+		private final long idleTime;
+		private final long slices;
+		private final double meanTurnaround;
+		private final long maxTurnaround;
+		private final double meanWaiting;
+		private final double meanResponse;
+
+		private Result(int timeout, int processes, SimulationResult metrics, long slices) {
+			this.timeout = timeout;
+			this.processes = processes;
+			makespan = (int) metrics.makespan();
+			idleTime = metrics.idleTime();
+			this.slices = slices;
+			// The histograms keep exact sums and maxima, so these are exact too
+			meanTurnaround = metrics.turnaround().mean();
+			maxTurnaround = metrics.turnaround().max();
+			meanWaiting = metrics.waiting().mean();
+			meanResponse = metrics.response().mean();
+		}
+
+		/**
+		 * @return Timeout that was simulated
+		 */
+		public int timeout() {
+			return timeout;
+		}
+
+		/**
+		 * @return Number of processes simulated
+		 */
+		public int processes() {
+			return processes;
+		}
+
+		/**
+		 * @return Time the last process finished
+		 */
+		public int makespan() {
+			return makespan;
+		}
+
+		/**
+		 * @return Time units the processor spent idle, including before the first arrival
+		 */
+		public long idleTime() {
+			return idleTime;
+		}
+
+		/**
+		 * @return Number of times a process was put on the processor, one per
+		 *         line of the history
+		 */
+		public long slices() {
+			return slices;
+		}
+
+		/**
+		 * @return Mean time from arrival to completion
+		 */
+		public double meanTurnaround() {
+			return meanTurnaround;
+		}
+
+		/**
+		 * @return Longest time from arrival to completion
+		 */
+		public long maxTurnaround() {
+			return maxTurnaround;
+		}
+
+		/**
+		 * @return Mean time spent ready but not running
+		 */
+		public double meanWaiting() {
+			return meanWaiting;
+		}
+
+		/**
+		 * @return Mean time from arrival to first running
+		 */
+		public double meanResponse() {
+			return meanResponse;
+		}
+
+		/**
+		 * Formats the summary as name=value pairs on one line
+		 * @return Text suitable for a log or a spreadsheet import
+		 */
+		@Override
+		public String toString() {
+			List<String> fields = new ArrayList<>();
+			fields.add("timeout=" + timeout);
+			fields.add("processes=" + processes);
+			fields.add("makespan=" + makespan);
+			fields.add("idle=" + idleTime);
+			fields.add("slices=" + slices);
+			fields.add(String.format("meanTurnaround=%.1f", meanTurnaround()));
+			fields.add("maxTurnaround=" + maxTurnaround);
+			fields.add(String.format("meanWaiting=%.1f", meanWaiting()));
+			fields.add(String.format("meanResponse=%.1f", meanResponse()));
+			return String.join(" ", fields);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that a sweep gives the same histories as the Scheduler and the
+ * expected summaries, whatever order the simulations run in.
+ */
+public class TimeoutSweepTest {
+
+	public static final String INPUT_NAME = "InputSweep.txt";
+	public static final String RANDOM_INPUT_NAME = "InputSweepRandom.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputSweep.txt";
+	public static final String SWEEP_OUTPUT_PREFIX = "SweepOutput";
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		PrintStream ps = new PrintStream(new File(INPUT_NAME));
+		ps.println("0    100  Initialization");
+		ps.println("0    200  Background service");
+		ps.println("500  50   Virus scan");
+		ps.close();
+
+		Random random = new Random(16);
+		ps = new PrintStream(new File(RANDOM_INPUT_NAME));
+		int start = 0;
+		for (int i = 0; i < 2000; i++) {
+			start += random.nextInt(4) == 0 ? random.nextInt(500) : 0;
+			ps.println(start + " " + (1 + random.nextInt(random.nextBoolean() ? 50 : 2000)) + " Process " + i);
+		}
+		ps.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		new File(INPUT_NAME).delete();
+		new File(RANDOM_INPUT_NAME).delete();
+		new File(OUTPUT_NAME).delete();
+		for (int timeout = 1; timeout <= 1000; timeout++)
+			new File(SWEEP_OUTPUT_PREFIX + timeout + ".txt").delete();
+	}
+
+	@Test
+	public void testSummary() throws IOException {
+		TimeoutSweep.Result result = TimeoutSweep.simulate(ProcessTrace.load(INPUT_NAME), 100, null);
+		// Initialization 0-100, Background service 100-300 in two periods, idle 300-500, Virus scan 500-550
+		assertEquals(100, result.timeout());
+		assertEquals(3, result.processes());
+		assertEquals(550, result.makespan());
+		assertEquals(200, result.idleTime());
+		assertEquals(4, result.slices());
+		assertEquals((100 + 300 + 50) / 3.0, result.meanTurnaround(), 1e-9);
+		assertEquals(300, result.maxTurnaround());
+		assertEquals((0 + 100 + 0) / 3.0, result.meanWaiting(), 1e-9);
+		assertEquals((0 + 100 + 0) / 3.0, result.meanResponse(), 1e-9);
+		assertTrue(result.toString().startsWith("timeout=100 processes=3 makespan=550 idle=200 slices=4 "));
+	}
+
+	@Test
+	public void testHistoryMatchesScheduler() throws IOException {
+		ProcessTrace trace = ProcessTrace.load(RANDOM_INPUT_NAME);
+		int[] timeouts = {1, 7, 50, 100, 333, 1000};
+		List<TimeoutSweep.Result> results = TimeoutSweep.sweep(trace, timeouts, timeout -> SWEEP_OUTPUT_PREFIX + timeout + ".txt");
+		assertEquals(timeouts.length, results.size());
+		for (int i = 0; i < timeouts.length; i++) {
+			assertEquals(timeouts[i], results.get(i).timeout());
+			Scheduler.simulateProcessor(RANDOM_INPUT_NAME, OUTPUT_NAME, timeouts[i]);
+			List<String> expected = Files.readAllLines(Paths.get(OUTPUT_NAME));
+			assertEquals("timeout " + timeouts[i], expected, Files.readAllLines(Paths.get(SWEEP_OUTPUT_PREFIX + timeouts[i] + ".txt")));
+			assertEquals(expected.stream().filter(line -> line.startsWith("At time ")).count(), results.get(i).slices());
+		}
+	}
+
+	@Test
+	public void testSweepWithoutHistory() throws IOException {
+		ProcessTrace trace = ProcessTrace.load(RANDOM_INPUT_NAME);
+		List<TimeoutSweep.Result> results = TimeoutSweep.sweep(trace, 10, 200, 10);
+		assertEquals(20, results.size());
+		long totalWork = 0;
+		for (int i = 0; i < trace.size(); i++)
+			totalWork += trace.duration(i);
+		for (int i = 0; i < results.size(); i++) {
+			TimeoutSweep.Result result = results.get(i);
+			assertEquals(10 * (i + 1), result.timeout());
+			assertEquals(result.toString(), TimeoutSweep.simulate(trace, result.timeout(), null).toString());
+			// The processor is either busy or idle until the last process finishes
+			assertEquals(result.makespan(), totalWork + result.idleTime());
+		}
+	}
+}
@@ -0,0 +1,220 @@
+import java.util.Arrays;
+
+/**
+ * A hierarchical hashed timing wheel of int items, such as ProcessTable
+ * indices, each due at an int time. Items can be added in any order of
+ * time and come out in order of time, and items due at the same time come
+ * out in the order they were added.
+ *
+ * There are four wheels of 256 slots. The wheel an item goes into is
+ * chosen by the highest byte in which its time differs from the wheel's
+ * current time: an item due within the current block of 256 time units
+ * goes into the slot for its exact time on wheel 0, one due within the
+ * current block of 65536 goes into wheel 1, and so on, so wheel 3 holds
+ * the far future. When the current time moves into the block covered by
+ * a slot of a higher wheel, that slot's items are cascaded down to the
+ * wheel below. Each slot is a linked list threaded through an int array
+ * indexed by item, with a head and a tail, and each wheel has a bitmap of
+ * its non-empty slots, so adding is O(1), an item is moved at most three
+ * times, and finding the next due slot skips empty ones 64 at a time.
+ * Releasing every item due by a time is therefore O(1) amortized per item.
+ * The earliest time in each slot is kept as well, so looking at the next
+ * due time moves nothing.
+ *
+ * The current time is the due time of the last item released. An item
+ * added with an earlier time is due at the current time. Not thread-safe.
+ */
+public class TimingWheel {
+
+	private static final int LEVELS = 4;
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int NONE = -1;
+
+	private final int[] heads = new int[LEVELS * SLOTS];
+	private final int[] tails = new int[LEVELS * SLOTS];
+	private final int[] earliest = new int[LEVELS * SLOTS]; // least due time in each non-empty slot
+	private final long[] occupied = new long[LEVELS * SLOTS / 64]; // one bit per non-empty slot
+	private int[] next = new int[64];  // next item in the same slot
+	private int[] due = new int[64];   // time each item is due
+	private int now;
+	private int size;
+
+	public TimingWheel() {
+		Arrays.fill(heads, NONE);
+		Arrays.fill(tails, NONE);
+	}
+
+	/**
+	 * Adds an item
+	 * @param item Non-negative item, not already in the wheel
+	 * @param time Time the item is due
+	 */
+	public void add(int item, int time) {
+		if (item < 0)
+			throw new IllegalArgumentException("Items cannot be negative: " + item);
+		if (item >= next.length) {
+			int capacity = (int) Math.min(Math.max(2L * next.length, item + 1L), Integer.MAX_VALUE - 8);
+			next = Arrays.copyOf(next, capacity);
+			due = Arrays.copyOf(due, capacity);
+		}
+		due[item] = Math.max(time, now);
+		place(item);
+		size++;
+	}
+
+	/**
+	 * Appends an item to the slot its due time falls in, given the current time
+	 */
+	private void place(int item) {
+		int time = due[item];
+		int level = 0;
+		while (level < LEVELS - 1 && (time >>> (SLOT_BITS * (level + 1))) != (now >>> (SLOT_BITS * (level + 1))))
+			level++;
+		int slot = level * SLOTS + ((time >>> (SLOT_BITS * level)) & SLOT_MASK);
+		next[item] = NONE;
+		if (heads[slot] == NONE) {
+			heads[slot] = item;
+			earliest[slot] = time;
+			occupied[slot >>> 6] |= 1L << slot;
+		} else {
+			next[tails[slot]] = item;
+			earliest[slot] = Math.min(earliest[slot], time);
+		}
+		tails[slot] = item;
+	}
+
+	/**
+	 * Detects whether the wheel has no items
+	 * @return True if no item is waiting
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of items waiting
+	 * @return Number of items added and not yet released
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns when the earliest item is due
+	 * @return Due time of the earliest item
+	 * @throws EmptyQueueException If the wheel is empty
+	 */
+	public int nextTime() {
+		return earliest[firstSlot()];
+	}
+
+	/**
+	 * Removes the earliest item, making its due time the current time
+	 * @return The item due first, and added first among those due then
+	 * @throws EmptyQueueException If the wheel is empty
+	 */
+	public int poll() {
+		int slot = dueSlot();
+		int item = heads[slot];
+		now = due[item];
+		heads[slot] = next[item];
+		if (heads[slot] == NONE) {
+			tails[slot] = NONE;
+			occupied[slot >>> 6] &= ~(1L << slot);
+		}
+		size--;
+		return item;
+	}
+
+	/**
+	 * Moves every item due at or before a time to the back of a queue, in
+	 * order of time and then of adding. The due time of the last one becomes
+	 * the current time.
+	 * @param time Latest due time to release
+	 * @param out Queue receiving the items
+	 * @return Number of items released
+	 */
+	public int releaseThrough(int time, IntCircularArrayQueue out) {
+		int released = 0;
+		while (size > 0 && earliest[firstSlot()] <= time) {
+			int slot = dueSlot();
+			for (int item = heads[slot]; item != NONE; item = next[item]) {
+				out.enqueueInt(item);
+				released++;
+				size--;
+			}
+			now = earliest[slot];
+			heads[slot] = NONE;
+			tails[slot] = NONE;
+			occupied[slot >>> 6] &= ~(1L << slot);
+		}
+		return released;
+	}
+
+	/**
+	 * Finds the first non-empty slot, which holds the earliest item
+	 * @return Index of the slot in heads
+	 */
+	private int firstSlot() {
+		if (size == 0)
+			throw new EmptyQueueException();
+		int slot = nextOccupied(0, now & SLOT_MASK);
+		for (int level = 1; slot < 0; level++) {
+			int index = (now >>> (SLOT_BITS * level)) & SLOT_MASK;
+			if (index < SLOT_MASK)
+				slot = nextOccupied(level, index + 1);
+		}
+		return slot;
+	}
+
+	/**
+	 * Cascades the first non-empty slot down until it is on wheel 0, where a
+	 * slot holds only items due at the same time
+	 * @return Index of the wheel 0 slot of the earliest items
+	 */
+	private int dueSlot() {
+		for (;;) {
+			int slot = firstSlot();
+			if (slot < SLOTS)
+				return slot;
+			cascade(slot / SLOTS, slot);
+		}
+	}
+
+	/**
+	 * Moves the current time to the start of the block a slot stands for
+	 * and puts the slot's items into the lower wheels, in order
+	 */
+	private void cascade(int level, int slot) {
+		int shift = SLOT_BITS * level;
+		int blockMask = shift + SLOT_BITS >= Integer.SIZE ? 0 : -1 << (shift + SLOT_BITS);
+		now = (now & blockMask) | ((slot & SLOT_MASK) << shift);
+		int item = heads[slot];
+		heads[slot] = NONE;
+		tails[slot] = NONE;
+		occupied[slot >>> 6] &= ~(1L << slot);
+		while (item != NONE) {
+			int following = next[item];
+			place(item);
+			item = following;
+		}
+	}
+
+	/**
+	 * Finds the first non-empty slot of a wheel at or after an index
+	 * @return Index of the slot in heads, or -1 if there is none
+	 */
+	private int nextOccupied(int level, int from) {
+		int bit = level * SLOTS + from;
+		int end = (level + 1) * SLOTS;
+		while (bit < end) {
+			long word = occupied[bit >>> 6] & (-1L << bit);
+			if (word != 0)
+				return (bit & ~63) + Long.numberOfTrailingZeros(word);
+			bit = (bit & ~63) + 64;
+		}
+		return -1;
+	}
+}
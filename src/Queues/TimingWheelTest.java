@@ -0,0 +1,144 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that a TimingWheel releases items in order of time and then of
+ * adding, across all of its wheels.
+ */
+public class TimingWheelTest {
+
+	@Test
+	public void testEmpty() {
+		TimingWheel wheel = new TimingWheel();
+		assertTrue(wheel.isEmpty());
+		assertEquals(0, wheel.size());
+		assertEquals(0, wheel.releaseThrough(Integer.MAX_VALUE, new IntCircularArrayQueue()));
+		try {
+			wheel.poll();
+			fail("Expected EmptyQueueException");
+		} catch (EmptyQueueException e) {
+			// expected
+		}
+		try {
+			wheel.nextTime();
+			fail("Expected EmptyQueueException");
+		} catch (EmptyQueueException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testOutOfOrder() {
+		TimingWheel wheel = new TimingWheel();
+		wheel.add(0, 70000);   // third wheel
+		wheel.add(1, 5);       // first wheel
+		wheel.add(2, 300);     // second wheel
+		wheel.add(3, 5);
+		wheel.add(4, 20000000); // fourth wheel
+		wheel.add(5, 300);
+		assertEquals(6, wheel.size());
+		assertEquals(5, wheel.nextTime());
+		assertEquals(1, wheel.poll());
+		IntCircularArrayQueue out = new IntCircularArrayQueue();
+		assertEquals(1, wheel.releaseThrough(299, out));
+		assertEquals(3, out.dequeueInt());
+		assertTrue(out.isEmpty());
+		assertEquals(300, wheel.nextTime());
+		assertEquals(2, wheel.releaseThrough(300, out));
+		assertEquals(2, out.dequeueInt());
+		assertEquals(5, out.dequeueInt());
+		assertEquals(70000, wheel.nextTime());
+		assertEquals(0, wheel.poll());
+		assertEquals(20000000, wheel.nextTime());
+		assertEquals(4, wheel.poll());
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testTiesKeepAddingOrderAcrossCascades() {
+		TimingWheel wheel = new TimingWheel();
+		wheel.add(0, 100000); // cascaded twice before it is due
+		wheel.add(1, 99999);
+		wheel.add(2, 100000);
+		assertEquals(1, wheel.poll());
+		assertEquals(100000, wheel.nextTime());
+		wheel.add(3, 100000); // added straight to the first wheel after the cascades
+		assertEquals(0, wheel.poll());
+		assertEquals(2, wheel.poll());
+		assertEquals(3, wheel.poll());
+	}
+
+	@Test
+	public void testLateItemIsDueNow() {
+		TimingWheel wheel = new TimingWheel();
+		wheel.add(0, 1000);
+		wheel.add(1, 2000);
+		assertEquals(0, wheel.poll());
+		wheel.add(2, 10);
+		assertEquals(1000, wheel.nextTime());
+		assertEquals(2, wheel.poll());
+		assertEquals(1, wheel.poll());
+	}
+
+	@Test
+	public void testRandomAgainstSort() {
+		Random random = new Random(22);
+		for (int trial = 0; trial < 20; trial++) {
+			TimingWheel wheel = new TimingWheel();
+			int count = 1 + random.nextInt(20000);
+			int range = trial % 2 == 0 ? 1000 : Integer.MAX_VALUE;
+			List<int[]> items = new ArrayList<>(); // {time, item}
+			for (int i = 0; i < count; i++) {
+				int time = random.nextInt(range);
+				items.add(new int[] {time, i});
+				wheel.add(i, time);
+			}
+			Collections.sort(items, Comparator.comparingInt((int[] item) -> item[0])); // stable
+			IntCircularArrayQueue out = new IntCircularArrayQueue();
+			int released = 0;
+			while (!wheel.isEmpty()) {
+				int limit = wheel.nextTime() + random.nextInt(range / 100 + 1);
+				released += wheel.releaseThrough(limit, out);
+			}
+			assertEquals(count, released);
+			for (int[] item : items)
+				assertEquals(item[1], out.dequeueInt());
+		}
+	}
+
+	@Test
+	public void testInterleavedAdds() {
+		// Adds keep arriving while items are released, as in a simulation
+		Random random = new Random(23);
+		TimingWheel wheel = new TimingWheel();
+		int now = 0;
+		int added = 0;
+		int last = -1;
+		IntCircularArrayQueue out = new IntCircularArrayQueue();
+		int[] due = new int[100000];
+		while (added < due.length || !wheel.isEmpty()) {
+			for (int i = random.nextInt(5); i > 0 && added < due.length; i--) {
+				due[added] = now + random.nextInt(random.nextBoolean() ? 300 : 10000000);
+				wheel.add(added, due[added]);
+				added++;
+			}
+			if (!wheel.isEmpty()) {
+				now = wheel.nextTime();
+				wheel.releaseThrough(now, out);
+				while (!out.isEmpty()) {
+					int item = out.dequeueInt();
+					assertEquals(now, due[item]);
+					assertTrue(due[item] >= last);
+					last = due[item];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,313 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the Scheduler's input format, one process per line: a start time,
+ * a duration, and a name made of all remaining tokens. It gives the same
+ * results as reading each line with Scanner.nextLine and splitting it with
+ * a second Scanner, but works directly on bytes: input is read through a
+ * large direct ByteBuffer that is refilled from a channel, the two numbers
+ * are decoded from their digits in place, and the name tokens are copied
+ * into a reusable array with single spaces between them. No per-line
+ * Scanner, regular expression or string concatenation is involved; the
+ * only allocation per line is the name String itself.
+ *
+ * Lines end with "\n", "\r\n" or "\r". Tokens are separated by the ASCII
+ * characters Character.isWhitespace accepts. Numbers are an optional sign
+ * followed by ASCII digits. Unlike Scanner, non-ASCII line separators and
+ * spaces and locale-specific digit grouping ("1,000") are not recognized;
+ * the Scheduler's input never uses them.
+ */
+public class TraceParser implements TraceSource {
+
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private final ReadableByteChannel channel;
+	private final Charset charset = Charset.defaultCharset(); // what Scanner(File) decodes with
+	private ByteBuffer buffer;  // unread input is between position and limit
+	private boolean endOfInput;
+	private long offset;        // input offset of the byte at the buffer's position
+	private int startTime;
+	private int duration;
+	private byte[] name = new byte[64];
+	private int nameLength;
+
+	/**
+	 * Creates a parser reading a channel with the default 1 MiB buffer
+	 * @param channel Source of the input, closed by close()
+	 */
+	public TraceParser(ReadableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a parser reading a channel. The buffer grows if a single
+	 * line does not fit.
+	 * @param channel Source of the input, closed by close()
+	 * @param bufferSize Initial size of the direct read buffer in bytes
+	 */
+	public TraceParser(ReadableByteChannel channel, int bufferSize) {
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+		buffer.flip(); // nothing read yet
+	}
+
+	/**
+	 * Opens a parser on a file
+	 * @param file File to read
+	 * @return Parser positioned at the start of the file
+	 * @throws IOException If the file cannot be opened
+	 */
+	public static TraceParser open(Path file) throws IOException {
+		return new TraceParser(FileChannel.open(file, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Detects whether any input remains, like Scanner.hasNextLine
+	 * @return True if there is at least one more line
+	 * @throws IOException If reading the channel fails
+	 */
+	public boolean hasNextLine() throws IOException {
+		while (!buffer.hasRemaining() && !endOfInput)
+			refill();
+		return buffer.hasRemaining();
+	}
+
+	/**
+	 * Parses the next line, whose fields are then available from
+	 * startTime(), duration() and name()
+	 * @return True if a line was parsed, false at the end of the input
+	 * @throws IOException If reading the channel fails
+	 * @throws NoSuchElementException If the line is missing a field
+	 * @throws InputMismatchException If a number is malformed or out of range
+	 */
+	@Override
+	public boolean next() throws IOException {
+		if (!hasNextLine())
+			return false;
+		int length = findLineEnd();
+		int lineStart = buffer.position();
+		int lineEnd = lineStart + length;
+		int terminator = 0;
+		if (lineEnd < buffer.limit()) {
+			terminator = 1;
+			if (buffer.get(lineEnd) == '\r' && lineEnd + 1 < buffer.limit() && buffer.get(lineEnd + 1) == '\n')
+				terminator = 2;
+		}
+		// Consume the line before parsing so a bad line is skipped like nextLine would
+		buffer.position(lineEnd + terminator);
+		offset += length + terminator;
+
+		int from = skipWhitespace(lineStart, lineEnd);
+		int to = tokenEnd(from, lineEnd);
+		startTime = parseInt(from, to);
+		from = skipWhitespace(to, lineEnd);
+		to = tokenEnd(from, lineEnd);
+		duration = parseInt(from, to);
+		from = skipWhitespace(to, lineEnd);
+		if (from == lineEnd)
+			throw new NoSuchElementException();
+		nameLength = 0;
+		while (from < lineEnd) {
+			to = tokenEnd(from, lineEnd);
+			if (nameLength > 0)
+				appendName((byte) ' ');
+			for (int i = from; i < to; i++)
+				appendName(buffer.get(i));
+			from = skipWhitespace(to, lineEnd);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the length of the line starting at the buffer's position,
+	 * reading more input until its terminator (or the end of the input) is
+	 * in the buffer. A "\r" is only accepted as a terminator once the next
+	 * byte is known, so a "\r\n" split between two reads counts as one.
+	 * @return Number of bytes before the terminator
+	 */
+	private int findLineEnd() throws IOException {
+		int scanned = 0;
+		for (;;) {
+			int start = buffer.position();
+			int limit = buffer.limit();
+			int i = start + scanned;
+			for (; i < limit; i++) {
+				byte c = buffer.get(i);
+				if (c == '\n' || (c == '\r' && (i + 1 < limit || endOfInput)))
+					return i - start;
+				if (c == '\r')
+					break; // need the next byte to tell "\r" from "\r\n"
+			}
+			if (endOfInput)
+				return limit - start;
+			scanned = i - start;
+			refill();
+		}
+	}
+
+	/**
+	 * Moves unread input to the start of the buffer, growing it if it is
+	 * already full of unread input, and reads more from the channel
+	 */
+	private void refill() throws IOException {
+		if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+		if (channel.read(buffer) < 0)
+			endOfInput = true;
+		buffer.flip();
+	}
+
+	/**
+	 * Returns the first index at or after from that is not whitespace
+	 */
+	private int skipWhitespace(int from, int to) {
+		while (from < to && isWhitespace(buffer.get(from)))
+			from++;
+		return from;
+	}
+
+	/**
+	 * Returns the first index at or after from that is whitespace
+	 */
+	private int tokenEnd(int from, int to) {
+		while (from < to && !isWhitespace(buffer.get(from)))
+			from++;
+		return from;
+	}
+
+	/**
+	 * Matches Character.isWhitespace for ASCII bytes. Bytes of multi-byte
+	 * characters are all negative, so they never count as whitespace.
+	 */
+	private static boolean isWhitespace(byte c) {
+		return c == ' ' || (c >= '\t' && c <= '\r') || (c >= 0x1C && c <= 0x1F);
+	}
+
+	/**
+	 * Decodes the token between two buffer indices as an int
+	 * @throws NoSuchElementException If the token is empty
+	 * @throws InputMismatchException If it is not an int
+	 */
+	private int parseInt(int from, int to) {
+		if (from == to)
+			throw new NoSuchElementException();
+		int i = from;
+		boolean negative = false;
+		byte first = buffer.get(i);
+		if ((first == '-' || first == '+') && to - from > 1) {
+			negative = first == '-';
+			i++;
+		}
+		// Accumulate negatively so Integer.MIN_VALUE is representable
+		long value = 0;
+		for (; i < to; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9)
+				throw new InputMismatchException(token(from, to));
+			value = value * 10 - digit;
+			if (value < Integer.MIN_VALUE)
+				throw new InputMismatchException(token(from, to));
+		}
+		if (!negative && value == Integer.MIN_VALUE)
+			throw new InputMismatchException(token(from, to));
+		return (int) (negative ? value : -value);
+	}
+
+	/**
+	 * Copies a token out of the buffer, for error messages
+	 */
+	private String token(int from, int to) {
+		byte[] bytes = new byte[to - from];
+		for (int i = from; i < to; i++)
+			bytes[i - from] = buffer.get(i);
+		return new String(bytes, charset);
+	}
+
+	/**
+	 * Adds one byte to the name being assembled, growing the array as needed
+	 */
+	private void appendName(byte b) {
+		if (nameLength == name.length)
+			name = Arrays.copyOf(name, name.length * 2);
+		name[nameLength++] = b;
+	}
+
+	/**
+	 * Returns the start time of the line last parsed
+	 * @return First field of the line
+	 */
+	@Override
+	public int startTime() {
+		return startTime;
+	}
+
+	/**
+	 * Returns the duration of the line last parsed
+	 * @return Second field of the line
+	 */
+	@Override
+	public int duration() {
+		return duration;
+	}
+
+	/**
+	 * Returns the name of the line last parsed
+	 * @return Remaining tokens of the line joined by single spaces
+	 */
+	@Override
+	public String name() {
+		return new String(name, 0, nameLength, charset);
+	}
+
+	/**
+	 * Returns the length of the name of the line last parsed
+	 * @return Number of bytes in the name, as it appears in the input
+	 */
+	@Override
+	public int nameLength() {
+		return nameLength;
+	}
+
+	/**
+	 * Copies the name of the line last parsed, without decoding it
+	 * @param dst Array receiving the name
+	 * @param off Index in dst of the first byte
+	 * @throws IndexOutOfBoundsException if the name does not fit in dst
+	 */
+	@Override
+	public void copyName(byte[] dst, int off) {
+		System.arraycopy(name, 0, dst, off, nameLength);
+	}
+
+	/**
+	 * Returns the input offset of the next line to be parsed
+	 * @return Number of bytes consumed so far, including line terminators
+	 */
+	public long offset() {
+		return offset;
+	}
+
+	/**
+	 * Closes the underlying channel
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+/**
+ * Tests that the byte-level trace parser reads every input the same way
+ * as the Scanner-based parsing it replaced, including with buffers small
+ * enough that lines and "\r\n" pairs are split between reads.
+ */
+public class TraceParserTest {
+
+	/**
+	 * Parses input the way Scheduler did before TraceParser
+	 */
+	private static List<String> parseWithScanner(String input) {
+		List<String> records = new ArrayList<>();
+		Scanner processList = new Scanner(input);
+		while (processList.hasNextLine()) {
+			Scanner lineScanner = new Scanner(processList.nextLine());
+			int startTime = lineScanner.nextInt();
+			int runTime = lineScanner.nextInt();
+			String name = lineScanner.next();
+			while (lineScanner.hasNext())
+				name = name + " " + lineScanner.next();
+			records.add(startTime + "|" + runTime + "|" + name);
+		}
+		return records;
+	}
+
+	private static List<String> parse(String input, int bufferSize) throws IOException {
+		List<String> records = new ArrayList<>();
+		byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+		try (TraceParser parser = new TraceParser(Channels.newChannel(new ByteArrayInputStream(bytes)), bufferSize)) {
+			while (parser.next())
+				records.add(parser.startTime() + "|" + parser.duration() + "|" + parser.name());
+			assertEquals(bytes.length, parser.offset());
+		}
+		return records;
+	}
+
+	private static void assertSameAsScanner(String input) throws IOException {
+		List<String> expected = parseWithScanner(input);
+		for (int bufferSize : new int[] {1, 2, 3, 7, 64, 1 << 20})
+			assertEquals("buffer size " + bufferSize, expected, parse(input, bufferSize));
+	}
+
+	@Test
+	public void testSchedulerInputs() throws IOException {
+		assertSameAsScanner("0      100  Initialization\n" +
+							"0      200  Background service\n" +
+							"10     150  Compiler\n" +
+							"600    300  Virus scan\n" +
+							"1890   350  Email\n");
+		assertSameAsScanner("75      75   Initialization\n" +
+							"75      76   Data processing\n" +
+							"75      77   Email\n");
+	}
+
+	@Test
+	public void testLineEndingsAndWhitespace() throws IOException {
+		assertSameAsScanner("1 2 a\r\n3 4 b\r5 6 c\n7 8 d");
+		assertSameAsScanner("\t1\t2\tname\twith   tabs \u000B and\u000Cfeeds  \n");
+		assertSameAsScanner("+5 -0 signs\n2147483647 -2147483648 extremes\n");
+		assertSameAsScanner("");
+	}
+
+	@Test
+	public void testLongLineGrowsBuffer() throws IOException {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 500; i++)
+			name.append(" token").append(i);
+		assertSameAsScanner("1 2" + name + "\n3 4 short\n");
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testBlankLine() throws IOException {
+		parse("1 2 a\n\n3 4 b\n", 16);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testMissingName() throws IOException {
+		parse("1 2   \n", 16);
+	}
+
+	@Test(expected = InputMismatchException.class)
+	public void testMalformedNumber() throws IOException {
+		parse("1 2x a\n", 16);
+	}
+
+	@Test(expected = InputMismatchException.class)
+	public void testNumberOutOfRange() throws IOException {
+		parse("2147483648 1 a\n", 16);
+	}
+}
@@ -0,0 +1,429 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts a trace by start time with an external merge sort, for input files
+ * that are out of order and may be larger than memory. The input is read
+ * in runs of a fixed number of processes; each full run is sorted and
+ * written to a temporary file by a pool of worker threads while the next
+ * run is being read, with at most one run per worker waiting, so memory
+ * holds a bounded number of runs whatever the size of the input. The last
+ * run stays in memory, so an input that fits in one run never touches the
+ * disk. A spilled run stores each name in full in its record rather than
+ * once per file, so reading it back holds one name and a fixed buffer at a
+ * time, and the merge needs memory for the number of runs, not for the
+ * distinct names of the whole input.
+ *
+ * The sorter is itself a TraceSource: it merges the sorted runs with a
+ * heap of the runs keyed by their current start time, and hands out one
+ * process at a time, so the merge streams straight into a simulation
+ * without a sorted copy of the whole trace being written first. Processes
+ * with equal start times keep their input order, within a run by the sort
+ * key and across runs because earlier runs win ties, so the result is the
+ * same as for an input that was sorted to begin with. Closing the sorter
+ * deletes its temporary files.
+ */
+public final class TraceSorter implements TraceSource {
+
+	/**
+	 * Number of processes per run when none is given, about 20 MB with short names
+	 */
+	public static final int DEFAULT_RUN_LENGTH = 1 << 20;
+
+	private static final int SPILL_BUFFER_SIZE = 1 << 16;
+
+	private final List<Path> files;
+	private final TraceSource[] runs;
+	private final DaryHeapPriorityQueue<Integer> heap;
+	private TraceSource current;
+	private int currentRun = -1;
+
+	private TraceSorter(List<Path> files, TraceSource[] runs) {
+		this.files = files;
+		this.runs = runs;
+		heap = new DaryHeapPriorityQueue<>(run -> ((long) runs[run].startTime() << 32) | run);
+	}
+
+	/**
+	 * Sorts the remaining processes of a source
+	 * @param input Source of the processes in any order; it is read to the end but not closed
+	 * @param runLength Number of processes sorted in memory at a time
+	 * @param directory Directory for the temporary files of the runs
+	 * @return Source of the processes in order of start time, to be closed after use
+	 * @throws IOException If reading the input or writing a run fails
+	 */
+	public static TraceSorter sort(TraceSource input, int runLength, Path directory) throws IOException {
+		if (runLength < 1)
+			throw new IllegalArgumentException("Run length must be positive: " + runLength);
+		int workers = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<Path> files = new ArrayList<>();
+		Deque<Future<?>> pending = new ArrayDeque<>();
+		List<TraceSource> runs = new ArrayList<>();
+		boolean done = false;
+		try {
+			Run run = new Run(runLength);
+			while (input.next()) {
+				if (run.size() == runLength) {
+					Path file = Files.createTempFile(directory, "trace-run", ".bin");
+					files.add(file);
+					Run full = run;
+					if (pending.size() >= workers)
+						await(pending.removeFirst());
+					pending.addLast(pool.submit(() -> {
+						full.sort();
+						full.writeTo(file);
+						return null;
+					}));
+					run = new Run(runLength);
+				}
+				run.add(input);
+			}
+			while (!pending.isEmpty())
+				await(pending.removeFirst());
+			for (Path file : files)
+				runs.add(new SpilledRun(file));
+			run.sort();
+			runs.add(run);
+			done = true;
+			return new TraceSorter(files, runs.toArray(new TraceSource[0]));
+		} finally {
+			pool.shutdownNow();
+			if (!done) {
+				for (TraceSource run : runs)
+					run.close();
+				for (Path file : files)
+					Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Waits for a run to be written
+	 */
+	private static void await(Future<?> task) throws IOException {
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while sorting", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Sorts an input file into a new input file, with names normalized to
+	 * single spaces as the Scheduler reads them. The temporary files go in
+	 * the directory of the output file.
+	 * @param inputFile Name of file containing correctly formatted input data, in any order
+	 * @param outputFile Name of the sorted file to create
+	 * @param runLength Number of processes sorted in memory at a time
+	 * @return Number of processes sorted
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public static long sortFile(String inputFile, String outputFile, int runLength) throws IOException {
+		long count = 0;
+		try (TraceParser in = TraceParser.open(Paths.get(inputFile));
+				TraceSorter sorted = sort(in, runLength, directoryOf(outputFile));
+				PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(outputFile)), 1 << 16))) {
+			byte[] name = new byte[64];
+			while (sorted.next()) {
+				if (sorted.nameLength() > name.length)
+					name = new byte[Math.max(name.length * 2, sorted.nameLength())];
+				sorted.copyName(name, 0);
+				out.print(sorted.startTime());
+				out.print(' ');
+				out.print(sorted.duration());
+				out.print(' ');
+				out.write(name, 0, sorted.nameLength());
+				out.println();
+				count++;
+			}
+			if (out.checkError())
+				throw new IOException("Writing " + outputFile + " failed");
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the directory a file is in, for temporary files that should be
+	 * on the same disk
+	 * @param file Name of a file
+	 * @return Its directory
+	 */
+	static Path directoryOf(String file) {
+		return Paths.get(file).toAbsolutePath().getParent();
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		if (currentRun < 0) {
+			for (int run = 0; run < runs.length; run++)
+				if (runs[run].next())
+					heap.enqueue(run);
+		} else if (current == null) {
+			return false;
+		} else if (current.next()) {
+			heap.enqueue(currentRun);
+		}
+		if (heap.isEmpty()) {
+			current = null;
+			return false;
+		}
+		currentRun = heap.dequeue();
+		current = runs[currentRun];
+		return true;
+	}
+
+	@Override
+	public int startTime() {
+		return current.startTime();
+	}
+
+	@Override
+	public int duration() {
+		return current.duration();
+	}
+
+	@Override
+	public String name() {
+		return current.name();
+	}
+
+	@Override
+	public int nameLength() {
+		return current.nameLength();
+	}
+
+	@Override
+	public void copyName(byte[] dst, int off) {
+		current.copyName(dst, off);
+	}
+
+	/**
+	 * Closes the runs and deletes their temporary files
+	 * @throws IOException If a file cannot be closed or deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (TraceSource run : runs) {
+			try {
+				run.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		for (Path file : files) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * One run held in memory: parallel arrays of start times and durations,
+	 * the names back to back, and after sorting an array of sort keys, each
+	 * the start time in the high half and the input position in the low
+	 * half, so sorting the longs sorts by start time and keeps ties in input
+	 * order. Once sorted it reads back as a TraceSource.
+	 */
+	private static final class Run implements TraceSource {
+		private static final Charset CHARSET = Charset.defaultCharset();
+
+		private int[] startTimes;
+		private int[] durations;
+		private int[] nameOffsets; // one more than the number of processes
+		private byte[] names;
+		private long[] order;
+		private int size;
+		private int position = -1;
+		private int process;
+
+		Run(int capacity) {
+			int initial = Math.min(capacity, 1024);
+			startTimes = new int[initial];
+			durations = new int[initial];
+			nameOffsets = new int[initial + 1];
+			names = new byte[initial * 16];
+		}
+
+		int size() {
+			return size;
+		}
+
+		void add(TraceSource source) {
+			if (size == startTimes.length) {
+				int capacity = (int) Math.min(2L * size, Integer.MAX_VALUE - 8);
+				startTimes = Arrays.copyOf(startTimes, capacity);
+				durations = Arrays.copyOf(durations, capacity);
+				nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+			}
+			int end = nameOffsets[size];
+			int length = source.nameLength();
+			if (names.length - end < length)
+				names = Arrays.copyOf(names, (int) Math.min(Math.max(2L * names.length, (long) end + length), Integer.MAX_VALUE - 8));
+			source.copyName(names, end);
+			startTimes[size] = source.startTime();
+			durations[size] = source.duration();
+			nameOffsets[++size] = end + length;
+		}
+
+		void sort() {
+			order = new long[size];
+			for (int i = 0; i < size; i++)
+				order[i] = ((long) startTimes[i] << 32) | i;
+			Arrays.sort(order);
+		}
+
+		/**
+		 * Writes the sorted run in the format SpilledRun reads
+		 */
+		void writeTo(Path file) throws IOException {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), SPILL_BUFFER_SIZE))) {
+				out.writeInt(size);
+				for (long key : order) {
+					int i = (int) key;
+					out.writeInt(startTimes[i]);
+					out.writeInt(durations[i]);
+					out.writeInt(nameOffsets[i + 1] - nameOffsets[i]);
+					out.write(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i]);
+				}
+			}
+		}
+
+		@Override
+		public boolean next() {
+			if (position + 1 >= size)
+				return false;
+			process = (int) order[++position];
+			return true;
+		}
+
+		@Override
+		public int startTime() {
+			return startTimes[process];
+		}
+
+		@Override
+		public int duration() {
+			return durations[process];
+		}
+
+		@Override
+		public String name() {
+			return new String(names, nameOffsets[process], nameLength(), CHARSET);
+		}
+
+		@Override
+		public int nameLength() {
+			return nameOffsets[process + 1] - nameOffsets[process];
+		}
+
+		@Override
+		public void copyName(byte[] dst, int off) {
+			System.arraycopy(names, nameOffsets[process], dst, off, nameLength());
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * A run written to a temporary file by Run.writeTo: the number of
+	 * processes, then for each its start time, duration, name length and
+	 * name bytes. It is read through a fixed buffer, and only the current
+	 * name is kept.
+	 */
+	private static final class SpilledRun implements TraceSource {
+		private static final Charset CHARSET = Charset.defaultCharset();
+
+		private final DataInputStream in;
+		private int remaining;
+		private int startTime;
+		private int duration;
+		private byte[] name = new byte[64];
+		private int nameLength;
+
+		SpilledRun(Path file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), SPILL_BUFFER_SIZE));
+			try {
+				remaining = in.readInt();
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			if (remaining == 0)
+				return false;
+			remaining--;
+			startTime = in.readInt();
+			duration = in.readInt();
+			nameLength = in.readInt();
+			if (nameLength > name.length)
+				name = new byte[Math.max(name.length * 2, nameLength)];
+			in.readFully(name, 0, nameLength);
+			return true;
+		}
+
+		@Override
+		public int startTime() {
+			return startTime;
+		}
+
+		@Override
+		public int duration() {
+			return duration;
+		}
+
+		@Override
+		public String name() {
+			return new String(name, 0, nameLength, CHARSET);
+		}
+
+		@Override
+		public int nameLength() {
+			return nameLength;
+		}
+
+		@Override
+		public void copyName(byte[] dst, int off) {
+			System.arraycopy(name, 0, dst, off, nameLength);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests sorting out-of-order traces in runs spilled to disk and merging
+ * them, alone and feeding the round robin simulation.
+ */
+public class TraceSorterTest {
+
+	public static final String INPUT_NAME = "InputSorter.txt";
+	public static final String SORTED_NAME = "InputSorterSorted.txt";
+	public static final String OUTPUT_NAME = "ExpectedOutputSorter.txt";
+	public static final String MERGED_OUTPUT_NAME = "OutputSorterMerged.txt";
+	public static final String DISTINCT_INPUT_NAME = "InputSorterDistinct.txt";
+	public static final String DISTINCT_SORTED_NAME = "InputSorterDistinctSorted.txt";
+	public static final int LINES = 5000;
+	public static final int TIMEOUT = 60;
+
+	private static List<String> lines;
+	private static List<String> sortedLines;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Random random = new Random(23);
+		lines = new ArrayList<>();
+		for (int i = 0; i < LINES; i++) {
+			// Few distinct start times, so ties cross many runs
+			int start = random.nextInt(5) == 0 ? random.nextInt(5000000) : 100 * random.nextInt(400);
+			lines.add(start + " " + (1 + random.nextInt(3000)) + " Job " + i);
+		}
+		Files.write(Paths.get(INPUT_NAME), lines);
+		sortedLines = new ArrayList<>(lines);
+		// A stable sort keeps the file order of equal start times
+		Collections.sort(sortedLines, Comparator.comparingInt(line -> Integer.parseInt(line.substring(0, line.indexOf(' ')))));
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		for (String file : new String[] {INPUT_NAME, SORTED_NAME, OUTPUT_NAME, MERGED_OUTPUT_NAME, DISTINCT_INPUT_NAME,
+				DISTINCT_SORTED_NAME})
+			new File(file).delete();
+	}
+
+	/**
+	 * Counts the temporary run files left in the working directory
+	 */
+	private static int runFiles() {
+		File[] files = new File(".").getAbsoluteFile().listFiles((dir, name) -> name.startsWith("trace-run"));
+		return files == null ? 0 : files.length;
+	}
+
+	@Test
+	public void testSortFile() throws IOException {
+		for (int runLength : new int[] {1, 7, 100, LINES - 1, LINES, TraceSorter.DEFAULT_RUN_LENGTH}) {
+			assertEquals(LINES, TraceSorter.sortFile(INPUT_NAME, SORTED_NAME, runLength));
+			assertEquals(sortedLines, Files.readAllLines(Paths.get(SORTED_NAME)));
+			assertEquals(0, runFiles());
+		}
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		try (TraceParser in = TraceParser.open(Paths.get(INPUT_NAME));
+				TraceSorter sorted = TraceSorter.sort(in, 250, new File(".").getAbsoluteFile().toPath())) {
+			// Every full run is spilled, and the last one stays in memory
+			assertEquals(LINES / 250 - 1, runFiles());
+			byte[] name = new byte[16];
+			for (String line : sortedLines) {
+				assertTrue(sorted.next());
+				String[] fields = line.split(" ", 3);
+				assertEquals(Integer.parseInt(fields[0]), sorted.startTime());
+				assertEquals(Integer.parseInt(fields[1]), sorted.duration());
+				assertEquals(fields[2], sorted.name());
+				assertEquals(fields[2].length(), sorted.nameLength());
+				sorted.copyName(name, 0);
+				assertEquals(fields[2], new String(name, 0, sorted.nameLength()));
+			}
+			assertFalse(sorted.next());
+			assertFalse(sorted.next());
+		}
+		assertEquals(0, runFiles());
+	}
+
+	@Test
+	public void testEmptyInput() throws IOException {
+		try (TraceParser in = TraceParser.open(Paths.get(INPUT_NAME))) {
+			while (in.next())
+				;
+			try (TraceSorter sorted = TraceSorter.sort(in, 10, new File(".").getAbsoluteFile().toPath())) {
+				assertFalse(sorted.next());
+			}
+		}
+	}
+
+	@Test
+	public void testSimulation() throws IOException {
+		Files.write(Paths.get(SORTED_NAME), sortedLines);
+		SimulationResult expected = Scheduler.simulateProcessor(SORTED_NAME, OUTPUT_NAME, TIMEOUT);
+		SimulationResult merged = Scheduler.simulateUnsorted(INPUT_NAME, MERGED_OUTPUT_NAME, TIMEOUT, 300);
+		assertEquals(Files.readAllLines(Paths.get(OUTPUT_NAME)), Files.readAllLines(Paths.get(MERGED_OUTPUT_NAME)));
+		assertEquals(expected.toCsvRow(), merged.toCsvRow());
+		assertEquals(0, runFiles());
+
+		// The same as loading everything into the timing wheel
+		Scheduler.simulateUnsorted(INPUT_NAME, MERGED_OUTPUT_NAME, TIMEOUT);
+		assertEquals(Files.readAllLines(Paths.get(OUTPUT_NAME)), Files.readAllLines(Paths.get(MERGED_OUTPUT_NAME)));
+	}
+
+	@Test
+	public void testDistinctNamesOnSmallHeap() throws Exception {
+		// Far more name bytes than the heap of the JVM sorting them
+		int lines = 1000000;
+		Random random = new Random(23);
+		try (PrintStream ps = new PrintStream(new BufferedOutputStream(new FileOutputStream(DISTINCT_INPUT_NAME), 1 << 16))) {
+			for (int i = 0; i < lines; i++)
+				ps.println(random.nextInt(1000000) + " 10 Process with a long name used only once, number " + i);
+		}
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		Process process = new ProcessBuilder(java, "-Xmx32m", "-cp", System.getProperty("java.class.path"),
+				"TraceSorterTest", DISTINCT_INPUT_NAME, DISTINCT_SORTED_NAME, "20000")
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.redirectError(ProcessBuilder.Redirect.DISCARD)
+				.start();
+		assertTrue(process.waitFor(300, TimeUnit.SECONDS));
+		assertEquals(0, process.exitValue());
+		assertEquals(0, runFiles());
+		try (TraceParser sorted = TraceParser.open(Paths.get(DISTINCT_SORTED_NAME))) {
+			int count = 0;
+			int last = 0;
+			while (sorted.next()) {
+				assertTrue(sorted.startTime() >= last);
+				last = sorted.startTime();
+				count++;
+			}
+			assertEquals(lines, count);
+		}
+	}
+
+	/**
+	 * Sorts a file with a given run length, for running in a JVM of its own
+	 * @param args Input file, output file and run length
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		TraceSorter.sortFile(args[0], args[1], Integer.parseInt(args[2]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRunLength() throws IOException {
+		TraceSorter.sortFile(INPUT_NAME, SORTED_NAME, 0);
+	}
+}
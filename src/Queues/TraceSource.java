@@ -0,0 +1,42 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of processes for the Scheduler, one at a time in input order.
+ * After next returns true, the accessors describe the process just read.
+ */
+public interface TraceSource extends Closeable {
+	/**
+	 * Reads the next process
+	 * @return True if a process was read, false at the end of the input
+	 * @throws IOException If reading the input fails
+	 */
+	public boolean next() throws IOException;
+	/**
+	 * Returns the start time of the process last read
+	 * @return Simulation time it arrives
+	 */
+	public int startTime();
+	/**
+	 * Returns the duration of the process last read
+	 * @return Number of time units it needs on the processor
+	 */
+	public int duration();
+	/**
+	 * Returns the name of the process last read
+	 * @return Name identifying the process in the history
+	 */
+	public String name();
+	/**
+	 * Returns the length of the name of the process last read
+	 * @return Number of bytes in the name
+	 */
+	public int nameLength();
+	/**
+	 * Copies the name of the process last read, without decoding it
+	 * @param dst Array receiving the name
+	 * @param off Index in dst of the first byte
+	 * @throws IndexOutOfBoundsException if the name does not fit in dst
+	 */
+	public void copyName(byte[] dst, int off);
+}
@@ -0,0 +1,215 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Padding that keeps the top index off the cache line of
+ * whatever object header or field precedes it.
+ */
+abstract class WorkStealingDequePad0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * Index claimed by thieves (and by the owner for the last entry) with compare-and-set.
+ */
+abstract class WorkStealingDequeTopField extends WorkStealingDequePad0 {
+	long top;
+}
+
+/**
+ * Padding between the thieves' index and the owner's index.
+ */
+abstract class WorkStealingDequePad1 extends WorkStealingDequeTopField {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * Index written only by the owner thread.
+ */
+abstract class WorkStealingDequeBottomField extends WorkStealingDequePad1 {
+	long bottom;
+}
+
+/**
+ * Padding that keeps the owner's index off the cache line of
+ * the array reference that follows it.
+ */
+abstract class WorkStealingDequePad2 extends WorkStealingDequeBottomField {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * A work-stealing deque (Chase and Lev's design, with the memory ordering
+ * of Le, Pop, Cohen and Zappa Nardelli). One owner thread pushes and pops
+ * tasks at the bottom like a stack, which keeps recently created, cache-hot
+ * work local; any number of thief threads take the oldest tasks from the
+ * top without locks. Only when the deque is down to its last entry do the
+ * owner and a thief race for it with a compare-and-set.
+ *
+ * Like SpscRingBuffer, the indices only ever increase and are mapped onto a
+ * power-of-two circular array with a mask. When the owner finds the array
+ * full it copies the live entries into an array twice the size and
+ * publishes that; thieves still reading the old array see the same entries
+ * at the same indices, so growing never blocks them.
+ *
+ * This is not a FIFO queue and does not implement QueueInterface.
+ * pushBottom and popBottom may only be called from the owner thread; steal,
+ * isEmpty and size from any thread. Null entries are not permitted because
+ * popBottom and steal use null to report that they got nothing.
+ */
+public class WorkStealingDeque<T> extends WorkStealingDequePad2 {
+
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final VarHandle TOP;
+	private static final VarHandle BOTTOM;
+	private static final VarHandle ARRAY;
+	private static final VarHandle ENTRY = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			TOP = lookup.findVarHandle(WorkStealingDequeTopField.class, "top", long.class);
+			BOTTOM = lookup.findVarHandle(WorkStealingDequeBottomField.class, "bottom", long.class);
+			ARRAY = lookup.findVarHandle(WorkStealingDeque.class, "array", Object[].class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private Object[] array; // power-of-two length, replaced by the owner when it grows
+
+	public WorkStealingDeque() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty deque with room for at least the requested number of
+	 * entries before it first grows. The capacity is rounded up to the next
+	 * power of two.
+	 * @param initialCapacity Minimum number of entries before growing
+	 */
+	public WorkStealingDeque(int initialCapacity) {
+		if (initialCapacity < 1 || initialCapacity > MAXIMUM_CAPACITY)
+			throw new IllegalArgumentException("Capacity must be between 1 and " +
+											MAXIMUM_CAPACITY + ": " + initialCapacity);
+		int capacity = Integer.highestOneBit(initialCapacity);
+		if (capacity < initialCapacity)
+			capacity <<= 1;
+		array = new Object[capacity];
+		VarHandle.releaseFence(); // publish the array to thieves created later
+	}
+
+	/**
+	 * Returns the number of entries the current array can hold
+	 * @return Power-of-two capacity
+	 */
+	public int capacity() {
+		return ((Object[]) ARRAY.getAcquire(this)).length;
+	}
+
+	/**
+	 * Adds an entry at the bottom, growing the array if it is full.
+	 * Owner thread only.
+	 * @param newEntry An object to be added, not null
+	 */
+	public void pushBottom(T newEntry) {
+		if (newEntry == null)
+			throw new NullPointerException("Null entries are not permitted");
+		long b = bottom;
+		long t = (long) TOP.getAcquire(this);
+		Object[] a = array;
+		if (b - t > a.length - 1)
+			a = grow(a, t, b);
+		ENTRY.setRelease(a, (int) b & (a.length - 1), newEntry);
+		BOTTOM.setRelease(this, b + 1);
+	}
+
+	/**
+	 * Copies the live entries into an array twice the size and publishes it.
+	 * Owner thread only.
+	 * @param a Current array, which is full
+	 * @param t Top index read by the caller
+	 * @param b Bottom index
+	 * @return The new array
+	 */
+	private Object[] grow(Object[] a, long t, long b) {
+		if (a.length >= MAXIMUM_CAPACITY)
+			throw new IllegalStateException("Deque is full");
+		Object[] larger = new Object[a.length * 2];
+		for (long i = t; i < b; i++)
+			larger[(int) i & (larger.length - 1)] = a[(int) i & (a.length - 1)];
+		ARRAY.setRelease(this, larger);
+		return larger;
+	}
+
+	/**
+	 * Removes and returns the most recently pushed entry. Owner thread only.
+	 * @return The entry at the bottom, or null if the deque is empty or a
+	 *         thief took the last entry first
+	 */
+	@SuppressWarnings("unchecked")
+	public T popBottom() {
+		long b = bottom - 1;
+		Object[] a = array;
+		// The store to bottom must be visible before top is read, or the owner
+		// and a thief could both take the last entry
+		BOTTOM.setVolatile(this, b);
+		long t = (long) TOP.getVolatile(this);
+		if (t > b) {
+			BOTTOM.setOpaque(this, b + 1); // was already empty
+			return null;
+		}
+		int index = (int) b & (a.length - 1);
+		T entry = (T) a[index];
+		if (t == b) {
+			// Last entry: race the thieves for it by claiming top instead
+			if (!TOP.compareAndSet(this, t, t + 1))
+				entry = null;
+			BOTTOM.setOpaque(this, b + 1);
+		}
+		if (entry != null)
+			a[index] = null; // let the entry be collected
+		return entry;
+	}
+
+	/**
+	 * Removes and returns the oldest entry. Any thread may call this.
+	 * @return The entry at the top, or null if the deque is empty or
+	 *         another thread took that entry first
+	 */
+	@SuppressWarnings("unchecked")
+	public T steal() {
+		long t = (long) TOP.getAcquire(this);
+		VarHandle.fullFence(); // top must be read before bottom
+		long b = (long) BOTTOM.getAcquire(this);
+		if (t >= b)
+			return null;
+		Object[] a = (Object[]) ARRAY.getAcquire(this);
+		T entry = (T) ENTRY.getAcquire(a, (int) t & (a.length - 1));
+		if (!TOP.compareAndSet(this, t, t + 1))
+			return null; // lost the race to another thief or the owner
+		// The slot is not cleared: once top has moved the owner may already be reusing it
+		return entry;
+	}
+
+	/**
+	 * Detects whether the deque is empty. With other threads active the
+	 * answer may already be stale on return.
+	 * @return True if the deque is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the number of entries in the deque. With other threads
+	 * active the answer may already be stale on return.
+	 * @return Number of entries
+	 */
+	public int size() {
+		long b = (long) BOTTOM.getAcquire(this);
+		long t = (long) TOP.getAcquire(this);
+		return (int) Math.max(0, b - t);
+	}
+}
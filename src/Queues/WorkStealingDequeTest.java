@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the work-stealing deque: stack order for the owner, queue order
+ * for thieves, growth, and one owner racing several thieves.
+ */
+public class WorkStealingDequeTest {
+
+	private WorkStealingDeque<Integer> deque;
+
+	@Before
+	public void setUp() throws Exception {
+		deque = new WorkStealingDeque<>(2);
+	}
+
+	@Test
+	public void testOwnerAndThiefOrder() {
+		assertNull(deque.popBottom());
+		assertNull(deque.steal());
+		for (int i = 0; i < 5; i++)
+			deque.pushBottom(i); // grows from 2 to 8
+		assertEquals(8, deque.capacity());
+		assertEquals(5, deque.size());
+		assertEquals(Integer.valueOf(4), deque.popBottom());
+		assertEquals(Integer.valueOf(0), deque.steal());
+		assertEquals(Integer.valueOf(1), deque.steal());
+		assertEquals(Integer.valueOf(3), deque.popBottom());
+		assertEquals(Integer.valueOf(2), deque.popBottom());
+		assertTrue(deque.isEmpty());
+		assertNull(deque.popBottom());
+		assertNull(deque.steal());
+		// Indices keep increasing after the deque empties
+		deque.pushBottom(7);
+		assertEquals(Integer.valueOf(7), deque.steal());
+		assertEquals(0, deque.size());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullRejected() {
+		deque.pushBottom(null);
+	}
+
+	@Test
+	public void testOwnerRacesThieves() throws Exception {
+		final int total = 200_000;
+		final int thieves = 3;
+		final AtomicIntegerArray taken = new AtomicIntegerArray(total);
+		final AtomicBoolean done = new AtomicBoolean();
+
+		Thread[] threads = new Thread[thieves];
+		for (int i = 0; i < thieves; i++) {
+			threads[i] = new Thread(() -> {
+				while (true) {
+					Integer entry = deque.steal();
+					if (entry != null)
+						taken.incrementAndGet(entry);
+					else if (done.get() && deque.isEmpty())
+						break;
+					else
+						Thread.yield();
+				}
+			});
+			threads[i].start();
+		}
+		// The owner pushes in bursts and pops some of each burst itself
+		int next = 0;
+		while (next < total) {
+			for (int i = 0; i < 100 && next < total; i++)
+				deque.pushBottom(next++);
+			for (int i = 0; i < 30; i++) {
+				Integer entry = deque.popBottom();
+				if (entry != null)
+					taken.incrementAndGet(entry);
+			}
+		}
+		done.set(true);
+		for (Thread t : threads)
+			t.join();
+
+		for (int i = 0; i < total; i++)
+			assertEquals("entry " + i, 1, taken.get(i));
+	}
+}